@@ -0,0 +1,309 @@
+package com.sharry.lib.camera;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.WindowManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 冷启动的预热
+ * <p>
+ * 在视图创建之前并行执行: 相机线程打开相机, 后台线程读取着色器源码, 预热线程在 pbuffer 上创建
+ * EGL 上下文, 源码读取完成后编译着色器. 视图创建时接管相机设备、渲染器与 EGL 上下文,
+ * 超时未被接管则释放所有资源.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class ColdStartSession implements ICameraDevice.OnCameraReadyListener, CameraCallback {
+
+    private static final String TAG = ColdStartSession.class.getSimpleName();
+
+    /**
+     * 等待视图接管的时长, 超时后关闭相机
+     */
+    private static final long CLAIM_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 预热打开相机的状态
+     */
+    private static final int OPEN_PENDING = 0;
+    private static final int OPEN_COMPLETED = 1;
+    private static final int OPEN_FAILED = 2;
+
+    /**
+     * 尚未被接管的预热, 只在主线程访问
+     */
+    private static ColdStartSession sPending;
+
+    /**
+     * 开始预热, 取代尚未被接管的预热, 需要在主线程调用
+     */
+    static void start(@NonNull Context context, int engine, int facing) {
+        if (sPending != null) {
+            sPending.abandon();
+        }
+        sPending = new ColdStartSession(context, engine, facing);
+        sPending.launch();
+    }
+
+    /**
+     * 视图创建时接管预热的结果, 需要在主线程调用
+     *
+     * @return 没有可用的预热时返回 null
+     */
+    @Nullable
+    static ColdStartSession claim(@NonNull Context context, int engine, int facing) {
+        ColdStartSession session = sPending;
+        if (session == null) {
+            return null;
+        }
+        sPending = null;
+        session.mMainHandler.removeCallbacks(session.mTimeout);
+        if (!session.matches(context, engine, facing)) {
+            Log.i(TAG, "Prewarmed session doesn't match the view, abandon it.");
+            session.abandon();
+            return null;
+        }
+        return session;
+    }
+
+    final CameraContext context;
+    final ICameraDevice device;
+    final IPreviewerRenderer renderer;
+    final StartupTimings timings = new StartupTimings(true);
+
+    private final int mEngine;
+    private final int mFacing;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final CountDownLatch mShadersLoaded = new CountDownLatch(1);
+    private final FutureTask<EglCore> mEglTask = new FutureTask<>(new Callable<EglCore>() {
+        @Override
+        public EglCore call() throws Exception {
+            return prepareEgl();
+        }
+    });
+    private final Runnable mTimeout = new Runnable() {
+        @Override
+        public void run() {
+            if (sPending == ColdStartSession.this) {
+                Log.w(TAG, "Prewarmed session isn't claimed in " + CLAIM_TIMEOUT_MILLIS + "ms.");
+                sPending = null;
+                abandon();
+            }
+        }
+    };
+
+    /**
+     * 以下字段只在主线程访问
+     */
+    private ICameraDevice.OnCameraReadyListener mTarget;
+    private SurfaceTexture mCameraTexture;
+    private Size mTextureSize;
+    private int mNeedDegrees;
+    private int mOpenState = OPEN_PENDING;
+    private CameraTimings mOpenTimings;
+    private CameraCallback mOpenCallback;
+
+    private ColdStartSession(Context base, int engine, int facing) {
+        mEngine = engine;
+        mFacing = facing;
+        context = new CameraContext(base);
+        // 假定预览视图铺满屏幕, 视图布局后提交实际的尺寸, 只有选中的预览尺寸变化时才会重新打开
+        WindowManager windowManager = (WindowManager) base.getSystemService(
+                Context.WINDOW_SERVICE);
+        DisplayMetrics metrics = base.getResources().getDisplayMetrics();
+        context.edit()
+                .setFacing(facing)
+                .setScreenOrientationDegrees(ScreenOrientationDetector.toDegrees(
+                        windowManager.getDefaultDisplay().getRotation()))
+                .setDesiredSize(Size.of(metrics.widthPixels, metrics.heightPixels))
+                .commit();
+        device = CameraBackends.create(engine, context, this);
+        renderer = new PreviewRenderer(base);
+    }
+
+    @Override
+    public void onCameraReady(@NonNull SurfaceTexture cameraTexture, @NonNull Size textureSize,
+                              int needDegrees) {
+        timings.end(StartupTimings.PHASE_CAMERA_OPEN);
+        if (mTarget != null) {
+            mTarget.onCameraReady(cameraTexture, textureSize, needDegrees);
+            return;
+        }
+        // 视图尚未接管, 保存下来等待接管时重放
+        mCameraTexture = cameraTexture;
+        mTextureSize = textureSize;
+        mNeedDegrees = needDegrees;
+    }
+
+    @Override
+    public void onCompleted(@NonNull CameraTimings openTimings) {
+        mOpenState = OPEN_COMPLETED;
+        mOpenTimings = openTimings;
+        if (mOpenCallback != null) {
+            mOpenCallback.onCompleted(openTimings);
+        }
+    }
+
+    @Override
+    public void onSuperseded() {
+        mOpenState = OPEN_FAILED;
+        if (mOpenCallback != null) {
+            mOpenCallback.onSuperseded();
+        }
+    }
+
+    @Override
+    public void onFailed(@NonNull Throwable error) {
+        mOpenState = OPEN_FAILED;
+        if (mOpenCallback != null) {
+            mOpenCallback.onFailed(error);
+        }
+    }
+
+    /**
+     * @return 预热时创建的 EGL 上下文, 已经不是任何线程的当前上下文
+     */
+    @NonNull
+    Future<EglCore> getEglCore() {
+        return mEglTask;
+    }
+
+    /**
+     * 视图接管之后, 相机就绪的通知转发给 target
+     */
+    void attach(@NonNull ICameraDevice.OnCameraReadyListener target) {
+        mTarget = target;
+        if (mCameraTexture != null) {
+            target.onCameraReady(mCameraTexture, mTextureSize, mNeedDegrees);
+            mCameraTexture = null;
+            mTextureSize = null;
+        }
+    }
+
+    /**
+     * 将预热时打开相机的请求, 作为视图的第一次打开
+     *
+     * @return false 表示预热时打开失败了, 需要重新打开
+     */
+    boolean takeOverOpen(@Nullable final CameraCallback callback) {
+        switch (mOpenState) {
+            case OPEN_PENDING:
+                mOpenCallback = callback;
+                return true;
+            case OPEN_COMPLETED:
+                if (callback != null) {
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onCompleted(mOpenTimings);
+                        }
+                    });
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void launch() {
+        // 1. 相机线程打开相机
+        timings.begin(StartupTimings.PHASE_CAMERA_OPEN);
+        device.open(this);
+        // 2. 后台线程读取着色器源码
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                timings.begin(StartupTimings.PHASE_SHADER_LOAD);
+                try {
+                    PreviewRenderer.preloadShaders(context);
+                } finally {
+                    timings.end(StartupTimings.PHASE_SHADER_LOAD);
+                    mShadersLoaded.countDown();
+                }
+            }
+        });
+        // 3. 预热线程创建 EGL 上下文并编译着色器
+        new Thread(mEglTask, "SCamera Prewarm").start();
+        mMainHandler.postDelayed(mTimeout, CLAIM_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 运行在预热线程
+     */
+    private EglCore prepareEgl() throws InterruptedException {
+        EglCore eglCore = new EglCore(EglCore.EGL_VERSION_3);
+        try {
+            timings.begin(StartupTimings.PHASE_EGL_SETUP);
+            eglCore.initializeOffscreen(null);
+            timings.end(StartupTimings.PHASE_EGL_SETUP);
+            mShadersLoaded.await();
+            timings.begin(StartupTimings.PHASE_SHADER_COMPILE);
+            renderer.onEglContextCreated(eglCore.getContext());
+            timings.end(StartupTimings.PHASE_SHADER_COMPILE);
+            // 交给渲染线程之前, 从当前线程解绑
+            eglCore.detachCurrent();
+            return eglCore;
+        } catch (Throwable e) {
+            eglCore.release();
+            throw e;
+        }
+    }
+
+    private boolean matches(Context viewContext, int engine, int facing) {
+        if (engine != Constants.ENGINE_AUTO && engine != mEngine) {
+            return false;
+        }
+        // 朝向不同时, 视图提交 XML 中的朝向会重新打开相机, 预热没有意义
+        if (facing != mFacing) {
+            return false;
+        }
+        Context base = context.getBaseContext();
+        // 以 Application 预热时没有绑定生命周期, 可以交给任意的视图
+        if (base == base.getApplicationContext()) {
+            return true;
+        }
+        // 否则只能交给同一个 Activity 中的视图, CameraX 绑定了它的生命周期
+        Context current = viewContext;
+        while (current != null) {
+            if (current == base) {
+                return true;
+            }
+            current = current instanceof ContextWrapper
+                    ? ((ContextWrapper) current).getBaseContext() : null;
+        }
+        return false;
+    }
+
+    /**
+     * 关闭相机, 释放 EGL 上下文
+     */
+    private void abandon() {
+        device.close();
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mEglTask.get().release();
+                } catch (Throwable e) {
+                    // ignore.
+                }
+            }
+        });
+    }
+
+}
@@ -5,17 +5,18 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.SurfaceTexture;
-import android.os.Build;
+import android.os.Looper;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.widget.FrameLayout;
 
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.lifecycle.LifecycleOwner;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Executor;
 
 /**
  * The facade handle device interaction with view.
@@ -25,7 +26,10 @@ import java.lang.annotation.RetentionPolicy;
  * @since 2019-08-05
  */
 public class SCameraView extends FrameLayout implements
-        ScreenOrientationDetector.OnDisplayChangedListener, ICameraDevice.OnCameraReadyListener {
+        ScreenOrientationDetector.OnDisplayChangedListener, ICameraDevice.OnCameraReadyListener,
+        CameraContext.OnConfigChangedListener {
+
+    private static final String TAG = SCameraView.class.getSimpleName();
 
     /**
      * The camera device faces the opposite direction as the device's screen.
@@ -77,26 +81,135 @@ public class SCameraView extends FrameLayout implements
     @interface Flash {
     }
 
+    /**
+     * Keeps the fps range chosen by the device.
+     */
+    public static final int PROFILE_DEFAULT = Constants.PROFILE_DEFAULT;
+
+    /**
+     * Fixed high fps range, keeps a steady frame interval for low latency.
+     */
+    public static final int PROFILE_LOW_LATENCY = Constants.PROFILE_LOW_LATENCY;
+
+    /**
+     * Variable fps range, allows longer exposure in low light.
+     */
+    public static final int PROFILE_LOW_LIGHT = Constants.PROFILE_LOW_LIGHT;
+
+    /**
+     * Capped low fps range for battery-bound analysis.
+     */
+    public static final int PROFILE_POWER_SAVING = Constants.PROFILE_POWER_SAVING;
+
+    /**
+     * The profile decides the preview fps range
+     */
+    @IntDef({PROFILE_DEFAULT, PROFILE_LOW_LATENCY, PROFILE_LOW_LIGHT, PROFILE_POWER_SAVING})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface CaptureProfile {
+    }
+
+    /**
+     * Chooses the camera engine automatically, by the measurements of this device if at least
+     * two engines are measured, see {@link #seedEngineMeasurement}, otherwise CameraX if
+     * available.
+     */
+    public static final int ENGINE_AUTO = Constants.ENGINE_AUTO;
+
+    /**
+     * Drives the camera with the deprecated {@link android.hardware.Camera} API.
+     */
+    public static final int ENGINE_CAMERA1 = Constants.ENGINE_CAMERA1;
+
+    /**
+     * Drives the camera with the {@link android.hardware.camera2} API.
+     */
+    public static final int ENGINE_CAMERA2 = Constants.ENGINE_CAMERA2;
+
+    /**
+     * Drives the camera with the CameraX API.
+     */
+    public static final int ENGINE_CAMERAX = Constants.ENGINE_CAMERAX;
+
+    /**
+     * The engine to drive camera device
+     */
+    @IntDef({ENGINE_AUTO, ENGINE_CAMERA1, ENGINE_CAMERA2, ENGINE_CAMERAX})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface Engine {
+    }
+
+    /**
+     * Draws every camera frame as soon as it arrives, regardless of the display vsync.
+     */
+    public static final int PACING_IMMEDIATE = Constants.PACING_IMMEDIATE;
+
+    /**
+     * Draws the latest camera frame on the first vsync after it arrives.
+     */
+    public static final int PACING_LOW_LATENCY = Constants.PACING_LOW_LATENCY;
+
+    /**
+     * Shows every camera frame for the same number of vsyncs, e.g. 3 vsyncs for 30 fps on a
+     * 90 Hz display, at the cost of up to one frame interval of latency.
+     */
+    public static final int PACING_SMOOTH = Constants.PACING_SMOOTH;
+
+    /**
+     * The pacing to draw camera frames on screen
+     */
+    @IntDef({PACING_IMMEDIATE, PACING_LOW_LATENCY, PACING_SMOOTH})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface RenderPacing {
+    }
+
     /**
      * Control camera device
      */
-    private final ICameraDevice mDevice;
+    private ICameraDevice mDevice;
 
     /**
      * The context holder data
      */
-    private CameraContext mContext;
+    private final CameraContext mContext;
 
     /**
      * Control preview.
      */
-    private final IPreviewer mPreviewer;
+    private final Previewer mPreviewer;
 
     /**
      * Control display rotate
      */
     private final ScreenOrientationDetector mScreenOrientationDetector;
 
+    /**
+     * The startup timings until the first frame drawn.
+     */
+    private final StartupTimings mStartupTimings;
+
+    /**
+     * The prewarmed session whose open request hasn't been taken over by startPreview.
+     */
+    private ColdStartSession mColdStart;
+
+    private OnFirstFrameListener mFirstFrameListener;
+
+    private OnFacingSwitchedListener mFacingSwitchedListener;
+
+    private CameraCallback mParametersCallback;
+
+    /**
+     * Whether the preview is frozen for a facing switch, until the new camera is ready.
+     */
+    private boolean mSwitchingFacing;
+
+    /**
+     * The latest camera texture size and rotation, to recompute the matrix after layout.
+     */
+    private Size mTextureSize;
+    private int mNeedDegrees;
+
     public SCameraView(@NonNull Context context) {
         this(context, null);
     }
@@ -107,32 +220,117 @@ public class SCameraView extends FrameLayout implements
 
     public SCameraView(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        this.mContext = new CameraContext(context);
-        this.mPreviewer = new Previewer(context, this);
-        this.mScreenOrientationDetector = new ScreenOrientationDetector(context, this);
-        if (Build.VERSION.SDK_INT > 21 && context instanceof LifecycleOwner) {
-            this.mDevice = new CameraXDevice(mContext, this);
-//            this.mDevice = new Camera1Device(mContext, this);
-        } else {
-            this.mDevice = new Camera1Device(mContext, this);
-        }
         // Attributes
         TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SCameraView, defStyleAttr,
                 R.style.Widget_CameraView);
-        // set adjust view bounds
-        setAdjustViewBounds(a.getBoolean(R.styleable.SCameraView_android_adjustViewBounds, false));
-        // set facing
-        setFacing(a.getInt(R.styleable.SCameraView_facing, FACING_BACK));
-        // set aspect ratio
+        int engine = a.getInt(R.styleable.SCameraView_engine, ENGINE_AUTO);
+        int facing = a.getInt(R.styleable.SCameraView_facing, FACING_BACK);
+        // 接管预热的相机设备、渲染器与 EGL 上下文
+        ColdStartSession session = isInEditMode() ? null
+                : ColdStartSession.claim(context, engine, facing);
+        Previewer previewer;
+        if (session != null) {
+            this.mContext = session.context;
+            this.mStartupTimings = session.timings;
+            previewer = new Previewer(context, this, session.renderer);
+            previewer.adoptPrewarmedEgl(session.getEglCore());
+            this.mDevice = session.device;
+            this.mColdStart = session;
+        } else {
+            this.mContext = new CameraContext(context);
+            this.mStartupTimings = new StartupTimings(false);
+            previewer = new Previewer(context, this);
+            this.mDevice = CameraBackends.create(engine, mContext, this);
+            preloadShaders(context.getApplicationContext(), mStartupTimings);
+        }
+        previewer.trackStartup(mStartupTimings, new Runnable() {
+            @Override
+            public void run() {
+                Log.i(TAG, "First frame drawn: " + mStartupTimings);
+                if (mFirstFrameListener != null) {
+                    mFirstFrameListener.onFirstFrame(mStartupTimings);
+                }
+            }
+        });
+        this.mPreviewer = previewer;
+        this.mScreenOrientationDetector = new ScreenOrientationDetector(context, this);
+        this.mContext.setOnConfigChangedListener(this);
+        if (session != null) {
+            session.attach(this);
+        }
         String aspectRatio = a.getString(R.styleable.SCameraView_aspectRatio);
-        setAspectRatio(aspectRatio != null ? AspectRatio.parse(aspectRatio) : AspectRatio.DEFAULT);
-        // set auto focus
-        setAutoFocus(a.getBoolean(R.styleable.SCameraView_autoFocus, true));
-        // set flash mode
-        setFlash(a.getInt(R.styleable.SCameraView_flash, Constants.FLASH_AUTO));
+        // 所有的属性合并为一次提交
+        edit()
+                // set adjust view bounds
+                .setAdjustViewBounds(a.getBoolean(
+                        R.styleable.SCameraView_android_adjustViewBounds, false))
+                // set facing
+                .setFacing(facing)
+                // set aspect ratio
+                .setAspectRatio(aspectRatio != null ? AspectRatio.parse(aspectRatio)
+                        : AspectRatio.DEFAULT)
+                // set auto focus
+                .setAutoFocus(a.getBoolean(R.styleable.SCameraView_autoFocus, true))
+                // set flash mode
+                .setFlashMode(a.getInt(R.styleable.SCameraView_flash, Constants.FLASH_AUTO))
+                // set capture profile
+                .setCaptureProfile(a.getInt(R.styleable.SCameraView_captureProfile,
+                        PROFILE_DEFAULT))
+                .commit();
         a.recycle();
     }
 
+    /**
+     * Prewarms the camera startup before the view is created, with the back camera and
+     * {@link #ENGINE_AUTO}, see {@link #prewarm(Context, int, int)}.
+     */
+    public static void prewarm(@NonNull Context context) {
+        prewarm(context, ENGINE_AUTO, FACING_BACK);
+    }
+
+    /**
+     * Prewarms the camera startup before the view is created, typically called from
+     * {@link android.app.Application#onCreate} or {@link Activity#onCreate} before
+     * {@link Activity#setContentView}. Must be called on main thread.
+     * <p>
+     * The camera opening, the EGL context creation, the shader loading and compiling run in
+     * parallel, the next created view with a matching engine takes them over, and its first
+     * {@link #startPreview()} completes with the prewarmed opening. The view must be created in
+     * the given activity, or any activity if prewarmed with the application context. The
+     * prewarm assumes the view fills the display, a view of another size reopens the camera after
+     * layout. The prewarmed camera is closed if no view takes it over in 5 seconds.
+     * <p>
+     * With the application context, {@link #ENGINE_CAMERAX} isn't available since it binds to
+     * the activity lifecycle.
+     *
+     * @param context The activity or the application context.
+     * @param engine  The camera engine, e.g. {@link #ENGINE_AUTO}.
+     * @param facing  The camera facing.
+     */
+    public static void prewarm(@NonNull Context context, @Engine int engine,
+                               @Facing int facing) {
+        ColdStartSession.start(context, engine, facing);
+    }
+
+    /**
+     * Seeds a measurement of an engine on this device for {@link #ENGINE_AUTO}, e.g. from a
+     * benchmark run. Running with an explicit engine records its measurements automatically.
+     * <p>
+     * Measurements are smoothed and reset after a system update.
+     *
+     * @param engine     The measured engine, e.g. {@link #ENGINE_CAMERA1}.
+     * @param openMillis The latency to open the camera and start the preview.
+     * @param fps        The achieved preview fps, 0 if unknown.
+     */
+    public static void seedEngineMeasurement(@NonNull Context context, @Engine int engine,
+                                             long openMillis, float fps) {
+        BackendPolicy policy = BackendPolicy.getInstance(context);
+        policy.recordOpenMillis(engine, openMillis);
+        if (fps > 0) {
+            policy.recordFps(engine, fps);
+        }
+    }
+
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
@@ -151,21 +349,47 @@ public class SCameraView extends FrameLayout implements
 
     @Override
     public void onDisplayOrientationChanged(int displayOrientation) {
-        mContext.setScreenOrientationDegrees(displayOrientation);
-        mDevice.notifyScreenOrientationChanged();
+        mContext.edit().setScreenOrientationDegrees(displayOrientation).commit();
+    }
+
+    @Override
+    public void onConfigChanged(CameraConfig oldConfig, CameraConfig newConfig, int changes) {
+        int layoutChanges = CameraConfig.CHANGED_ASPECT_RATIO
+                | CameraConfig.CHANGED_ADJUST_VIEW_BOUNDS;
+        if ((changes & layoutChanges) != 0) {
+            runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    requestLayout();
+                }
+            });
+        }
+        // 切换镜头期间保持旧镜头的最后一帧, 新镜头的第一帧上屏后解冻
+        if ((changes & CameraConfig.CHANGED_FACING) != 0 && mDevice.isCameraOpened()) {
+            final int facing = newConfig.getFacing();
+            runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    freezeForFacingSwitch(facing);
+                }
+            });
+        }
+        if ((changes & (CameraConfig.CHANGES_STREAM | CameraConfig.CHANGES_PARAMETERS)) != 0) {
+            mDevice.notifyConfigChanged();
+        }
     }
 
     @Override
     public void onCameraReady(@NonNull SurfaceTexture cameraTexture, @NonNull Size textureSize, int needDegrees) {
+        mStartupTimings.end(StartupTimings.PHASE_CAMERA_OPEN);
+        mTextureSize = textureSize;
+        mNeedDegrees = needDegrees;
         mPreviewer.setDataSource(cameraTexture);
-        mPreviewer.getRenderer().resetMatrix();
-        mPreviewer.getRenderer().rotate(needDegrees);
-        mPreviewer.getRenderer().centerCrop(
-                mScreenOrientationDetector.isLandscape(),
-                mPreviewer.getSize(),
-                textureSize
-        );
-        mPreviewer.getRenderer().transformMatrix();
+        updatePreviewMatrix();
+        if (mSwitchingFacing) {
+            mSwitchingFacing = false;
+            mPreviewer.thawOnNextFrame();
+        }
     }
 
     @Override
@@ -175,7 +399,7 @@ public class SCameraView extends FrameLayout implements
             return;
         }
         // Handle android:adjustViewBounds
-        if (mContext.isAdjustViewBounds()) {
+        if (getAdjustViewBounds()) {
             final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
             final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
             // 宽为精确测量
@@ -230,8 +454,11 @@ public class SCameraView extends FrameLayout implements
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
-        mContext.setDesiredSize(mPreviewer.getSize());
-        mDevice.notifyDesiredSizeChanged();
+        // 预热的相机可能在布局之前就绪, 视图尺寸确定之后重新计算裁剪
+        if (changed && mTextureSize != null) {
+            updatePreviewMatrix();
+        }
+        mContext.edit().setDesiredSize(mPreviewer.getSize()).commit();
     }
 
     /**
@@ -239,12 +466,25 @@ public class SCameraView extends FrameLayout implements
      * {@link Activity#onResume}.
      */
     public void startPreview() {
-        post(new Runnable() {
-            @Override
-            public void run() {
-                mDevice.open();
-            }
-        });
+        startPreview(null);
+    }
+
+    /**
+     * Open a camera device and start showing camera preview on the camera thread.
+     * <p>
+     * The request supersedes the pending open/close request which hasn't run yet.
+     *
+     * @param callback The callback to receive the result and timings, invoked on main thread.
+     */
+    public void startPreview(@Nullable CameraCallback callback) {
+        // 第一次打开由预热的请求完成
+        ColdStartSession session = mColdStart;
+        mColdStart = null;
+        if (session != null && session.takeOverOpen(callback)) {
+            return;
+        }
+        mStartupTimings.begin(StartupTimings.PHASE_CAMERA_OPEN);
+        mDevice.open(callback);
     }
 
     /**
@@ -252,17 +492,303 @@ public class SCameraView extends FrameLayout implements
      * {@link Activity#onPause}
      */
     public void stopPreview() {
-        mDevice.close();
+        stopPreview(null);
+    }
+
+    /**
+     * Stop camera preview and close the device on the camera thread.
+     * <p>
+     * The request supersedes the pending open/close request which hasn't run yet.
+     *
+     * @param callback The callback to receive the result and timings, invoked on main thread.
+     */
+    public void stopPreview(@Nullable CameraCallback callback) {
+        mColdStart = null;
+        mDevice.close(callback);
     }
 
     /**
      * 获取照片
+     * <p>
+     * 截取预览视图的画面, 分辨率与视图一致, 需要在主线程调用.
      */
     @Nullable
     public Bitmap takePicture() {
         return mPreviewer.getBitmap();
     }
 
+    /**
+     * Takes a full resolution JPEG picture asynchronously, the preview restarts automatically
+     * after capturing.
+     * <p>
+     * Only supported by the Camera1 engine, other engines report
+     * {@link UnsupportedOperationException} to {@link OnPictureTakenListener#onPictureFailed}.
+     * <p>
+     * With {@link #setZeroShutterLag} enabled, all engines encode the kept preview frame closest
+     * to this call instead, at the frame stream resolution.
+     *
+     * @param listener The listener to receive the picture, invoked on background thread.
+     */
+    public void takePicture(@NonNull OnPictureTakenListener listener) {
+        mDevice.takePicture(listener);
+    }
+
+    /**
+     * Captures a burst of frames from the live frame stream, JPEG encoding is pipelined across a
+     * worker pool so that the capture rate isn't bound by the encoding time.
+     * <p>
+     * Frames have the frame stream resolution, the rate is bound by the preview fps, see
+     * {@link #setCaptureProfile}. The stats of the capture fps, the sustained fps and the
+     * per-frame encode latency are reported to {@link OnBurstListener#onBurstCompleted}.
+     *
+     * @param count          The number of frames to capture.
+     * @param intervalMillis The minimum interval between frames, 0 to take every frame.
+     * @param listener       The listener to receive the pictures, invoked on encoder threads.
+     */
+    public void captureBurst(int count, long intervalMillis, @NonNull OnBurstListener listener) {
+        mDevice.captureBurst(count, intervalMillis, listener);
+    }
+
+    /**
+     * Keeps the latest preview frames in a memory bounded ring, so that
+     * {@link #takePicture(OnPictureTakenListener)} returns the frame closest to the shutter press
+     * without waiting for a capture round trip. JPEG encoding runs on a background thread.
+     * <p>
+     * Frames are matched by their sensor timestamps on Camera2 and CameraX. Camera1 doesn't
+     * report one for preview callbacks, so the timestamp there is the callback time minus an
+     * estimated delay of two frame intervals, and the match can be off by about a frame.
+     * <p>
+     * It turns on the frame stream, which costs a copy per frame.
+     *
+     * @param memoryCapBytes The memory cap of the kept frames, e.g. 3 frames of 1080p NV21 need
+     *                       about 9MB, 0 to disable.
+     */
+    public void setZeroShutterLag(long memoryCapBytes) {
+        mDevice.setZeroShutterLag(memoryCapBytes);
+    }
+
+    /**
+     * Replaces the camera device with a fake one which doesn't need camera hardware, it generates
+     * patterns or replays a raw NV21 file, for benchmarking the preview and the frame stream.
+     * <p>
+     * Call it before {@link #startPreview()}, {@link #setPreviewFrameListener} and
+     * {@link #setZeroShutterLag}, the previous device is closed.
+     *
+     * @param options The options of the fake camera.
+     */
+    public void useFakeCamera(@NonNull FakeCameraOptions options) {
+        mColdStart = null;
+        mDevice.close();
+        mDevice = new FakeCameraDevice(mContext, this, options);
+        mDevice.setParametersCallback(mParametersCallback);
+    }
+
+    /**
+     * Sets the listener to be notified when the first camera frame is drawn on screen, with the
+     * time spent in each startup phase. Notified at once if the first frame was already drawn.
+     *
+     * @param listener The listener, invoked on main thread.
+     */
+    public void setOnFirstFrameListener(@Nullable OnFirstFrameListener listener) {
+        mFirstFrameListener = listener;
+        if (listener != null && mStartupTimings.getTimeToFirstFrameMillis() >= 0) {
+            listener.onFirstFrame(mStartupTimings);
+        }
+    }
+
+    /**
+     * Gets the startup timings, from {@link #prewarm} or the view created to the first camera
+     * frame drawn on screen.
+     *
+     * @return The startup timings, phases in progress report -1.
+     */
+    @NonNull
+    public StartupTimings getStartupTimings() {
+        return mStartupTimings;
+    }
+
+    /**
+     * Sets the listener to be notified when a facing switch completes, with the gap until the
+     * first frame of the new camera is drawn. The last frame of the previous camera stays on
+     * screen during the switch.
+     *
+     * @param listener The listener, invoked on main thread.
+     */
+    public void setOnFacingSwitchedListener(@Nullable OnFacingSwitchedListener listener) {
+        mFacingSwitchedListener = listener;
+    }
+
+    /**
+     * Sets the listener to receive NV21 preview frames.
+     * <p>
+     * Frames are backed by a fixed pool of preallocated buffers, the listener must call
+     * {@link PreviewFrame#release()} for every frame, or the camera will run out of buffers
+     * and drop frames.
+     *
+     * @param listener The frame listener, {@code null} to stop the frame stream.
+     */
+    public void setPreviewFrameListener(@Nullable OnPreviewFrameListener listener) {
+        mDevice.setPreviewFrameListener(listener);
+    }
+
+    /**
+     * Sets the listener to receive NV21 preview frames on the executor.
+     * <p>
+     * Frames are delivered one by one, if the listener is still busy when new frames arrive, only
+     * the latest one is kept and the others are released and counted by
+     * {@link #getSkippedFrameCount()}, so a slow listener never stalls the preview.
+     *
+     * @param executor     The executor to run the listener.
+     * @param analysisSize The desired frame resolution, {@code null} to follow the preview. Only
+     *                     the CameraX engine supports a resolution different from the preview.
+     * @param listener     The frame listener, {@code null} to stop the frame stream.
+     */
+    public void setPreviewFrameListener(@NonNull Executor executor, @Nullable Size analysisSize,
+                                        @Nullable OnPreviewFrameListener listener) {
+        mDevice.setPreviewFrameListener(executor, analysisSize, listener);
+    }
+
+    /**
+     * Gets the number of preview frames that were replaced by newer ones before the listener
+     * set with an executor could handle them.
+     *
+     * @return The skipped frame count.
+     */
+    public long getSkippedFrameCount() {
+        return mDevice.getSkippedFrameCount();
+    }
+
+    /**
+     * Gets the number of preview frames that were dropped by the frame stream.
+     *
+     * @return The dropped frame count.
+     */
+    public long getDroppedFrameCount() {
+        return mDevice.getDroppedFrameCount();
+    }
+
+    /**
+     * Sets how camera frames are paced on screen. The vsync aligned pacings pick which
+     * {@link android.view.Choreographer} callback draws each frame, the pacing comes only from
+     * that choice.
+     *
+     * @param pacing The render pacing, e.g. {@link #PACING_SMOOTH}.
+     */
+    public void setRenderPacing(@RenderPacing int pacing) {
+        mPreviewer.setRenderPacing(pacing);
+    }
+
+    /**
+     * Gets the render pacing.
+     *
+     * @return The render pacing, {@link #PACING_IMMEDIATE} by default.
+     */
+    @RenderPacing
+    public int getRenderPacing() {
+        return mPreviewer.getRenderPacing();
+    }
+
+    /**
+     * Gets the number of camera frames that were replaced by newer ones before they could be
+     * drawn on screen. The preview always draws the latest frame, so a slow draw skips frames
+     * instead of adding latency.
+     *
+     * @return The skipped draw count.
+     */
+    public long getSkippedDrawCount() {
+        return mPreviewer.getSkippedFrameCount();
+    }
+
+    /**
+     * Appends a filter to the end of the preview filter chain. Filters can be added and removed
+     * from any thread, and take effect on the next frame. Adjacent {@link PixelFilter}s are fused
+     * into a single draw.
+     *
+     * @param filter The filter to append.
+     */
+    public void addFilter(@NonNull PreviewFilter filter) {
+        requirePreviewRenderer().addFilter(filter);
+    }
+
+    /**
+     * Removes a filter from the preview filter chain, takes effect on the next frame.
+     *
+     * @param filter The filter to remove.
+     * @return {@code true} if the filter was in the chain.
+     */
+    public boolean removeFilter(@NonNull PreviewFilter filter) {
+        return requirePreviewRenderer().removeFilter(filter);
+    }
+
+    /**
+     * Removes all filters from the preview filter chain, takes effect on the next frame.
+     */
+    public void clearFilters() {
+        requirePreviewRenderer().clearFilters();
+    }
+
+    /**
+     * Declares a consumer of the offscreen preview texture, such as an effect, a recorder or a
+     * snapshot reading {@link IPreviewerRenderer#getPreviewerTextureId()}. Each call must be
+     * paired with {@link #releasePreviewerTexture()}.
+     * <p>
+     * Behavior change: the default renderer only writes the final frame to the offscreen texture
+     * while the texture is acquired. Otherwise it draws straight to the window, and
+     * {@code getPreviewer().getRenderer().getPreviewerTextureId()} returns 0. Renderers set
+     * through {@link IPreviewer#setRender} are not affected.
+     */
+    public void acquirePreviewerTexture() {
+        IPreviewerRenderer renderer = mPreviewer.getRenderer();
+        if (renderer instanceof PreviewRenderer) {
+            ((PreviewRenderer) renderer).acquirePreviewerTexture();
+        }
+    }
+
+    /**
+     * Releases the offscreen preview texture acquired by {@link #acquirePreviewerTexture()}.
+     * The default renderer goes back to drawing straight to the window once every consumer has
+     * released it.
+     */
+    public void releasePreviewerTexture() {
+        IPreviewerRenderer renderer = mPreviewer.getRenderer();
+        if (renderer instanceof PreviewRenderer) {
+            ((PreviewRenderer) renderer).releasePreviewerTexture();
+        }
+    }
+
+    /**
+     * Gets the number of times that all frame buffers were held by the listener, during which
+     * the camera can't deliver any frame.
+     *
+     * @return The frame pool exhausted count.
+     */
+    public long getFramePoolExhaustedCount() {
+        return mDevice.getFramePoolExhaustedCount();
+    }
+
+    /**
+     * Starts a transaction to change several camera settings at once.
+     * <p>
+     * All the changes take effect as one snapshot on {@link CameraConfig.Editor#commit()},
+     * the camera is reconfigured at most once per commit.
+     *
+     * @return The editor of camera config.
+     */
+    @NonNull
+    public CameraConfig.Editor edit() {
+        return mContext.edit();
+    }
+
+    /**
+     * Gets the latest committed camera config.
+     *
+     * @return The immutable config snapshot.
+     */
+    @NonNull
+    public CameraConfig getConfig() {
+        return mContext.getConfig();
+    }
+
     /**
      * Chooses camera by the direction it faces.
      *
@@ -270,8 +796,7 @@ public class SCameraView extends FrameLayout implements
      *               {@link #FACING_FRONT}.
      */
     public void setFacing(@Facing int facing) {
-        mContext.setFacing(facing);
-        mDevice.notifyFacingChanged();
+        edit().setFacing(facing).commit();
     }
 
     /**
@@ -280,12 +805,7 @@ public class SCameraView extends FrameLayout implements
      * @param ratio The {@link AspectRatio} to be set.
      */
     public void setAspectRatio(@NonNull AspectRatio ratio) {
-        if (mContext.getAspectRatio().equals(ratio)) {
-            return;
-        }
-        mContext.setAspectRatio(ratio);
-        mDevice.notifyAspectRatioChanged();
-        requestLayout();
+        edit().setAspectRatio(ratio).commit();
     }
 
     /**
@@ -296,8 +816,7 @@ public class SCameraView extends FrameLayout implements
      *                  disable it.
      */
     public void setAutoFocus(boolean autoFocus) {
-        mContext.setAutoFocus(autoFocus);
-        mDevice.notifyAutoFocusChanged();
+        edit().setAutoFocus(autoFocus).commit();
     }
 
     /**
@@ -306,8 +825,86 @@ public class SCameraView extends FrameLayout implements
      * @param flash The desired flash mode.
      */
     public void setFlash(@Flash int flash) {
-        mContext.setFlashMode(flash);
-        mDevice.notifyFlashModeChanged();
+        edit().setFlashMode(flash).commit();
+    }
+
+    /**
+     * Sets the capture profile, which resolves against the fps ranges supported by the current
+     * camera. Camera1 and Camera2 apply it without reopening the camera.
+     *
+     * @param profile The desired capture profile.
+     */
+    public void setCaptureProfile(@CaptureProfile int profile) {
+        edit().setCaptureProfile(profile).commit();
+    }
+
+    /**
+     * Sets the zoom level. Only supported by the Camera1 engine.
+     *
+     * @param zoom The zoom level, from 0 (no zoom) to 1 (the max zoom of the camera).
+     */
+    public void setZoom(float zoom) {
+        edit().setZoom(zoom).commit();
+    }
+
+    /**
+     * Sets the exposure compensation. Only supported by the Camera1 engine.
+     *
+     * @param ev The exposure compensation in EV, clamped to the range supported by the camera.
+     */
+    public void setExposureCompensation(float ev) {
+        edit().setExposureCompensation(ev).commit();
+    }
+
+    /**
+     * Focuses and meters on the point of the view.
+     *
+     * @see #focusAt(float, float, OnFocusListener)
+     */
+    public void focusAt(float x, float y) {
+        focusAt(x, y, null);
+    }
+
+    /**
+     * Focuses and meters on the point of the view, e.g. where the user tapped. The camera
+     * isn't reopened, and returns to the configured focus mode a few seconds later.
+     * <p>
+     * The request jumps ahead of the pending commands on the camera thread, the time reported
+     * to the listener is from this call to the focus scan converged.
+     *
+     * @param x        The x of the point in the coordinates of this view.
+     * @param y        The y of the point in the coordinates of this view.
+     * @param listener The listener to receive the focus result, invoked on main thread.
+     */
+    public void focusAt(float x, float y, @Nullable OnFocusListener listener) {
+        Size viewSize = mPreviewer.getSize();
+        if (mTextureSize == null || viewSize.getWidth() == 0 || viewSize.getHeight() == 0) {
+            if (listener != null) {
+                listener.onFocusFailed(new IllegalStateException("Preview is not ready."));
+            }
+            return;
+        }
+        // 撤销 centerCrop 的裁剪, 与 PreviewRenderer 的投影一致, 旋转与镜像交由相机设备撤销
+        float[] visible = PreviewRenderer.calcVisibleScale(mScreenOrientationDetector.isLandscape(),
+                viewSize, mTextureSize);
+        float displayX = (2 * x / viewSize.getWidth() - 1) * visible[0];
+        float displayY = (2 * y / viewSize.getHeight() - 1) * visible[1];
+        mDevice.focusAt(displayX, displayY, listener);
+    }
+
+    /**
+     * Sets the callback to receive the timings of the parameter updates, e.g. flash mode, zoom.
+     * <p>
+     * Updates are applied on the camera thread, all the commits arriving before the camera
+     * thread gets to them are applied at once. {@link CameraTimings#PHASE_QUEUE} is the time
+     * waiting for the camera thread, {@link CameraTimings#PHASE_CONFIGURE} is the time applying
+     * the combined update, e.g. {@code Camera.setParameters}.
+     *
+     * @param callback The callback, invoked on main thread.
+     */
+    public void setOnParametersAppliedListener(@Nullable CameraCallback callback) {
+        mParametersCallback = callback;
+        mDevice.setParametersCallback(callback);
     }
 
     /**
@@ -315,10 +912,7 @@ public class SCameraView extends FrameLayout implements
      *                         preserve the aspect ratio of camera.
      */
     public void setAdjustViewBounds(boolean adjustViewBounds) {
-        if (mContext.isAdjustViewBounds() != adjustViewBounds) {
-            mContext.setAdjustViewBounds(adjustViewBounds);
-            requestLayout();
-        }
+        edit().setAdjustViewBounds(adjustViewBounds).commit();
     }
 
     /**
@@ -327,7 +921,7 @@ public class SCameraView extends FrameLayout implements
      * @return The camera facing.
      */
     public int getFacing() {
-        return mContext.getFacing();
+        return mContext.getConfig().getFacing();
     }
 
     /**
@@ -337,7 +931,7 @@ public class SCameraView extends FrameLayout implements
      */
     @NonNull
     public AspectRatio getAspectRatio() {
-        return mContext.getAspectRatio();
+        return mContext.getConfig().getAspectRatio();
     }
 
     /**
@@ -347,7 +941,7 @@ public class SCameraView extends FrameLayout implements
      * disabled, or if it is not supported by the current camera.
      */
     public boolean getAutoFocus() {
-        return mContext.isAutoFocus();
+        return mContext.getConfig().isAutoFocus();
     }
 
     /**
@@ -357,7 +951,34 @@ public class SCameraView extends FrameLayout implements
      */
     public int getFlash() {
         //noinspection WrongConstant
-        return mContext.getFlashMode();
+        return mContext.getConfig().getFlashMode();
+    }
+
+    /**
+     * Gets the current capture profile.
+     *
+     * @return The current capture profile.
+     */
+    public int getCaptureProfile() {
+        return mContext.getConfig().getCaptureProfile();
+    }
+
+    /**
+     * Gets the current zoom level.
+     *
+     * @return The zoom level, from 0 to 1.
+     */
+    public float getZoom() {
+        return mContext.getConfig().getZoom();
+    }
+
+    /**
+     * Gets the current exposure compensation.
+     *
+     * @return The exposure compensation in EV.
+     */
+    public float getExposureCompensation() {
+        return mContext.getConfig().getExposureCompensation();
     }
 
     /**
@@ -366,11 +987,60 @@ public class SCameraView extends FrameLayout implements
      * @return {@code true} if the adjustViewBounds is enabled. {@code false} if it is disabled
      */
     public boolean getAdjustViewBounds() {
-        return mContext.getAdjustViewBounds();
+        return mContext.getConfig().isAdjustViewBounds();
+    }
+
+    private void freezeForFacingSwitch(final int facing) {
+        mSwitchingFacing = true;
+        mPreviewer.freezeFrame(new GLTextureView.OnThawListener() {
+            @Override
+            public void onThawed(long frozenMillis) {
+                Log.i(TAG, "Facing switched to " + facing + ", gap = " + frozenMillis + "ms");
+                if (mFacingSwitchedListener != null) {
+                    mFacingSwitchedListener.onFacingSwitched(facing, frozenMillis);
+                }
+            }
+        });
+    }
+
+    private void runOnMainThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            post(runnable);
+        }
+    }
+
+    private void updatePreviewMatrix() {
+        mPreviewer.getRenderer().resetMatrix();
+        mPreviewer.getRenderer().rotate(mNeedDegrees);
+        mPreviewer.getRenderer().centerCrop(
+                mScreenOrientationDetector.isLandscape(),
+                mPreviewer.getSize(),
+                mTextureSize
+        );
+        mPreviewer.getRenderer().transformMatrix();
+    }
+
+    /**
+     * 着色器源码的读取不依赖 EGL 上下文, 在视图创建时提前在后台读取
+     */
+    private static void preloadShaders(final Context context, final StartupTimings timings) {
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                timings.begin(StartupTimings.PHASE_SHADER_LOAD);
+                PreviewRenderer.preloadShaders(context);
+                timings.end(StartupTimings.PHASE_SHADER_LOAD);
+            }
+        });
     }
 
     /**
      * Gets the previewer.
+     * <p>
+     * The default renderer's {@link IPreviewerRenderer#getPreviewerTextureId()} returns 0 unless
+     * the offscreen texture is acquired through {@link #acquirePreviewerTexture()}.
      *
      * @return The render view.
      */
@@ -378,4 +1048,13 @@ public class SCameraView extends FrameLayout implements
         return mPreviewer;
     }
 
+    private PreviewRenderer requirePreviewRenderer() {
+        IPreviewerRenderer renderer = mPreviewer.getRenderer();
+        if (!(renderer instanceof PreviewRenderer)) {
+            throw new UnsupportedOperationException("Filters are not supported by "
+                    + renderer.getClass().getName());
+        }
+        return (PreviewRenderer) renderer;
+    }
+
 }
@@ -20,7 +20,6 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import androidx.annotation.NonNull;
-import androidx.collection.SparseArrayCompat;
 
 /**
  * Immutable class for describing proportional relationship between width and height.
@@ -28,8 +27,20 @@ import androidx.collection.SparseArrayCompat;
 public class AspectRatio implements Comparable<AspectRatio>, Parcelable {
 
     public static final AspectRatio DEFAULT = new AspectRatio(4, 3);
-    private final static SparseArrayCompat<SparseArrayCompat<AspectRatio>> sCache
-            = new SparseArrayCompat<>(16);
+    private final static IntPairInterner<AspectRatio> sCache
+            = new IntPairInterner<AspectRatio>(64) {
+
+        @Override
+        boolean matches(AspectRatio value, int x, int y) {
+            return value.mX == x && value.mY == y;
+        }
+
+        @Override
+        AspectRatio create(int x, int y) {
+            return new AspectRatio(x, y);
+        }
+
+    };
 
     private final int mX;
     private final int mY;
@@ -46,21 +57,8 @@ public class AspectRatio implements Comparable<AspectRatio>, Parcelable {
         int gcd = gcd(x, y);
         x /= gcd;
         y /= gcd;
-        SparseArrayCompat<AspectRatio> arrayX = sCache.get(x);
-        if (arrayX == null) {
-            AspectRatio ratio = new AspectRatio(x, y);
-            arrayX = new SparseArrayCompat<>();
-            arrayX.put(y, ratio);
-            sCache.put(x, arrayX);
-            return ratio;
-        } else {
-            AspectRatio ratio = arrayX.get(y);
-            if (ratio == null) {
-                ratio = new AspectRatio(x, y);
-                arrayX.put(y, ratio);
-            }
-            return ratio;
-        }
+        // 可能在相机线程与主线程并发调用, 由无锁的享元表保证线程安全
+        return sCache.intern(x, y);
     }
 
     /**
@@ -0,0 +1,85 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 一次连拍的统计数据
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public final class BurstStats {
+
+    private final long[] mFrameNanos;
+    private final long[] mEncodeNanos;
+    private final long mCompletedNanos;
+
+    /**
+     * @param frameNanos     每一帧的时间戳, 以 {@link System#nanoTime()} 为基准
+     * @param encodeNanos    每一帧的编码耗时
+     * @param completedNanos 最后一帧编码完成的时刻
+     */
+    BurstStats(long[] frameNanos, long[] encodeNanos, long completedNanos) {
+        mFrameNanos = frameNanos;
+        mEncodeNanos = encodeNanos;
+        mCompletedNanos = completedNanos;
+    }
+
+    public int getFrameCount() {
+        return mFrameNanos.length;
+    }
+
+    /**
+     * @return 从第一帧到最后一帧的采集帧率
+     */
+    public float getCaptureFps() {
+        return fps(mFrameNanos.length - 1, mFrameNanos[mFrameNanos.length - 1] - mFrameNanos[0]);
+    }
+
+    /**
+     * @return 从第一帧到最后一张 JPEG 编码完成的持续帧率, 包含了编码的耗时
+     */
+    public float getSustainedFps() {
+        return fps(mFrameNanos.length, mCompletedNanos - mFrameNanos[0]);
+    }
+
+    /**
+     * @return 第 index 帧的编码耗时, 单位毫秒
+     */
+    public long getEncodeMillis(int index) {
+        return mEncodeNanos[index] / 1000000;
+    }
+
+    public long getAverageEncodeMillis() {
+        long total = 0;
+        for (long nanos : mEncodeNanos) {
+            total += nanos;
+        }
+        return total / mEncodeNanos.length / 1000000;
+    }
+
+    public long getMaxEncodeMillis() {
+        long max = 0;
+        for (long nanos : mEncodeNanos) {
+            max = Math.max(max, nanos);
+        }
+        return max / 1000000;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BurstStats{frames=" + getFrameCount()
+                + ", captureFps=" + getCaptureFps()
+                + ", sustainedFps=" + getSustainedFps()
+                + ", encode(avg=" + getAverageEncodeMillis() + "ms"
+                + ", max=" + getMaxEncodeMillis() + "ms)"
+                + '}';
+    }
+
+    private static float fps(int frames, long nanos) {
+        return nanos <= 0 ? 0 : frames * 1e9f / nanos;
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 相机指令执行结果的回调, 回调在主线程
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public interface CameraCallback {
+
+    /**
+     * Called when the command is completed.
+     *
+     * @param timings The time spent in each phase.
+     */
+    void onCompleted(@NonNull CameraTimings timings);
+
+    /**
+     * Called when the command is dropped before running, because a newer open or close
+     * request has arrived.
+     */
+    void onSuperseded();
+
+    /**
+     * Called when the command is failed.
+     */
+    void onFailed(@NonNull Throwable error);
+
+}
@@ -0,0 +1,328 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 相机配置的不可变快照
+ * <p>
+ * 通过 {@link Editor} 批量修改, 每次 {@link Editor#commit()} 生成一个新的版本,
+ * 相机设备比对新旧快照, 一次提交最多只触发一次重新配置.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public final class CameraConfig {
+
+    /**
+     * Constants of changes
+     */
+    static final int CHANGED_FACING = 1;
+    static final int CHANGED_ASPECT_RATIO = 1 << 1;
+    static final int CHANGED_AUTO_FOCUS = 1 << 2;
+    static final int CHANGED_FLASH_MODE = 1 << 3;
+    static final int CHANGED_SCREEN_ORIENTATION = 1 << 4;
+    static final int CHANGED_DESIRED_SIZE = 1 << 5;
+    static final int CHANGED_ADJUST_VIEW_BOUNDS = 1 << 6;
+    static final int CHANGED_CAPTURE_PROFILE = 1 << 7;
+    static final int CHANGED_ZOOM = 1 << 8;
+    static final int CHANGED_EXPOSURE_COMPENSATION = 1 << 9;
+
+    /**
+     * 需要重新配置预览流的变更
+     */
+    static final int CHANGES_STREAM = CHANGED_FACING | CHANGED_ASPECT_RATIO
+            | CHANGED_SCREEN_ORIENTATION | CHANGED_DESIRED_SIZE;
+
+    /**
+     * 只需要更新相机参数的变更
+     */
+    static final int CHANGES_PARAMETERS = CHANGED_AUTO_FOCUS | CHANGED_FLASH_MODE
+            | CHANGED_CAPTURE_PROFILE | CHANGED_ZOOM | CHANGED_EXPOSURE_COMPENSATION;
+
+    static final CameraConfig DEFAULT = new CameraConfig(0, AspectRatio.DEFAULT,
+            Constants.FACING_BACK, false, Constants.FLASH_OFF, 0, false, new Size(0, 0),
+            Constants.PROFILE_DEFAULT, 0f, 0f);
+
+    private final long mVersion;
+    private final AspectRatio mAspectRatio;
+    private final int mFacing;
+    private final boolean mAutoFocus;
+    private final int mFlashMode;
+    private final int mScreenOrientationDegrees;
+    private final boolean mAdjustViewBounds;
+    private final Size mDesiredSize;
+    private final int mCaptureProfile;
+    private final float mZoom;
+    private final float mExposureCompensation;
+
+    private CameraConfig(long version, AspectRatio aspectRatio, int facing, boolean autoFocus,
+                         int flashMode, int screenOrientationDegrees, boolean adjustViewBounds,
+                         Size desiredSize, int captureProfile, float zoom,
+                         float exposureCompensation) {
+        mVersion = version;
+        mAspectRatio = aspectRatio;
+        mFacing = facing;
+        mAutoFocus = autoFocus;
+        mFlashMode = flashMode;
+        mScreenOrientationDegrees = screenOrientationDegrees;
+        mAdjustViewBounds = adjustViewBounds;
+        mDesiredSize = desiredSize;
+        mCaptureProfile = captureProfile;
+        mZoom = zoom;
+        mExposureCompensation = exposureCompensation;
+    }
+
+    /**
+     * @return The version of this snapshot, increased by every effective commit.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    @NonNull
+    public AspectRatio getAspectRatio() {
+        return mAspectRatio;
+    }
+
+    public int getFacing() {
+        return mFacing;
+    }
+
+    public boolean isAutoFocus() {
+        return mAutoFocus;
+    }
+
+    public int getFlashMode() {
+        return mFlashMode;
+    }
+
+    public int getScreenOrientationDegrees() {
+        return mScreenOrientationDegrees;
+    }
+
+    public boolean isAdjustViewBounds() {
+        return mAdjustViewBounds;
+    }
+
+    @NonNull
+    public Size getDesiredSize() {
+        return mDesiredSize;
+    }
+
+    /**
+     * @return The capture profile which decides the preview fps range.
+     */
+    public int getCaptureProfile() {
+        return mCaptureProfile;
+    }
+
+    /**
+     * @return The zoom level, from 0 (no zoom) to 1 (the max zoom of the camera).
+     */
+    public float getZoom() {
+        return mZoom;
+    }
+
+    /**
+     * @return The exposure compensation in EV.
+     */
+    public float getExposureCompensation() {
+        return mExposureCompensation;
+    }
+
+    /**
+     * 比对两个快照
+     *
+     * @return 发生变更的字段, 如 {@link #CHANGED_FACING}
+     */
+    int diff(@NonNull CameraConfig other) {
+        int changes = 0;
+        if (mFacing != other.mFacing) {
+            changes |= CHANGED_FACING;
+        }
+        if (!mAspectRatio.equals(other.mAspectRatio)) {
+            changes |= CHANGED_ASPECT_RATIO;
+        }
+        if (mAutoFocus != other.mAutoFocus) {
+            changes |= CHANGED_AUTO_FOCUS;
+        }
+        if (mFlashMode != other.mFlashMode) {
+            changes |= CHANGED_FLASH_MODE;
+        }
+        if (mScreenOrientationDegrees != other.mScreenOrientationDegrees) {
+            changes |= CHANGED_SCREEN_ORIENTATION;
+        }
+        if (!mDesiredSize.equals(other.mDesiredSize)) {
+            changes |= CHANGED_DESIRED_SIZE;
+        }
+        if (mAdjustViewBounds != other.mAdjustViewBounds) {
+            changes |= CHANGED_ADJUST_VIEW_BOUNDS;
+        }
+        if (mCaptureProfile != other.mCaptureProfile) {
+            changes |= CHANGED_CAPTURE_PROFILE;
+        }
+        if (Float.compare(mZoom, other.mZoom) != 0) {
+            changes |= CHANGED_ZOOM;
+        }
+        if (Float.compare(mExposureCompensation, other.mExposureCompensation) != 0) {
+            changes |= CHANGED_EXPOSURE_COMPENSATION;
+        }
+        return changes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CameraConfig{version=" + mVersion
+                + ", aspectRatio=" + mAspectRatio
+                + ", facing=" + mFacing
+                + ", autoFocus=" + mAutoFocus
+                + ", flashMode=" + mFlashMode
+                + ", screenOrientationDegrees=" + mScreenOrientationDegrees
+                + ", adjustViewBounds=" + mAdjustViewBounds
+                + ", desiredSize=" + mDesiredSize
+                + ", captureProfile=" + mCaptureProfile
+                + ", zoom=" + mZoom
+                + ", exposureCompensation=" + mExposureCompensation
+                + '}';
+    }
+
+    /**
+     * 相机配置的编辑器
+     * <p>
+     * 修改在 {@link #commit()} 时才会生效, 并基于提交时最新的快照合并.
+     */
+    public static final class Editor {
+
+        private final CameraContext mContext;
+        private int mEdited;
+        private AspectRatio mAspectRatio;
+        private int mFacing;
+        private boolean mAutoFocus;
+        private int mFlashMode;
+        private int mScreenOrientationDegrees;
+        private boolean mAdjustViewBounds;
+        private Size mDesiredSize;
+        private int mCaptureProfile;
+        private float mZoom;
+        private float mExposureCompensation;
+
+        Editor(CameraContext context) {
+            mContext = context;
+        }
+
+        @NonNull
+        public Editor setAspectRatio(@NonNull AspectRatio aspectRatio) {
+            mAspectRatio = aspectRatio;
+            mEdited |= CHANGED_ASPECT_RATIO;
+            return this;
+        }
+
+        @NonNull
+        public Editor setFacing(int facing) {
+            mFacing = facing;
+            mEdited |= CHANGED_FACING;
+            return this;
+        }
+
+        @NonNull
+        public Editor setAutoFocus(boolean autoFocus) {
+            mAutoFocus = autoFocus;
+            mEdited |= CHANGED_AUTO_FOCUS;
+            return this;
+        }
+
+        @NonNull
+        public Editor setFlashMode(int flashMode) {
+            mFlashMode = flashMode;
+            mEdited |= CHANGED_FLASH_MODE;
+            return this;
+        }
+
+        @NonNull
+        public Editor setAdjustViewBounds(boolean adjustViewBounds) {
+            mAdjustViewBounds = adjustViewBounds;
+            mEdited |= CHANGED_ADJUST_VIEW_BOUNDS;
+            return this;
+        }
+
+        @NonNull
+        public Editor setCaptureProfile(int captureProfile) {
+            mCaptureProfile = captureProfile;
+            mEdited |= CHANGED_CAPTURE_PROFILE;
+            return this;
+        }
+
+        /**
+         * @param zoom The zoom level, clamped to [0, 1], 1 is the max zoom of the camera.
+         */
+        @NonNull
+        public Editor setZoom(float zoom) {
+            mZoom = Math.max(0f, Math.min(1f, zoom));
+            mEdited |= CHANGED_ZOOM;
+            return this;
+        }
+
+        /**
+         * @param exposureCompensation The exposure compensation in EV, clamped to the range
+         *                             supported by the camera.
+         */
+        @NonNull
+        public Editor setExposureCompensation(float exposureCompensation) {
+            mExposureCompensation = exposureCompensation;
+            mEdited |= CHANGED_EXPOSURE_COMPENSATION;
+            return this;
+        }
+
+        Editor setScreenOrientationDegrees(int screenOrientationDegrees) {
+            mScreenOrientationDegrees = screenOrientationDegrees;
+            mEdited |= CHANGED_SCREEN_ORIENTATION;
+            return this;
+        }
+
+        Editor setDesiredSize(@NonNull Size desiredSize) {
+            mDesiredSize = desiredSize;
+            mEdited |= CHANGED_DESIRED_SIZE;
+            return this;
+        }
+
+        /**
+         * Commits all the changes as one new snapshot.
+         *
+         * @return The latest snapshot, it is the previous one if nothing changed.
+         */
+        @NonNull
+        public CameraConfig commit() {
+            return mContext.commit(this);
+        }
+
+        /**
+         * 将编辑的内容合并到 base 上
+         *
+         * @return 若没有任何变化, 则返回 base 本身
+         */
+        CameraConfig applyTo(CameraConfig base) {
+            CameraConfig result = new CameraConfig(
+                    base.mVersion + 1,
+                    (mEdited & CHANGED_ASPECT_RATIO) != 0 ? mAspectRatio : base.mAspectRatio,
+                    (mEdited & CHANGED_FACING) != 0 ? mFacing : base.mFacing,
+                    (mEdited & CHANGED_AUTO_FOCUS) != 0 ? mAutoFocus : base.mAutoFocus,
+                    (mEdited & CHANGED_FLASH_MODE) != 0 ? mFlashMode : base.mFlashMode,
+                    (mEdited & CHANGED_SCREEN_ORIENTATION) != 0 ? mScreenOrientationDegrees
+                            : base.mScreenOrientationDegrees,
+                    (mEdited & CHANGED_ADJUST_VIEW_BOUNDS) != 0 ? mAdjustViewBounds
+                            : base.mAdjustViewBounds,
+                    (mEdited & CHANGED_DESIRED_SIZE) != 0 ? mDesiredSize : base.mDesiredSize,
+                    (mEdited & CHANGED_CAPTURE_PROFILE) != 0 ? mCaptureProfile
+                            : base.mCaptureProfile,
+                    (mEdited & CHANGED_ZOOM) != 0 ? mZoom : base.mZoom,
+                    (mEdited & CHANGED_EXPOSURE_COMPENSATION) != 0 ? mExposureCompensation
+                            : base.mExposureCompensation
+            );
+            return result.diff(base) == 0 ? base : result;
+        }
+
+    }
+
+}
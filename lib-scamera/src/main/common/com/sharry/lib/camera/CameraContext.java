@@ -3,6 +3,8 @@ package com.sharry.lib.camera;
 import android.content.Context;
 import android.content.ContextWrapper;
 
+import androidx.annotation.NonNull;
+
 /**
  * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
  * @version 1.0
@@ -10,75 +12,59 @@ import android.content.ContextWrapper;
  */
 class CameraContext extends ContextWrapper {
 
-    private AspectRatio aspectRatio = AspectRatio.DEFAULT;
-    private int facing;
-    private boolean autoFocus;
-    private int flashMode;
-    private int screenOrientationDegrees;
-    boolean adjustViewBounds;
-    Size desiredSize;
+    /**
+     * 最新的配置快照, 由提交线程写入, 相机线程读取
+     */
+    private volatile CameraConfig mConfig = CameraConfig.DEFAULT;
+    private OnConfigChangedListener mListener;
 
     CameraContext(Context base) {
         super(base);
     }
 
-    AspectRatio getAspectRatio() {
-        return aspectRatio;
-    }
-
-    void setAspectRatio(AspectRatio aspectRatio) {
-        this.aspectRatio = aspectRatio;
-    }
-
-    int getFacing() {
-        return facing;
-    }
-
-    void setFacing(int facing) {
-        this.facing = facing;
-    }
-
-    boolean isAutoFocus() {
-        return autoFocus;
+    @NonNull
+    CameraConfig getConfig() {
+        return mConfig;
     }
 
-    void setAutoFocus(boolean autoFocus) {
-        this.autoFocus = autoFocus;
+    @NonNull
+    CameraConfig.Editor edit() {
+        return new CameraConfig.Editor(this);
     }
 
-    int getFlashMode() {
-        return flashMode;
+    void setOnConfigChangedListener(OnConfigChangedListener listener) {
+        mListener = listener;
     }
 
-    void setFlashMode(int flashMode) {
-        this.flashMode = flashMode;
+    /**
+     * 提交编辑的内容, 生成新的快照
+     */
+    CameraConfig commit(CameraConfig.Editor editor) {
+        CameraConfig oldConfig;
+        CameraConfig newConfig;
+        synchronized (this) {
+            oldConfig = mConfig;
+            newConfig = editor.applyTo(oldConfig);
+            if (newConfig == oldConfig) {
+                return oldConfig;
+            }
+            mConfig = newConfig;
+        }
+        if (mListener != null) {
+            mListener.onConfigChanged(oldConfig, newConfig, newConfig.diff(oldConfig));
+        }
+        return newConfig;
     }
 
-    int getScreenOrientationDegrees() {
-        return screenOrientationDegrees;
-    }
+    interface OnConfigChangedListener {
 
-    void setScreenOrientationDegrees(int screenOrientationDegrees) {
-        this.screenOrientationDegrees = screenOrientationDegrees;
-    }
+        /**
+         * Called when a new config snapshot is committed.
+         *
+         * @param changes The changed fields, e.g. {@link CameraConfig#CHANGED_FACING}.
+         */
+        void onConfigChanged(CameraConfig oldConfig, CameraConfig newConfig, int changes);
 
-    boolean isAdjustViewBounds() {
-        return adjustViewBounds;
     }
 
-    public void setAdjustViewBounds(boolean adjustViewBounds) {
-        this.adjustViewBounds = adjustViewBounds;
-    }
-
-    public boolean getAdjustViewBounds() {
-        return adjustViewBounds;
-    }
-
-    public void setDesiredSize(Size desiredSize) {
-        this.desiredSize = desiredSize;
-    }
-
-    public Size getDesiredSize() {
-        return desiredSize;
-    }
 }
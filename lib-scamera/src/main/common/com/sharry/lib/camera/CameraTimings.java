@@ -0,0 +1,125 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 一次相机指令的耗时统计
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public final class CameraTimings {
+
+    /**
+     * Constants of command
+     */
+    public static final int COMMAND_OPEN = 0;
+    public static final int COMMAND_CLOSE = 1;
+    public static final int COMMAND_UPDATE_PARAMETERS = 2;
+
+    private static final String[] COMMAND_NAMES = {
+            "open", "close", "updateParameters"
+    };
+
+    /**
+     * Waiting in the camera thread queue.
+     */
+    public static final int PHASE_QUEUE = 0;
+
+    /**
+     * Releasing the previous camera.
+     */
+    public static final int PHASE_RELEASE = 1;
+
+    /**
+     * Acquiring the camera, e.g. {@code Camera.open}.
+     */
+    public static final int PHASE_ACQUIRE = 2;
+
+    /**
+     * Querying and applying the camera parameters, e.g. {@code Camera.setParameters}.
+     */
+    public static final int PHASE_CONFIGURE = 3;
+
+    /**
+     * Starting the preview.
+     */
+    public static final int PHASE_START_PREVIEW = 4;
+
+    private static final int PHASE_COUNT = 5;
+    private static final String[] PHASE_NAMES = {
+            "queue", "release", "acquire", "configure", "startPreview"
+    };
+
+    private final int mCommand;
+    private final long mStartNanos;
+    private final long[] mPhaseNanos = new long[PHASE_COUNT];
+    private long mLastMarkNanos;
+    private long mEndNanos;
+
+    CameraTimings(int command) {
+        mCommand = command;
+        mStartNanos = System.nanoTime();
+        mLastMarkNanos = mStartNanos;
+    }
+
+    /**
+     * 将上一个标记点到现在的耗时, 记录到 phase 中
+     */
+    void mark(int phase) {
+        long now = System.nanoTime();
+        mPhaseNanos[phase] += now - mLastMarkNanos;
+        mLastMarkNanos = now;
+    }
+
+    void finish() {
+        mEndNanos = System.nanoTime();
+    }
+
+    /**
+     * @return 指令发起的时刻, {@link System#nanoTime()}
+     */
+    long getStartNanos() {
+        return mStartNanos;
+    }
+
+    /**
+     * @return The command, one of {@link #COMMAND_OPEN}, {@link #COMMAND_CLOSE} and
+     * {@link #COMMAND_UPDATE_PARAMETERS}.
+     */
+    public int getCommand() {
+        return mCommand;
+    }
+
+    /**
+     * @param phase The phase, e.g. {@link #PHASE_ACQUIRE}.
+     * @return The time spent in the phase, in milliseconds.
+     */
+    public long getPhaseMillis(int phase) {
+        return mPhaseNanos[phase] / 1000000;
+    }
+
+    /**
+     * @return The time from the command requested to completed, in milliseconds.
+     */
+    public long getTotalMillis() {
+        long end = mEndNanos == 0 ? mLastMarkNanos : mEndNanos;
+        return (end - mStartNanos) / 1000000;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(COMMAND_NAMES[mCommand])
+                .append(" total=").append(getTotalMillis()).append("ms");
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            if (mPhaseNanos[i] != 0) {
+                builder.append(", ").append(PHASE_NAMES[i]).append('=')
+                        .append(getPhaseMillis(i)).append("ms");
+            }
+        }
+        return builder.toString();
+    }
+
+}
@@ -36,6 +36,29 @@ interface Constants {
     int FLASH_AUTO = 3;
     int FLASH_RED_EYE = 4;
 
+    /**
+     * Constants of engine
+     */
+    int ENGINE_AUTO = 0;
+    int ENGINE_CAMERA1 = 1;
+    int ENGINE_CAMERA2 = 2;
+    int ENGINE_CAMERAX = 3;
+
+    /**
+     * Constants of capture profile
+     */
+    int PROFILE_DEFAULT = 0;
+    int PROFILE_LOW_LATENCY = 1;
+    int PROFILE_LOW_LIGHT = 2;
+    int PROFILE_POWER_SAVING = 3;
+
+    /**
+     * Constants of render pacing
+     */
+    int PACING_IMMEDIATE = 0;
+    int PACING_LOW_LATENCY = 1;
+    int PACING_SMOOTH = 2;
+
     /**
      * Constants of orientation
      */
@@ -0,0 +1,64 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * 直接内存缓冲池
+ * <p>
+ * 照片等大块数据使用直接内存承载, 不占用 Java 堆; 归还的缓冲最多保留 maxRetained 个, 供下次复用.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+class DirectBufferPool {
+
+    private final ArrayDeque<ByteBuffer> mFree;
+    private final int mMaxRetained;
+
+    DirectBufferPool(int maxRetained) {
+        mMaxRetained = maxRetained;
+        mFree = new ArrayDeque<>(maxRetained);
+    }
+
+    /**
+     * 获取容量不小于 size 的缓冲
+     *
+     * @return position 为 0, limit 为 size 的缓冲
+     */
+    @NonNull
+    synchronized ByteBuffer acquire(int size) {
+        ByteBuffer result = null;
+        Iterator<ByteBuffer> iterator = mFree.iterator();
+        while (iterator.hasNext()) {
+            ByteBuffer buffer = iterator.next();
+            if (buffer.capacity() >= size) {
+                iterator.remove();
+                result = buffer;
+                break;
+            }
+        }
+        if (result == null) {
+            // 容量都不够时, 丢弃一个最旧的缓冲, 由新分配的缓冲替代
+            mFree.poll();
+            result = ByteBuffer.allocateDirect(size);
+        }
+        result.clear();
+        result.limit(size);
+        return result;
+    }
+
+    /**
+     * 归还缓冲
+     */
+    synchronized void release(@NonNull ByteBuffer buffer) {
+        if (mFree.size() < mMaxRetained && !mFree.contains(buffer)) {
+            mFree.add(buffer);
+        }
+    }
+
+}
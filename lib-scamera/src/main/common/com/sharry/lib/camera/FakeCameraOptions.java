@@ -0,0 +1,127 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+
+/**
+ * 模拟相机的参数
+ * <p>
+ * 模拟相机按照固定的分辨率与帧率输出 NV21 帧, 帧内容来自生成的图案, 或者循环读取的 NV21 原始文件,
+ * 用于在没有相机硬件的环境中对预览与帧流进行基准测试.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public final class FakeCameraOptions {
+
+    /**
+     * 彩条, 叠加一条移动的竖线
+     */
+    public static final int PATTERN_COLOR_BARS = 0;
+
+    /**
+     * 水平方向的灰度渐变, 叠加一条移动的竖线
+     */
+    public static final int PATTERN_GRADIENT = 1;
+
+    private final Size mSize;
+    private final int mFps;
+    private final int mPattern;
+    private final File mYuvFile;
+
+    private FakeCameraOptions(Builder builder) {
+        mSize = builder.mSize;
+        mFps = builder.mFps;
+        mPattern = builder.mPattern;
+        mYuvFile = builder.mYuvFile;
+    }
+
+    @NonNull
+    public Size getSize() {
+        return mSize;
+    }
+
+    public int getFps() {
+        return mFps;
+    }
+
+    public int getPattern() {
+        return mPattern;
+    }
+
+    /**
+     * @return The raw NV21 file to replay, {@code null} to generate the pattern.
+     */
+    @Nullable
+    public File getYuvFile() {
+        return mYuvFile;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "FakeCameraOptions{size=" + mSize
+                + ", fps=" + mFps
+                + ", pattern=" + mPattern
+                + ", yuvFile=" + mYuvFile
+                + '}';
+    }
+
+    public static final class Builder {
+
+        private Size mSize = new Size(1280, 720);
+        private int mFps = 30;
+        private int mPattern = PATTERN_COLOR_BARS;
+        private File mYuvFile;
+
+        /**
+         * Sets the frame resolution in landscape, both width and height must be even.
+         */
+        @NonNull
+        public Builder setSize(int width, int height) {
+            if (width <= 0 || height <= 0 || width % 2 != 0 || height % 2 != 0) {
+                throw new IllegalArgumentException("Illegal size: " + width + "x" + height);
+            }
+            mSize = new Size(width, height);
+            return this;
+        }
+
+        @NonNull
+        public Builder setFps(int fps) {
+            if (fps <= 0) {
+                throw new IllegalArgumentException("Illegal fps: " + fps);
+            }
+            mFps = fps;
+            return this;
+        }
+
+        /**
+         * Sets the generated pattern, e.g. {@link #PATTERN_COLOR_BARS}.
+         */
+        @NonNull
+        public Builder setPattern(int pattern) {
+            mPattern = pattern;
+            mYuvFile = null;
+            return this;
+        }
+
+        /**
+         * Replays a file of concatenated NV21 frames at the configured size, loops at the end.
+         */
+        @NonNull
+        public Builder setYuvFile(@NonNull File yuvFile) {
+            mYuvFile = yuvFile;
+            return this;
+        }
+
+        @NonNull
+        public FakeCameraOptions build() {
+            return new FakeCameraOptions(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.sharry.lib.camera;
+
+import android.graphics.ImageFormat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+
+/**
+ * 预分配的 NV21 帧缓冲池
+ * <p>
+ * 缓冲区在 {@link #prepare} 时一次性分配, 尺寸不变时跨多次 open 复用, 帧流过程中不产生任何内存分配.
+ * <p>
+ * 缓冲区有两种流转方式:
+ * 1. 设置了 {@link Recycler} 时, 空闲缓冲全部交由生产者(如 Camera1 的 addCallbackBuffer)持有
+ * 2. 未设置 {@link Recycler} 时, 生产者通过 {@link #acquire} 主动获取空闲缓冲, 再拷贝数据进去
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+class FrameBufferPool {
+
+    /**
+     * 缓冲区回收器, 用于将空闲缓冲交还给生产者
+     */
+    interface Recycler {
+
+        void recycle(@NonNull byte[] buffer);
+
+    }
+
+    private final PreviewFrame[] mFrames;
+    private final ArrayDeque<PreviewFrame> mFree;
+    private Recycler mRecycler;
+    private int mWidth;
+    private int mHeight;
+    private int mInFlightCount;
+    private long mExhaustedCount;
+    private long mDroppedCount;
+
+    FrameBufferPool(int capacity) {
+        mFrames = new PreviewFrame[capacity];
+        mFree = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * 按照帧尺寸准备缓冲区
+     *
+     * @param recycler 若不为 null, 所有空闲缓冲会立即交由 recycler 持有
+     */
+    synchronized void prepare(int width, int height, @Nullable Recycler recycler) {
+        int bufferSize = width * height * ImageFormat.getBitsPerPixel(ImageFormat.NV21) / 8;
+        mWidth = width;
+        mHeight = height;
+        mRecycler = recycler;
+        mFree.clear();
+        mInFlightCount = 0;
+        for (int i = 0; i < mFrames.length; i++) {
+            PreviewFrame frame = mFrames[i];
+            // 被消费者持有的帧, 在归还之前不能交给生产者
+            if (frame != null && frame.inFlight && frame.getData().length >= bufferSize) {
+                mInFlightCount++;
+                continue;
+            }
+            // 尺寸不够时重新分配, 被持有的旧帧在归还时会被丢弃
+            if (frame == null || frame.inFlight || frame.getData().length < bufferSize) {
+                frame = new PreviewFrame(this, new byte[bufferSize]);
+                mFrames[i] = frame;
+            }
+            giveBack(frame);
+        }
+    }
+
+    /**
+     * 使缓冲池与当前的生产者解除绑定
+     * <p>
+     * 必须在生产者释放之前调用, 之后归还的缓冲不会再交给生产者.
+     */
+    synchronized void invalidate() {
+        mRecycler = null;
+    }
+
+    /**
+     * 将生产者填充完毕的缓冲包装成帧
+     *
+     * @return 若 data 不属于这个缓冲池, 则返回 null
+     */
+    @Nullable
+    synchronized PreviewFrame obtain(@NonNull byte[] data, long timestampNanos) {
+        for (PreviewFrame frame : mFrames) {
+            if (frame != null && frame.getData() == data) {
+                return markInFlight(frame, timestampNanos);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取一个空闲的帧, 供生产者拷贝数据
+     *
+     * @return 若缓冲池已耗尽, 则返回 null, 这一帧被记为丢帧
+     */
+    @Nullable
+    synchronized PreviewFrame acquire(long timestampNanos) {
+        PreviewFrame frame = mFree.poll();
+        if (frame == null) {
+            mExhaustedCount++;
+            mDroppedCount++;
+            return null;
+        }
+        return markInFlight(frame, timestampNanos);
+    }
+
+    /**
+     * 归还帧缓冲
+     */
+    synchronized void release(@NonNull PreviewFrame frame) {
+        if (!frame.inFlight) {
+            return;
+        }
+        frame.inFlight = false;
+        if (!contains(frame)) {
+            // 缓冲池已按新尺寸重建, 丢弃旧的缓冲
+            return;
+        }
+        mInFlightCount--;
+        giveBack(frame);
+    }
+
+    /**
+     * 归还一个没有被消费的帧, 并记为丢帧
+     */
+    synchronized void drop(@NonNull PreviewFrame frame) {
+        mDroppedCount++;
+        release(frame);
+    }
+
+    synchronized int getWidth() {
+        return mWidth;
+    }
+
+    synchronized int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return 缓冲全部被消费者持有的次数, 此时生产者没有可用缓冲, 会持续丢帧
+     */
+    synchronized long getExhaustedCount() {
+        return mExhaustedCount;
+    }
+
+    /**
+     * @return 被丢弃的帧数
+     */
+    synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    private PreviewFrame markInFlight(PreviewFrame frame, long timestampNanos) {
+        frame.reset(mWidth, mHeight, timestampNanos);
+        frame.inFlight = true;
+        mInFlightCount++;
+        if (mInFlightCount == mFrames.length) {
+            mExhaustedCount++;
+        }
+        return frame;
+    }
+
+    private void giveBack(PreviewFrame frame) {
+        if (mRecycler != null) {
+            mRecycler.recycle(frame.getData());
+        } else {
+            mFree.add(frame);
+        }
+    }
+
+    private boolean contains(PreviewFrame frame) {
+        for (PreviewFrame item : mFrames) {
+            if (item == frame) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
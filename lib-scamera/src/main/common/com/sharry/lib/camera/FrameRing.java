@@ -0,0 +1,153 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 最近若干帧的环形缓冲, 用于零延迟拍照
+ * <p>
+ * 帧流中的每一帧都会拷贝一份到环中, 覆盖最旧的一帧; 槽位的数量由内存上限与帧尺寸决定.
+ * 拍照时取出时间戳最接近快门时刻的一帧, 取出的槽位在归还之前不会被覆盖.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+class FrameRing {
+
+    private long mMemoryCapBytes;
+    private Slot[] mSlots = new Slot[0];
+    private int mWidth;
+    private int mHeight;
+    /**
+     * 下一次写入的位置
+     */
+    private int mCursor;
+
+    /**
+     * 设置内存上限, 为 0 时关闭, 已缓存的帧会被丢弃
+     */
+    synchronized void setMemoryCap(long memoryCapBytes) {
+        mMemoryCapBytes = Math.max(0, memoryCapBytes);
+        resize(mWidth, mHeight);
+    }
+
+    synchronized boolean isEnabled() {
+        return mMemoryCapBytes > 0;
+    }
+
+    /**
+     * 拷贝一帧到环中, 运行在帧的生产线程
+     */
+    void push(@NonNull PreviewFrame frame) {
+        Slot slot;
+        synchronized (this) {
+            if (mMemoryCapBytes == 0) {
+                return;
+            }
+            if (frame.getWidth() != mWidth || frame.getHeight() != mHeight) {
+                resize(frame.getWidth(), frame.getHeight());
+            }
+            slot = nextWritableSlot();
+            if (slot == null) {
+                return;
+            }
+            slot.held = true;
+            slot.valid = false;
+        }
+        // 在锁外拷贝, 不阻塞拍照的查询
+        int length = frame.getWidth() * frame.getHeight() * 3 / 2;
+        System.arraycopy(frame.getData(), 0, slot.data, 0, length);
+        synchronized (this) {
+            slot.timestampNanos = frame.getTimestamp();
+            slot.held = false;
+            slot.valid = true;
+        }
+    }
+
+    /**
+     * 取出时间戳最接近 timestampNanos 的一帧, 使用完毕后必须调用 {@link #release}
+     *
+     * @return 环中没有帧时返回 null
+     */
+    @Nullable
+    synchronized Slot acquireClosest(long timestampNanos) {
+        Slot result = null;
+        for (Slot slot : mSlots) {
+            if (!slot.valid || slot.held) {
+                continue;
+            }
+            if (result == null || Math.abs(slot.timestampNanos - timestampNanos)
+                    < Math.abs(result.timestampNanos - timestampNanos)) {
+                result = slot;
+            }
+        }
+        if (result != null) {
+            result.held = true;
+        }
+        return result;
+    }
+
+    synchronized void release(@NonNull Slot slot) {
+        slot.held = false;
+    }
+
+    /**
+     * 丢弃所有缓存的帧, 如相机关闭时
+     */
+    synchronized void clear() {
+        for (Slot slot : mSlots) {
+            slot.valid = false;
+        }
+    }
+
+    private Slot nextWritableSlot() {
+        for (int i = 0; i < mSlots.length; i++) {
+            Slot slot = mSlots[mCursor];
+            mCursor = (mCursor + 1) % mSlots.length;
+            if (!slot.held) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private void resize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mCursor = 0;
+        int frameBytes = width * height * 3 / 2;
+        int count = frameBytes == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE,
+                mMemoryCapBytes / frameBytes);
+        // 被拍照持有的旧槽位不再属于环, 归还后由 GC 回收
+        Slot[] slots = new Slot[count];
+        for (int i = 0; i < count; i++) {
+            Slot old = i < mSlots.length ? mSlots[i] : null;
+            slots[i] = old != null && !old.held && old.width == width && old.height == height
+                    ? old : new Slot(width, height);
+            slots[i].valid = false;
+        }
+        mSlots = slots;
+    }
+
+    /**
+     * 环中的一个槽位
+     */
+    static final class Slot {
+
+        final byte[] data;
+        final int width;
+        final int height;
+        long timestampNanos;
+        boolean held;
+        boolean valid;
+
+        Slot(int width, int height) {
+            this.data = new byte[width * height * 3 / 2];
+            this.width = width;
+            this.height = height;
+        }
+
+    }
+
+}
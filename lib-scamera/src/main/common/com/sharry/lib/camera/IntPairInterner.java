@@ -0,0 +1,63 @@
+package com.sharry.lib.camera;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 以两个 int 为键的无锁享元表
+ * <p>
+ * 开放寻址的定长哈希表, 空槽位通过 CAS 写入, 写入后不再变更, 因此读取无需加锁.
+ * 探测次数超过上限时直接创建新的实例, 不进入享元表, 调用方仍需使用 equals 比较.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+abstract class IntPairInterner<T> {
+
+    private static final int MAX_PROBES = 8;
+
+    private final AtomicReferenceArray<T> mTable;
+    private final int mMask;
+
+    /**
+     * @param capacity 享元表的容量, 必须为 2 的幂
+     */
+    IntPairInterner(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of 2: " + capacity);
+        }
+        mTable = new AtomicReferenceArray<>(capacity);
+        mMask = capacity - 1;
+    }
+
+    final T intern(int a, int b) {
+        int index = hash(a, b) & mMask;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            T current = mTable.get(index);
+            if (current == null) {
+                T created = create(a, b);
+                if (mTable.compareAndSet(index, null, created)) {
+                    return created;
+                }
+                // 其他线程抢先写入了该槽位
+                current = mTable.get(index);
+            }
+            if (matches(current, a, b)) {
+                return current;
+            }
+            index = (index + 1) & mMask;
+        }
+        return create(a, b);
+    }
+
+    abstract boolean matches(T value, int a, int b);
+
+    abstract T create(int a, int b);
+
+    private static int hash(int a, int b) {
+        int h = a * 31 + b;
+        // 打散低位, 避免相近的尺寸落在相邻的槽位
+        return h ^ (h >>> 16);
+    }
+
+}
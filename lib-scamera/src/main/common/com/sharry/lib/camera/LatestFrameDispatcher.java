@@ -0,0 +1,63 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 只保留最新一帧的分发器
+ * <p>
+ * 帧在指定的 Executor 上串行分发, 消费者处理不过来时, 尚未分发的旧帧直接归还并计为跳帧,
+ * 生产者永远不会因为消费者过慢而阻塞.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+class LatestFrameDispatcher implements OnPreviewFrameListener, Runnable {
+
+    private final Executor mExecutor;
+    private final OnPreviewFrameListener mListener;
+    private final AtomicLong mSkippedCount;
+    private final AtomicReference<PreviewFrame> mPending = new AtomicReference<>();
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+
+    /**
+     * @param skippedCount 跳帧的计数器
+     */
+    LatestFrameDispatcher(@NonNull Executor executor, @NonNull OnPreviewFrameListener listener,
+                          @NonNull AtomicLong skippedCount) {
+        mExecutor = executor;
+        mListener = listener;
+        mSkippedCount = skippedCount;
+    }
+
+    @Override
+    public void onPreviewFrame(@NonNull PreviewFrame frame) {
+        PreviewFrame stale = mPending.getAndSet(frame);
+        if (stale != null) {
+            mSkippedCount.incrementAndGet();
+            stale.release();
+        }
+        if (mScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        PreviewFrame frame;
+        while ((frame = mPending.getAndSet(null)) != null) {
+            mListener.onPreviewFrame(frame);
+        }
+        mScheduled.set(false);
+        // 清除标记之前到达的帧, 需要重新调度
+        if (mPending.get() != null && mScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(this);
+        }
+    }
+
+}
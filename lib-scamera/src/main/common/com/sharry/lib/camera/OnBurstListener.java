@@ -0,0 +1,35 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 连拍结果的监听器, 回调在编码线程
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public interface OnBurstListener {
+
+    /**
+     * Called when a frame of the burst is encoded, frames are encoded in parallel and may arrive
+     * out of order.
+     * <p>
+     * The receiver owns the picture and must call {@link Picture#release()} once done with it.
+     *
+     * @param index   The index of the frame in the burst, starts from 0.
+     * @param picture The encoded picture.
+     */
+    void onBurstFrame(int index, @NonNull Picture picture);
+
+    /**
+     * Called after all frames are delivered.
+     */
+    void onBurstCompleted(@NonNull BurstStats stats);
+
+    /**
+     * Called when the burst is failed or cancelled, frames not delivered yet are discarded.
+     */
+    void onBurstFailed(@NonNull Throwable error);
+
+}
@@ -0,0 +1,21 @@
+package com.sharry.lib.camera;
+
+/**
+ * 切换镜头朝向的回调, 回调在主线程
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public interface OnFacingSwitchedListener {
+
+    /**
+     * Called when the first frame of the new camera is drawn on screen.
+     *
+     * @param facing    The new camera facing.
+     * @param gapMillis The time from the facing change to the first frame of the new camera
+     *                  drawn, during which the last frame of the previous camera stays on screen.
+     */
+    void onFacingSwitched(int facing, long gapMillis);
+
+}
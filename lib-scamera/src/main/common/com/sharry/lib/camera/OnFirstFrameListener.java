@@ -0,0 +1,21 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 首帧上屏的回调, 回调在主线程
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public interface OnFirstFrameListener {
+
+    /**
+     * Called when the first camera frame is drawn on screen.
+     *
+     * @param timings The time spent in each startup phase.
+     */
+    void onFirstFrame(@NonNull StartupTimings timings);
+
+}
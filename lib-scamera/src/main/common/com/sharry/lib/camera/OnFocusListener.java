@@ -0,0 +1,29 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 点击对焦的监听器, 回调在主线程
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public interface OnFocusListener {
+
+    /**
+     * Called when the focus scan converged.
+     *
+     * @param focused     {@code true} if the lens is in focus, {@code false} if the scan ended
+     *                    without finding the focus.
+     * @param focusMillis The time from the focus request to the scan converged.
+     */
+    void onFocused(boolean focused, long focusMillis);
+
+    /**
+     * Called when the focus request can't run, e.g. the camera is closed or the engine doesn't
+     * support focus areas.
+     */
+    void onFocusFailed(@NonNull Throwable error);
+
+}
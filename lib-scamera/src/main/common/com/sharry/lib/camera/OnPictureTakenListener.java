@@ -0,0 +1,28 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 拍照结果的监听器, 回调在后台线程
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public interface OnPictureTakenListener {
+
+    /**
+     * Called when the JPEG picture is available.
+     * <p>
+     * The receiver owns the picture and must call {@link Picture#release()} once done with it.
+     *
+     * @param picture The captured picture.
+     */
+    void onPictureTaken(@NonNull Picture picture);
+
+    /**
+     * Called when the capture is failed.
+     */
+    void onPictureFailed(@NonNull Throwable error);
+
+}
@@ -0,0 +1,24 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 相机预览帧的监听器
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public interface OnPreviewFrameListener {
+
+    /**
+     * Called when a new preview frame is available.
+     * <p>
+     * The receiver owns the frame and must call {@link PreviewFrame#release()} once done with it,
+     * the frame can be handed to other threads before releasing.
+     *
+     * @param frame The preview frame.
+     */
+    void onPreviewFrame(@NonNull PreviewFrame frame);
+
+}
@@ -0,0 +1,99 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 相机拍摄的一张 JPEG 照片
+ * <p>
+ * 数据由直接内存缓冲池承载, 使用完毕后必须调用 {@link #release()} 归还.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public final class Picture {
+
+    private final DirectBufferPool mPool;
+    private final ByteBuffer mData;
+    private final int mWidth;
+    private final int mHeight;
+    private final long mCaptureNanos;
+    private final long mShutterToJpegNanos;
+    private final int mRotationDegrees;
+    private boolean mReleased;
+
+    Picture(DirectBufferPool pool, ByteBuffer data, int width, int height,
+            long captureNanos, long shutterToJpegNanos, int rotationDegrees) {
+        mPool = pool;
+        mData = data;
+        mWidth = width;
+        mHeight = height;
+        mCaptureNanos = captureNanos;
+        mShutterToJpegNanos = shutterToJpegNanos;
+        mRotationDegrees = rotationDegrees;
+    }
+
+    /**
+     * 获取 JPEG 数据, 有效数据在 [0, limit) 之间
+     * <p>
+     * 照片的方向记录在 EXIF 中, 或者由 {@link #getRotationDegrees()} 给出.
+     */
+    @NonNull
+    public ByteBuffer getData() {
+        return mData;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return 显示前需要顺时针旋转的角度, 方向已记录在 EXIF 中时为 0
+     */
+    public int getRotationDegrees() {
+        return mRotationDegrees;
+    }
+
+    /**
+     * @return 从发起拍照到拿到 JPEG 的耗时, 单位毫秒
+     */
+    public long getCaptureMillis() {
+        return mCaptureNanos / 1000000;
+    }
+
+    /**
+     * @return 从快门到拿到 JPEG 的耗时, 单位毫秒
+     */
+    public long getShutterToJpegMillis() {
+        return mShutterToJpegNanos / 1000000;
+    }
+
+    /**
+     * 将缓冲归还给缓冲池, 归还之后不可再访问 {@link #getData()}
+     */
+    public synchronized void release() {
+        if (mReleased) {
+            return;
+        }
+        mReleased = true;
+        mPool.release(mData);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "Picture{" + mWidth + "x" + mHeight
+                + ", bytes=" + mData.limit()
+                + ", rotation=" + mRotationDegrees
+                + ", capture=" + getCaptureMillis() + "ms"
+                + ", shutterToJpeg=" + getShutterToJpegMillis() + "ms"
+                + '}';
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.sharry.lib.camera;
+
+import android.graphics.ImageFormat;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 相机输出的一帧 NV21 数据
+ * <p>
+ * 数据缓冲区来自预先分配好的缓冲池, 使用完毕后必须调用 {@link #release()} 归还,
+ * 否则缓冲池会被耗尽, 相机将无缓冲可用而丢帧.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public final class PreviewFrame {
+
+    private final FrameBufferPool mPool;
+    private final byte[] mData;
+    private int mWidth;
+    private int mHeight;
+    private long mTimestamp;
+    boolean inFlight;
+
+    PreviewFrame(FrameBufferPool pool, byte[] data) {
+        mPool = pool;
+        mData = data;
+    }
+
+    void reset(int width, int height, long timestampNanos) {
+        this.mWidth = width;
+        this.mHeight = height;
+        this.mTimestamp = timestampNanos;
+    }
+
+    /**
+     * 获取帧数据, 格式为 {@link ImageFormat#NV21}
+     * <p>
+     * 注意: 数组长度可能大于有效数据的长度, 有效长度为 width * height * 3 / 2.
+     */
+    @NonNull
+    public byte[] getData() {
+        return mData;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return 帧的采集时刻, 以 {@link System#nanoTime()} 为基准, 单位纳秒;
+     * Camera2 与 CameraX 由传感器时间戳换算, Camera1 为回调时刻减去估算的延迟
+     */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    public int getFormat() {
+        return ImageFormat.NV21;
+    }
+
+    /**
+     * 将帧缓冲归还给缓冲池, 归还之后不可再访问 {@link #getData()}
+     */
+    public void release() {
+        mPool.release(this);
+    }
+
+}
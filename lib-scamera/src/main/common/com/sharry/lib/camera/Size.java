@@ -23,9 +23,36 @@ import androidx.annotation.NonNull;
  */
 public class Size implements Comparable<Size> {
 
+    private final static IntPairInterner<Size> sCache = new IntPairInterner<Size>(256) {
+
+        @Override
+        boolean matches(Size value, int width, int height) {
+            return value.mWidth == width && value.mHeight == height;
+        }
+
+        @Override
+        Size create(int width, int height) {
+            return new Size(width, height);
+        }
+
+    };
+
     private final int mWidth;
     private final int mHeight;
 
+    /**
+     * Returns a shared instance of {@link Size}, safe to call from any thread.
+     * <p>
+     * Hot paths should prefer it over the constructor, repeated sizes are not allocated again.
+     *
+     * @param width  The width of the size, in pixels
+     * @param height The height of the size, in pixels
+     * @return An instance of {@link Size}
+     */
+    public static Size of(int width, int height) {
+        return sCache.intern(width, height);
+    }
+
     /**
      * Create a new immutable Size instance.
      *
@@ -16,67 +16,216 @@
 
 package com.sharry.lib.camera;
 
-import android.util.ArrayMap;
-
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
- * A collection class that automatically groups {@link Size}s by their {@link AspectRatio}s.
+ * An immutable collection that groups sizes by their {@link AspectRatio}s.
+ * <p>
+ * Sizes are packed into a single sorted {@code long[]}, ordered by ratio bucket and then by
+ * area, so that queries never allocate. A size joins a bucket when its ratio is within
+ * {@link #RATIO_TOLERANCE} of it, e.g. 1088x1920 is treated as 9:16.
+ * <p>
+ * Query results are packed as {@code width << 32 | height}, use {@link #width(long)} and
+ * {@link #height(long)} to unpack them, {@link #NONE} means no size matches.
  */
 class SizeMap {
 
-    private final ArrayMap<AspectRatio, SortedSet<Size>> mRatios = new ArrayMap<>();
+    static final long NONE = -1L;
+
+    /**
+     * Relative tolerance when matching a size to a ratio.
+     */
+    private static final float RATIO_TOLERANCE = 0.01f;
+
+    /**
+     * Ratios that a near miss snaps to, in landscape.
+     */
+    private static final AspectRatio[] COMMON_RATIOS = {
+            AspectRatio.of(4, 3), AspectRatio.of(16, 9), AspectRatio.of(3, 2),
+            AspectRatio.of(5, 4), AspectRatio.of(1, 1), AspectRatio.of(11, 9),
+            AspectRatio.of(5, 3), AspectRatio.of(2, 1)
+    };
+
+    /**
+     * Buckets are kept in the top 7 bits so that the packed entries stay positive.
+     */
+    private static final int MAX_BUCKETS = 127;
+    private static final int BUCKET_SHIFT = 56;
+    private static final int AREA_SHIFT = 24;
+    private static final long AREA_MASK = 0xFFFFFFFFL;
+    private static final long WIDTH_MASK = 0xFFFFFFL;
+
+    private final AspectRatio[] mRatios;
+    /**
+     * Sizes of bucket i are [mBucketStart[i], mBucketStart[i + 1]) in {@link #mSizes}.
+     */
+    private final int[] mBucketStart;
+    /**
+     * Each element is {@code bucket << 56 | area << 24 | width}, the height is area / width.
+     */
+    private final long[] mSizes;
 
     /**
-     * Add a new {@link Size} to this collection.
-     *
-     * @param size The size to add.
-     * @return {@code true} if it is added, {@code false} if it already exists and is not added.
+     * @param packedSizes sizes laid out as [width0, height0, width1, height1...]
      */
-    public boolean add(Size size) {
-        for (AspectRatio ratio : mRatios.keySet()) {
-            if (ratio.matches(size)) {
-                final SortedSet<Size> sizes = mRatios.get(ratio);
-                if (sizes.contains(size)) {
-                    return false;
-                } else {
-                    sizes.add(size);
-                    return true;
+    SizeMap(int[] packedSizes) {
+        int count = packedSizes.length / 2;
+        AspectRatio[] ratios = new AspectRatio[count];
+        int ratioCount = 0;
+        long[] sizes = new long[count];
+        int sizeCount = 0;
+        for (int i = 0; i < count; i++) {
+            int width = packedSizes[i * 2];
+            int height = packedSizes[i * 2 + 1];
+            if (width <= 0 || height <= 0 || width > WIDTH_MASK) {
+                continue;
+            }
+            int bucket = indexOf(ratios, ratioCount, width, height);
+            if (bucket < 0) {
+                if (ratioCount == MAX_BUCKETS) {
+                    continue;
                 }
+                bucket = ratioCount++;
+                ratios[bucket] = snap(width, height);
+            }
+            sizes[sizeCount++] = ((long) bucket << BUCKET_SHIFT)
+                    | ((long) width * height << AREA_SHIFT) | width;
+        }
+        Arrays.sort(sizes, 0, sizeCount);
+        // Removes duplicates, they are adjacent after sorting
+        int unique = 0;
+        for (int i = 0; i < sizeCount; i++) {
+            if (unique == 0 || sizes[unique - 1] != sizes[i]) {
+                sizes[unique++] = sizes[i];
             }
         }
-        // None of the existing ratio matches the provided size; add a new key
-        SortedSet<Size> sizes = new TreeSet<>();
-        sizes.add(size);
-        mRatios.put(AspectRatio.of(size.getWidth(), size.getHeight()), sizes);
-        return true;
+        mRatios = Arrays.copyOf(ratios, ratioCount);
+        mSizes = Arrays.copyOf(sizes, unique);
+        mBucketStart = new int[ratioCount + 1];
+        int bucket = 0;
+        for (int i = 0; i < mSizes.length; i++) {
+            while (bucket < bucketOf(mSizes[i])) {
+                mBucketStart[++bucket] = i;
+            }
+        }
+        while (bucket < ratioCount) {
+            mBucketStart[++bucket] = mSizes.length;
+        }
     }
 
     /**
-     * Removes the specified aspect ratio and all sizes associated with it.
-     *
-     * @param ratio The aspect ratio to be removed.
+     * @return The largest size of {@link AspectRatio#DEFAULT} if it exists, otherwise the largest
+     * size of the ratio with most sizes, or {@link #NONE} if the map is empty.
      */
-    public void remove(AspectRatio ratio) {
-        mRatios.remove(ratio);
+    long largestOfDefaultRatio() {
+        int best = -1;
+        for (int i = 0; i < mRatios.length; i++) {
+            if (AspectRatio.DEFAULT.equals(mRatios[i])) {
+                best = i;
+                break;
+            }
+            if (best < 0 || bucketSize(i) > bucketSize(best)) {
+                best = i;
+            }
+        }
+        if (best < 0 || bucketSize(best) == 0) {
+            return NONE;
+        }
+        return unpack(mSizes[mBucketStart[best + 1] - 1]);
     }
 
-    Set<AspectRatio> ratios() {
-        return mRatios.keySet();
+    /**
+     * @return The largest size by area of the ratio, or {@link #NONE}.
+     */
+    long largest(AspectRatio ratio) {
+        if (ratio == null) {
+            return NONE;
+        }
+        int bucket = indexOf(ratio);
+        if (bucket < 0 || bucketSize(bucket) == 0) {
+            return NONE;
+        }
+        return unpack(mSizes[mBucketStart[bucket + 1] - 1]);
+    }
+
+    /**
+     * @return The smallest size of the ratio that covers width x height, or the largest one of
+     * the ratio if none covers it, or {@link #NONE} if the ratio doesn't exist.
+     */
+    long smallestAtLeast(AspectRatio ratio, int width, int height) {
+        if (ratio == null) {
+            return NONE;
+        }
+        int bucket = indexOf(ratio);
+        if (bucket < 0 || bucketSize(bucket) == 0) {
+            return NONE;
+        }
+        int end = mBucketStart[bucket + 1];
+        for (int i = mBucketStart[bucket]; i < end; i++) {
+            long size = unpack(mSizes[i]);
+            if (width(size) >= width && height(size) >= height) {
+                return size;
+            }
+        }
+        return unpack(mSizes[end - 1]);
+    }
+
+    static int width(long size) {
+        return (int) (size >>> 32);
+    }
+
+    static int height(long size) {
+        return (int) size;
+    }
+
+    private int indexOf(AspectRatio ratio) {
+        for (int i = 0; i < mRatios.length; i++) {
+            if (mRatios[i].equals(ratio)) {
+                return i;
+            }
+        }
+        return indexOf(mRatios, mRatios.length, ratio.getX(), ratio.getY());
+    }
+
+    private int bucketSize(int bucket) {
+        return mBucketStart[bucket + 1] - mBucketStart[bucket];
+    }
+
+    private static int indexOf(AspectRatio[] ratios, int count, int width, int height) {
+        for (int i = 0; i < count; i++) {
+            if (matches(ratios[i], width, height)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Snaps the size to a common ratio in the same orientation, or its exact ratio.
+     */
+    private static AspectRatio snap(int width, int height) {
+        for (AspectRatio ratio : COMMON_RATIOS) {
+            AspectRatio oriented = width >= height ? ratio : ratio.inverse();
+            if (matches(oriented, width, height)) {
+                return oriented;
+            }
+        }
+        return AspectRatio.of(width, height);
     }
 
-    SortedSet<Size> sizes(AspectRatio ratio) {
-        return mRatios.get(ratio);
+    private static boolean matches(AspectRatio ratio, int width, int height) {
+        float actual = (float) width / height;
+        return Math.abs(actual / ratio.toFloat() - 1f) <= RATIO_TOLERANCE;
     }
 
-    void clear() {
-        mRatios.clear();
+    private static int bucketOf(long entry) {
+        return (int) (entry >>> BUCKET_SHIFT);
     }
 
-    boolean isEmpty() {
-        return mRatios.isEmpty();
+    private static long unpack(long entry) {
+        long width = entry & WIDTH_MASK;
+        long height = ((entry >>> AREA_SHIFT) & AREA_MASK) / width;
+        return width << 32 | height;
     }
 
 }
@@ -0,0 +1,151 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 冷启动到首帧上屏的耗时统计
+ * <p>
+ * 各阶段可能在不同的线程上并行执行, 因此每个阶段都记录了相对于起点的开始与结束时刻.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public final class StartupTimings {
+
+    /**
+     * Opening the camera until the camera texture is ready.
+     */
+    public static final int PHASE_CAMERA_OPEN = 0;
+
+    /**
+     * Creating the EGL context.
+     */
+    public static final int PHASE_EGL_SETUP = 1;
+
+    /**
+     * Reading the shader sources from raw resources.
+     */
+    public static final int PHASE_SHADER_LOAD = 2;
+
+    /**
+     * Compiling and linking the shader programs.
+     */
+    public static final int PHASE_SHADER_COMPILE = 3;
+
+    /**
+     * Waiting for the surface of the preview view.
+     */
+    public static final int PHASE_SURFACE = 4;
+
+    private static final int PHASE_COUNT = 5;
+    private static final String[] PHASE_NAMES = {
+            "cameraOpen", "eglSetup", "shaderLoad", "shaderCompile", "surface"
+    };
+
+    private final boolean mPrewarmed;
+    private final long mOriginNanos;
+    private final long[] mStartNanos = new long[PHASE_COUNT];
+    private final long[] mEndNanos = new long[PHASE_COUNT];
+    private long mFirstFrameNanos;
+
+    /**
+     * @param prewarmed 是否由预热开始
+     */
+    StartupTimings(boolean prewarmed) {
+        mPrewarmed = prewarmed;
+        mOriginNanos = System.nanoTime();
+    }
+
+    /**
+     * 标记阶段开始, 重复调用时以第一次为准
+     */
+    synchronized void begin(int phase) {
+        if (mStartNanos[phase] == 0) {
+            mStartNanos[phase] = System.nanoTime();
+        }
+    }
+
+    /**
+     * 标记阶段结束, 重复调用时以第一次为准, 没有标记开始的阶段从起点开始计算
+     */
+    synchronized void end(int phase) {
+        if (mEndNanos[phase] != 0) {
+            return;
+        }
+        if (mStartNanos[phase] == 0) {
+            mStartNanos[phase] = mOriginNanos;
+        }
+        mEndNanos[phase] = System.nanoTime();
+    }
+
+    /**
+     * 标记首帧上屏
+     *
+     * @return 是否为第一次标记
+     */
+    synchronized boolean finish() {
+        if (mFirstFrameNanos != 0) {
+            return false;
+        }
+        mFirstFrameNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the startup began with {@link SCameraView#prewarm}.
+     */
+    public boolean isPrewarmed() {
+        return mPrewarmed;
+    }
+
+    /**
+     * @param phase The phase, e.g. {@link #PHASE_CAMERA_OPEN}.
+     * @return The time spent in the phase in milliseconds, -1 if the phase didn't complete.
+     */
+    public synchronized long getPhaseMillis(int phase) {
+        if (mEndNanos[phase] == 0) {
+            return -1;
+        }
+        return (mEndNanos[phase] - mStartNanos[phase]) / 1000000;
+    }
+
+    /**
+     * @param phase The phase, e.g. {@link #PHASE_CAMERA_OPEN}.
+     * @return The time from the startup began to the phase began in milliseconds, -1 if the
+     * phase didn't run.
+     */
+    public synchronized long getPhaseStartMillis(int phase) {
+        if (mStartNanos[phase] == 0) {
+            return -1;
+        }
+        return (mStartNanos[phase] - mOriginNanos) / 1000000;
+    }
+
+    /**
+     * @return The time from the startup began to the first camera frame drawn on screen in
+     * milliseconds, -1 if no frame was drawn yet.
+     */
+    public synchronized long getTimeToFirstFrameMillis() {
+        if (mFirstFrameNanos == 0) {
+            return -1;
+        }
+        return (mFirstFrameNanos - mOriginNanos) / 1000000;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder(mPrewarmed ? "prewarmed" : "cold")
+                .append(" firstFrame=").append(getTimeToFirstFrameMillis()).append("ms");
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            if (mEndNanos[i] != 0) {
+                builder.append(", ").append(PHASE_NAMES[i]).append('=')
+                        .append(getPhaseStartMillis(i)).append('+')
+                        .append(getPhaseMillis(i)).append("ms");
+            }
+        }
+        return builder.toString();
+    }
+
+}
@@ -1,72 +1,925 @@
 package com.sharry.lib.camera;
 
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * 相机设备的基类
+ * <p>
+ * 所有的指令都投递到相机线程串行执行, 新的 open/close 请求会取代尚未执行的旧请求.
+ *
  * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
  * @version 1.0
  * @since 2019-08-05
  */
-abstract class AbsCameraDevice implements ICameraDevice {
+abstract class AbsCameraDevice implements ICameraDevice, Handler.Callback {
+
+    private static final String TAG = AbsCameraDevice.class.getSimpleName();
+
+    /**
+     * 帧缓冲的数量: 一个由相机填充, 一个由消费者处理, 一个备用
+     */
+    private static final int FRAME_POOL_CAPACITY = 3;
+
+    private static final int MSG_OPEN = 0;
+    private static final int MSG_CLOSE = 1;
+    private static final int MSG_REOPEN = 2;
+    private static final int MSG_CONFIG_CHANGED = 3;
+    private static final int MSG_FRAME_LISTENER_CHANGED = 4;
+    private static final int MSG_TAKE_PICTURE = 5;
+    private static final int MSG_ZERO_SHUTTER_LAG_CHANGED = 6;
+    private static final int MSG_START_BURST = 7;
+    private static final int MSG_BURST_CAPTURED = 8;
+    private static final int MSG_FOCUS = 9;
+    private static final int MSG_FOCUS_RESET = 10;
+
+    /**
+     * 保留的照片缓冲数量
+     */
+    private static final int PICTURE_POOL_CAPACITY = 2;
+
+    /**
+     * 点击对焦后保持对焦区域的时长, 之后恢复配置的对焦模式
+     */
+    static final long FOCUS_HOLD_MILLIS = 3000;
+
+    /**
+     * 不参与引擎选择的设备, 如模拟相机
+     */
+    static final int NO_ENGINE = -1;
+
+    /**
+     * 传感器时间戳早于当前时刻的上限, 超出时认为时间基准不可比
+     */
+    private static final long MAX_SENSOR_LAG_NANOS = 1000000000L;
+
+    /**
+     * 至少统计这么多帧, 帧率才会被记录
+     */
+    private static final int MIN_FPS_SAMPLE_FRAMES = 30;
+
+    /**
+     * 外界没有帧监听器, 但零延迟拍照或连拍需要帧流时的消费者, 帧被拷贝走之后直接归还
+     */
+    private static final OnPreviewFrameListener INTERNAL_LISTENER = new OnPreviewFrameListener() {
+        @Override
+        public void onPreviewFrame(@NonNull PreviewFrame frame) {
+            frame.release();
+        }
+    };
 
     final CameraContext context;
+    final FrameBufferPool framePool = new FrameBufferPool(FRAME_POOL_CAPACITY);
+    final DirectBufferPool picturePool = new DirectBufferPool(PICTURE_POOL_CAPACITY);
+    final PreviewSizeSelector sizeSelector = CostModelSizeSelector.getInstance();
+    final FrameRing zslRing = new FrameRing();
+    final Handler handler;
     OnCameraReadyListener listener;
-    AspectRatio aspectRatio = AspectRatio.DEFAULT;
-    int facing;
-    boolean autoFocus;
-    int flashMode;
-    int screenOrientationDegrees;
-    int previewWidth, previewHeight;
-
-    AbsCameraDevice(CameraContext context, OnCameraReadyListener listener) {
+    volatile OnPreviewFrameListener frameListener;
+    /**
+     * 期望的分析帧分辨率, 为 null 时与预览一致, 只在相机线程访问
+     */
+    Size analysisSize;
+    /**
+     * 相机设备已经接收的配置快照, 只在相机线程访问
+     */
+    CameraConfig config;
+    /**
+     * 帧流中的帧显示前需要顺时针旋转的角度, 用于零延迟拍照
+     */
+    volatile int frameRotationDegrees;
+    /**
+     * 正在使用的镜头的能力与选中的预览尺寸(传感器的方向), 未知时为 null, 只在相机线程访问
+     */
+    CameraCapabilities capabilities;
+    Size previewSize;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Object mLock = new Object();
+    private final AtomicLong mSkippedFrameCount = new AtomicLong();
+    /**
+     * 外界设置的帧监听器, 只在相机线程访问
+     */
+    private OnPreviewFrameListener mClientFrameListener;
+    /**
+     * 正在采集的连拍, 在相机线程写入, 在帧的生产线程读取
+     */
+    private volatile BurstCapture mBurst;
+    /**
+     * 接收参数更新耗时的回调
+     */
+    private volatile CameraCallback mParametersCallback;
+    /**
+     * 正在处理的参数更新的耗时统计, 从第一次提交开始计时, 只在相机线程访问
+     */
+    private CameraTimings mParametersTimings;
+    /**
+     * 帧率统计, 只在帧的生产线程写入
+     */
+    private volatile int mFpsFrameCount;
+    private volatile long mFpsStartNanos;
+    private volatile long mFpsLastNanos;
+    /**
+     * 尚未执行的 open/close 请求, 同一时刻最多只有一个
+     */
+    private Request mPendingRequest;
+    /**
+     * 视图尚未布局时暂缓执行的 open 请求, 期望尺寸提交后执行, 只在相机线程访问
+     */
+    private Request mParkedOpenRequest;
+    /**
+     * 正在打开的指令的发起时刻, 相机数据准备好时记录打开耗时, 只在相机线程访问
+     * <p>
+     * CameraX 的 performOpen 在绑定后即返回, 真正的打开是异步的, 因此统一以 onCameraReady 为终点.
+     */
+    private long mOpenStartNanos;
+    /**
+     * 暂缓的 open 请求开始执行的时刻, 等待布局的时间不计入打开耗时, 只在相机线程访问
+     */
+    private long mUnparkedNanos;
+
+    /**
+     * @param looper 相机指令执行的线程
+     */
+    AbsCameraDevice(CameraContext context, OnCameraReadyListener listener, Looper looper) {
         this.context = context;
         this.listener = listener;
+        this.handler = new Handler(looper, this);
+        this.config = context.getConfig();
     }
 
     @Override
-    public void notifyFacingChanged() {
-        if (this.facing == context.getFacing()) {
-            return;
+    public void open() {
+        open(null);
+    }
+
+    @Override
+    public void open(@Nullable CameraCallback callback) {
+        enqueueRequest(new Request(CameraTimings.COMMAND_OPEN, callback));
+    }
+
+    @Override
+    public void close() {
+        close(null);
+    }
+
+    @Override
+    public void close(@Nullable CameraCallback callback) {
+        enqueueRequest(new Request(CameraTimings.COMMAND_CLOSE, callback));
+    }
+
+    @Override
+    public void notifyConfigChanged() {
+        // 多次提交合并为一次, 执行时比对最新的快照
+        if (!handler.hasMessages(MSG_CONFIG_CHANGED)) {
+            handler.obtainMessage(MSG_CONFIG_CHANGED,
+                    new CameraTimings(CameraTimings.COMMAND_UPDATE_PARAMETERS)).sendToTarget();
         }
-        this.facing = context.getFacing();
-        if (isCameraOpened()) {
-            open();
+    }
+
+    @Override
+    public void setParametersCallback(@Nullable CameraCallback callback) {
+        mParametersCallback = callback;
+    }
+
+    @Override
+    public void setPreviewFrameListener(@Nullable OnPreviewFrameListener listener) {
+        setPreviewFrameListener(null, null, listener);
+    }
+
+    @Override
+    public void setPreviewFrameListener(@Nullable Executor executor, @Nullable Size analysisSize,
+                                        @Nullable OnPreviewFrameListener listener) {
+        // 指定了 Executor 时, 由分发器只保留最新的一帧
+        if (executor != null && listener != null) {
+            listener = new LatestFrameDispatcher(executor, listener, mSkippedFrameCount);
         }
+        handler.removeMessages(MSG_FRAME_LISTENER_CHANGED);
+        handler.obtainMessage(MSG_FRAME_LISTENER_CHANGED,
+                new FrameStreamRequest(listener, analysisSize)).sendToTarget();
     }
 
     @Override
-    public void notifyAspectRatioChanged() {
-        // Handle this later when camera is opened
-        if (!isCameraOpened()) {
-            aspectRatio = context.getAspectRatio();
+    public void takePicture(@NonNull final OnPictureTakenListener listener) {
+        // 在调用线程记录快门时刻, 不受相机线程排队的影响
+        final long shutterNanos = System.nanoTime();
+        if (!zslRing.isEnabled()) {
+            handler.obtainMessage(MSG_TAKE_PICTURE, listener).sendToTarget();
+            return;
         }
-        // if camera opened
-        if (!aspectRatio.equals(context.getAspectRatio())) {
-            aspectRatio = context.getAspectRatio();
-            open();
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                takeZeroShutterLagPicture(listener, shutterNanos);
+            }
+        });
+    }
+
+    @Override
+    public void captureBurst(int count, long intervalMillis, @NonNull OnBurstListener listener) {
+        BurstCapture burst = new BurstCapture(count, intervalMillis, listener, picturePool,
+                CameraExecutors.encoder());
+        handler.obtainMessage(MSG_START_BURST, burst).sendToTarget();
+    }
+
+    @Override
+    public void setZeroShutterLag(long memoryCapBytes) {
+        handler.obtainMessage(MSG_ZERO_SHUTTER_LAG_CHANGED, memoryCapBytes).sendToTarget();
+    }
+
+    @Override
+    public void focusAt(float x, float y, @Nullable OnFocusListener listener) {
+        Message msg = handler.obtainMessage(MSG_FOCUS, new FocusRequest(x, y, listener));
+        synchronized (mLock) {
+            // 点击对焦对响应时间敏感, 插到队列的最前面, 不等待排队中的其他指令;
+            // 但不能越过尚未执行的打开、关闭或重启, 否则会作用在即将被替换的镜头上
+            if (mPendingRequest == null && !handler.hasMessages(MSG_REOPEN)) {
+                handler.sendMessageAtFrontOfQueue(msg);
+            } else {
+                handler.sendMessage(msg);
+            }
         }
     }
 
     @Override
-    public void notifyScreenOrientationChanged() {
-        if (this.screenOrientationDegrees == context.getScreenOrientationDegrees()) {
+    public long getDroppedFrameCount() {
+        return framePool.getDroppedCount();
+    }
+
+    @Override
+    public long getSkippedFrameCount() {
+        return mSkippedFrameCount.get();
+    }
+
+    @Override
+    public long getFramePoolExhaustedCount() {
+        return framePool.getExhaustedCount();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            // 打开或关闭相机
+            case MSG_OPEN:
+            case MSG_CLOSE:
+                performRequest((Request) msg.obj);
+                break;
+            // 参数变更引起的重启
+            case MSG_REOPEN:
+                if (isCameraOpened()) {
+                    performCommand(new Request(CameraTimings.COMMAND_OPEN, null));
+                }
+                break;
+            case MSG_CONFIG_CHANGED:
+                mParametersTimings = (CameraTimings) msg.obj;
+                syncConfig();
+                mParametersTimings = null;
+                break;
+            case MSG_FRAME_LISTENER_CHANGED:
+                FrameStreamRequest streamRequest = (FrameStreamRequest) msg.obj;
+                analysisSize = streamRequest.analysisSize;
+                mClientFrameListener = streamRequest.listener;
+                performPreviewFrameListenerChanged(getEffectiveFrameListener());
+                break;
+            case MSG_ZERO_SHUTTER_LAG_CHANGED:
+                zslRing.setMemoryCap((Long) msg.obj);
+                // 环需要帧流来填充
+                updateInternalFrameStream();
+                break;
+            case MSG_START_BURST:
+                BurstCapture burst = (BurstCapture) msg.obj;
+                if (mBurst != null) {
+                    burst.fail(new IllegalStateException("Another burst is capturing."));
+                } else if (!isCameraOpened()) {
+                    burst.fail(new IllegalStateException("Camera is not opened."));
+                } else {
+                    mBurst = burst;
+                    updateInternalFrameStream();
+                }
+                break;
+            case MSG_BURST_CAPTURED:
+                if (mBurst == msg.obj) {
+                    mBurst = null;
+                    updateInternalFrameStream();
+                }
+                break;
+            case MSG_TAKE_PICTURE:
+                performTakePicture((OnPictureTakenListener) msg.obj);
+                break;
+            case MSG_FOCUS:
+                FocusRequest focus = (FocusRequest) msg.obj;
+                handler.removeMessages(MSG_FOCUS_RESET);
+                if (!isCameraOpened()) {
+                    dispatchFocusFailed(focus, new IllegalStateException("Camera is not opened."));
+                } else {
+                    performFocus(focus);
+                }
+                break;
+            case MSG_FOCUS_RESET:
+                if (isCameraOpened()) {
+                    performFocusReset();
+                }
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 打开相机并开启预览, 若相机已打开, 则需要按照最新的参数重新开启, 运行在相机线程
+     */
+    abstract void performOpen(@NonNull CameraTimings timings);
+
+    /**
+     * 停止预览并关闭相机, 运行在相机线程
+     */
+    abstract void performClose(@NonNull CameraTimings timings);
+
+    /**
+     * 相机已打开时, 将参数类的变更应用到相机上, 运行在相机线程
+     *
+     * @param changes 变更的字段, 为 {@link CameraConfig#CHANGES_PARAMETERS} 的子集
+     */
+    abstract void performParametersChanged(int changes);
+
+    /**
+     * 相机已打开时, 以代价最小的方式应用配置的变更, 运行在相机线程
+     * <p>
+     * 默认的实现: 预览流相关的变更重启相机, 否则只更新相机参数.
+     *
+     * @param changes 变更的字段, 如 {@link CameraConfig#CHANGED_FACING}
+     */
+    void performConfigChanged(int changes) {
+        // 只有期望尺寸变化时(如视图布局后的实际尺寸), 选中的预览尺寸不变则无需重新打开
+        if ((changes & CameraConfig.CHANGES_STREAM) == CameraConfig.CHANGED_DESIRED_SIZE
+                && !isPreviewSizeChanged()) {
+            changes &= ~CameraConfig.CHANGED_DESIRED_SIZE;
+        }
+        if ((changes & CameraConfig.CHANGES_STREAM) != 0) {
+            requestReopen();
+        } else if ((changes & CameraConfig.CHANGES_PARAMETERS) != 0) {
+            applyParametersChanged(changes & CameraConfig.CHANGES_PARAMETERS);
+        }
+    }
+
+    /**
+     * 按照最新的配置重新选取预览尺寸, 判断与正在使用的是否不同, 运行在相机线程
+     * <p>
+     * 默认的实现: 以 {@link #capabilities} 重新选取, 与 {@link #previewSize} 比较,
+     * 两者未知时认为发生了变化.
+     */
+    boolean isPreviewSizeChanged() {
+        return capabilities == null || previewSize == null
+                || !previewSize.equals(sizeSelector.select(capabilities,
+                getViewSizeInSensorOrientation(), config.getAspectRatio()));
+    }
+
+    /**
+     * 打开相机是否依赖视图的尺寸, 运行在相机线程
+     * <p>
+     * 默认的实现: 预览尺寸按照视图选取, 视图布局之前的 open 请求暂缓执行, 避免按照假设的尺寸打开后再重新打开.
+     */
+    boolean isViewSizeRequired() {
+        return true;
+    }
+
+    /**
+     * 获取朝向为 facing 的镜头的能力, 用于切换朝向之前预选尺寸, 运行在后台线程
+     * <p>
+     * 默认的实现: 不支持预选.
+     *
+     * @return 能力未知时返回 null
+     */
+    @Nullable
+    CameraCapabilities loadLensCapabilities(int facing) {
+        return null;
+    }
+
+    /**
+     * @return 设备对应的引擎, 如 {@link Constants#ENGINE_CAMERA1}, 用于记录测量数据
+     */
+    int getEngine() {
+        return NO_ENGINE;
+    }
+
+    /**
+     * 帧监听器变更, 运行在相机线程, 最新的分析帧分辨率已写入 {@link #analysisSize}
+     */
+    void performPreviewFrameListenerChanged(@Nullable OnPreviewFrameListener listener) {
+        frameListener = listener;
+    }
+
+    /**
+     * 拍照, 运行在相机线程
+     * <p>
+     * 默认的实现: 不支持拍照.
+     */
+    void performTakePicture(@NonNull OnPictureTakenListener listener) {
+        dispatchPictureFailed(listener, new UnsupportedOperationException(
+                getClass().getSimpleName() + " doesn't support taking picture."));
+    }
+
+    /**
+     * 对焦并测光到指定的区域, 运行在相机线程
+     * <p>
+     * 对焦收敛后调用 {@link #dispatchFocused}, 并调用 {@link #scheduleFocusReset()}.
+     * 默认的实现: 不支持点击对焦.
+     */
+    void performFocus(@NonNull FocusRequest request) {
+        dispatchFocusFailed(request, new UnsupportedOperationException(
+                getClass().getSimpleName() + " doesn't support focus areas."));
+    }
+
+    /**
+     * 清除对焦与测光区域, 恢复配置的对焦模式, 运行在相机线程
+     */
+    void performFocusReset() {
+    }
+
+    /**
+     * 保持对焦区域一段时间后, 恢复配置的对焦模式
+     */
+    void scheduleFocusReset() {
+        handler.removeMessages(MSG_FOCUS_RESET);
+        handler.sendEmptyMessageDelayed(MSG_FOCUS_RESET, FOCUS_HOLD_MILLIS);
+    }
+
+    /**
+     * 参数变更后请求重启相机, 运行在相机线程
+     * <p>
+     * 若存在尚未执行的 open/close 请求, 则由该请求按照最新的参数执行, 不再额外重启;
+     * 连续多次的参数变更, 只会触发一次重启.
+     */
+    void requestReopen() {
+        synchronized (mLock) {
+            if (mPendingRequest != null) {
+                return;
+            }
+            if (!handler.hasMessages(MSG_REOPEN)) {
+                handler.sendEmptyMessage(MSG_REOPEN);
+            }
+        }
+    }
+
+    /**
+     * @return 预览视图的尺寸, 按照屏幕方向转换到传感器的方向(横屏)
+     */
+    Size getViewSizeInSensorOrientation() {
+        Size desiredSize = config.getDesiredSize();
+        int degrees = config.getScreenOrientationDegrees();
+        if (degrees == Constants.LANDSCAPE_90 || degrees == Constants.LANDSCAPE_270) {
+            return desiredSize;
+        }
+        return Size.of(desiredSize.getHeight(), desiredSize.getWidth());
+    }
+
+    /**
+     * 将传感器的时间戳换算到 {@link System#nanoTime()} 的基准, 用于与快门时刻比较
+     * <p>
+     * 传感器时间戳的基准可能与 nanoTime 一致(CLOCK_MONOTONIC), 也可能是
+     * {@link SystemClock#elapsedRealtimeNanos()}(TIMESTAMP_SOURCE_REALTIME), 按照与两者的差值判断;
+     * 都不可比时回退到帧到达的时刻.
+     */
+    static long toNanoTime(long sensorNanos) {
+        long now = System.nanoTime();
+        long lag = now - sensorNanos;
+        if (lag >= 0 && lag <= MAX_SENSOR_LAG_NANOS) {
+            return sensorNanos;
+        }
+        lag = SystemClock.elapsedRealtimeNanos() - sensorNanos;
+        if (lag >= 0 && lag <= MAX_SENSOR_LAG_NANOS) {
+            return now - lag;
+        }
+        return now;
+    }
+
+    /**
+     * 在主线程通知外界相机数据准备好了
+     */
+    void dispatchCameraReady(@NonNull final SurfaceTexture cameraTexture,
+                             @NonNull final Size textureSize, final int displayRotation) {
+        recordOpenMillis();
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            listener.onCameraReady(cameraTexture, textureSize, displayRotation);
             return;
         }
-        this.screenOrientationDegrees = context.getScreenOrientationDegrees();
-        if (isCameraOpened()) {
-            open();
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onCameraReady(cameraTexture, textureSize, displayRotation);
+            }
+        });
+    }
+
+    /**
+     * 将一帧数据分发给外界, 没有监听者时直接归还
+     */
+    void dispatchPreviewFrame(PreviewFrame frame) {
+        if (mFpsFrameCount++ == 0) {
+            mFpsStartNanos = frame.getTimestamp();
+        }
+        mFpsLastNanos = frame.getTimestamp();
+        zslRing.push(frame);
+        BurstCapture burst = mBurst;
+        if (burst != null && burst.offer(frame, frameRotationDegrees)) {
+            handler.obtainMessage(MSG_BURST_CAPTURED, burst).sendToTarget();
+        }
+        OnPreviewFrameListener listener = frameListener;
+        if (listener != null) {
+            listener.onPreviewFrame(frame);
+        } else {
+            framePool.drop(frame);
         }
     }
 
-    @Override
-    public void notifyDesiredSizeChanged() {
-        if (previewWidth == context.getDesiredSize().getWidth()
-                && previewHeight == context.getDesiredSize().getHeight()) {
+    /**
+     * 在后台线程将照片分发给外界
+     */
+    void dispatchPictureTaken(@NonNull final OnPictureTakenListener listener,
+                              @NonNull final Picture picture) {
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onPictureTaken(picture);
+            }
+        });
+    }
+
+    /**
+     * 在后台线程通知外界拍照失败
+     */
+    void dispatchPictureFailed(@NonNull final OnPictureTakenListener listener,
+                               @NonNull final Throwable error) {
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onPictureFailed(error);
+            }
+        });
+    }
+
+    /**
+     * 在主线程通知外界对焦收敛了, 耗时从调用 {@link #focusAt} 开始计算
+     */
+    void dispatchFocused(@NonNull final FocusRequest request, final boolean focused) {
+        final long focusMillis = (System.nanoTime() - request.requestNanos) / 1000000;
+        Log.i(TAG, "Focus converged in " + focusMillis + "ms, focused: " + focused);
+        if (request.listener == null) {
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                request.listener.onFocused(focused, focusMillis);
+            }
+        });
+    }
+
+    /**
+     * 在主线程通知外界对焦失败
+     */
+    void dispatchFocusFailed(@NonNull final FocusRequest request, @NonNull final Throwable error) {
+        Log.w(TAG, "Focus failed: " + error.getMessage());
+        if (request.listener == null) {
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                request.listener.onFocusFailed(error);
+            }
+        });
+    }
+
+    /**
+     * 从环中取出最接近快门时刻的一帧编码为 JPEG, 运行在后台线程
+     * <p>
+     * 环中没有帧时, 回退到设备的拍照流程.
+     */
+    private void takeZeroShutterLagPicture(OnPictureTakenListener listener, long shutterNanos) {
+        FrameRing.Slot slot = zslRing.acquireClosest(shutterNanos);
+        if (slot == null) {
+            handler.obtainMessage(MSG_TAKE_PICTURE, listener).sendToTarget();
+            return;
+        }
+        ByteBuffer buffer;
+        long frameNanos = slot.timestampNanos;
+        try {
+            buffer = JpegEncoder.encode(slot.data, slot.width, slot.height,
+                    JpegEncoder.DEFAULT_QUALITY, picturePool);
+        } catch (Throwable e) {
+            listener.onPictureFailed(e);
+            return;
+        } finally {
+            zslRing.release(slot);
+        }
+        long jpegNanos = System.nanoTime();
+        Picture picture = new Picture(picturePool, buffer, slot.width, slot.height,
+                jpegNanos - shutterNanos, jpegNanos - frameNanos, frameRotationDegrees);
+        Log.i(TAG, "Zero shutter lag picture taken: " + picture + ", frame offset "
+                + (frameNanos - shutterNanos) / 1000000 + "ms");
+        listener.onPictureTaken(picture);
+    }
+
+    /**
+     * @return 外界的帧监听器; 外界没有设置, 但零延迟拍照或连拍需要帧流时, 返回内部的监听器
+     */
+    @Nullable
+    private OnPreviewFrameListener getEffectiveFrameListener() {
+        if (mClientFrameListener != null) {
+            return mClientFrameListener;
+        }
+        return zslRing.isEnabled() || mBurst != null ? INTERNAL_LISTENER : null;
+    }
+
+    /**
+     * 外界没有帧监听器时, 按照内部的需要开关帧流
+     */
+    private void updateInternalFrameStream() {
+        OnPreviewFrameListener listener = getEffectiveFrameListener();
+        if (mClientFrameListener == null && listener != frameListener) {
+            performPreviewFrameListenerChanged(listener);
+        }
+    }
+
+    private void syncConfig() {
+        CameraConfig latest = context.getConfig();
+        int changes = latest.diff(config);
+        config = latest;
+        // 第一次提交了视图的尺寸, 执行暂缓的 open 请求
+        if (mParkedOpenRequest != null && hasDesiredSize(latest)) {
+            Request parked = mParkedOpenRequest;
+            mParkedOpenRequest = null;
+            mUnparkedNanos = System.nanoTime();
+            performCommand(parked);
+            return;
+        }
+        // 相机未打开时, 在下次打开时生效
+        if (changes != 0 && isCameraOpened()) {
+            performConfigChanged(changes);
+        }
+    }
+
+    /**
+     * 投递 open/close 请求, 并取代尚未执行的旧请求
+     */
+    private void enqueueRequest(Request request) {
+        Request stale;
+        synchronized (mLock) {
+            stale = mPendingRequest;
+            mPendingRequest = request;
+            handler.removeMessages(MSG_OPEN);
+            handler.removeMessages(MSG_CLOSE);
+            handler.removeMessages(MSG_REOPEN);
+            handler.obtainMessage(request.timings.getCommand() == CameraTimings.COMMAND_OPEN
+                    ? MSG_OPEN : MSG_CLOSE, request).sendToTarget();
+        }
+        if (stale != null) {
+            dispatchSuperseded(stale);
+        }
+    }
+
+    private void performRequest(Request request) {
+        synchronized (mLock) {
+            // 已经被新的请求取代
+            if (mPendingRequest != request) {
+                return;
+            }
+            mPendingRequest = null;
+        }
+        // 新的请求取代暂缓的 open 请求
+        Request parked = mParkedOpenRequest;
+        mParkedOpenRequest = null;
+        if (parked != null) {
+            dispatchSuperseded(parked);
+        }
+        if (request.timings.getCommand() == CameraTimings.COMMAND_OPEN
+                && isViewSizeRequired() && !hasDesiredSize(context.getConfig())) {
+            Log.i(TAG, "View is not laid out, open is parked until the desired size is committed.");
+            mParkedOpenRequest = request;
+            return;
+        }
+        performCommand(request);
+    }
+
+    private static boolean hasDesiredSize(CameraConfig config) {
+        Size desiredSize = config.getDesiredSize();
+        return desiredSize.getWidth() > 0 && desiredSize.getHeight() > 0;
+    }
+
+    private void performCommand(Request request) {
+        CameraTimings timings = request.timings;
+        timings.mark(CameraTimings.PHASE_QUEUE);
+        // 重新打开或关闭后, 对焦模式已按照配置恢复
+        handler.removeMessages(MSG_FOCUS_RESET);
+        // 重新打开后镜头或尺寸可能已变更, 旧的帧不能再用于拍照
+        zslRing.clear();
+        if (timings.getCommand() == CameraTimings.COMMAND_CLOSE && mBurst != null) {
+            mBurst.fail(new IllegalStateException("Camera is closed during burst."));
+            mBurst = null;
+        }
+        recordFps();
+        // 只记录冷启动的打开耗时; 相机已打开时, Camera1 可能原地重新配置, 耗时不具有可比性
+        mOpenStartNanos = timings.getCommand() == CameraTimings.COMMAND_OPEN
+                && getEngine() != NO_ENGINE && !isCameraOpened()
+                ? Math.max(timings.getStartNanos(), mUnparkedNanos) : 0;
+        try {
+            if (timings.getCommand() == CameraTimings.COMMAND_OPEN) {
+                // 总是按照最新的快照打开, 队列中尚未处理的配置变更随之失效
+                config = context.getConfig();
+                performOpen(timings);
+            } else {
+                performClose(timings);
+            }
+            timings.finish();
+            Log.i(TAG, "Camera command completed: " + timings);
+            if (timings.getCommand() == CameraTimings.COMMAND_OPEN) {
+                preselectOppositeLens();
+            }
+            dispatchCompleted(request);
+        } catch (Throwable e) {
+            Log.e(TAG, "Camera command failed: " + timings, e);
+            mOpenStartNanos = 0;
+            try {
+                performClose(timings);
+            } catch (Throwable ignore) {
+                // ignore.
+            }
+            dispatchFailed(request, e);
+        }
+    }
+
+    /**
+     * 将这一轮合并后的参数变更一次性应用到相机上, 并回调耗时
+     */
+    private void applyParametersChanged(int changes) {
+        CameraTimings timings = mParametersTimings != null ? mParametersTimings
+                : new CameraTimings(CameraTimings.COMMAND_UPDATE_PARAMETERS);
+        mParametersTimings = null;
+        timings.mark(CameraTimings.PHASE_QUEUE);
+        final CameraCallback callback = mParametersCallback;
+        try {
+            performParametersChanged(changes);
+            timings.mark(CameraTimings.PHASE_CONFIGURE);
+            timings.finish();
+            Log.i(TAG, "Camera command completed: " + timings);
+            if (callback != null) {
+                dispatchCompleted(new Request(timings, callback));
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Camera command failed: " + timings, e);
+            if (callback != null) {
+                dispatchFailed(new Request(timings, callback), e);
+            }
+        }
+    }
+
+    /**
+     * 在后台加载另一朝向镜头的能力并预选尺寸, 切换朝向时直接命中缓存
+     */
+    private void preselectOppositeLens() {
+        final int facing = config.getFacing() == Constants.FACING_BACK
+                ? Constants.FACING_FRONT : Constants.FACING_BACK;
+        final Size viewSize = getViewSizeInSensorOrientation();
+        final AspectRatio aspectRatio = config.getAspectRatio();
+        // 视图尚未布局, 布局之后会重新打开
+        if (viewSize.getWidth() == 0 || viewSize.getHeight() == 0) {
+            return;
+        }
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    CameraCapabilities lens = loadLensCapabilities(facing);
+                    if (lens != null) {
+                        sizeSelector.select(lens, viewSize, aspectRatio);
+                    }
+                } catch (Throwable e) {
+                    Log.w(TAG, "Preselect lens facing " + facing + " failed.", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 记录从打开指令发起到相机数据准备好的耗时, 每次冷启动只记录一次
+     */
+    private void recordOpenMillis() {
+        long startNanos = mOpenStartNanos;
+        if (startNanos == 0) {
+            return;
+        }
+        mOpenStartNanos = 0;
+        BackendPolicy.getInstance(context).recordOpenMillis(getEngine(),
+                (System.nanoTime() - startNanos) / 1000000);
+    }
+
+    /**
+     * 记录上一次打开期间帧流的实际帧率, 并重新开始统计
+     */
+    private void recordFps() {
+        int frameCount = mFpsFrameCount;
+        long durationNanos = mFpsLastNanos - mFpsStartNanos;
+        mFpsFrameCount = 0;
+        if (getEngine() != NO_ENGINE && frameCount >= MIN_FPS_SAMPLE_FRAMES
+                && durationNanos > 0) {
+            BackendPolicy.getInstance(context).recordFps(getEngine(),
+                    (frameCount - 1) * 1e9f / durationNanos);
+        }
+    }
+
+    private void dispatchCompleted(final Request request) {
+        if (request.callback == null) {
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                request.callback.onCompleted(request.timings);
+            }
+        });
+    }
+
+    private void dispatchSuperseded(final Request request) {
+        if (request.callback == null) {
             return;
         }
-        previewWidth = context.getDesiredSize().getWidth();
-        previewHeight = context.getDesiredSize().getHeight();
-        if (isCameraOpened()) {
-            open();
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                request.callback.onSuperseded();
+            }
+        });
+    }
+
+    private void dispatchFailed(final Request request, final Throwable error) {
+        if (request.callback == null) {
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                request.callback.onFailed(error);
+            }
+        });
+    }
+
+    private static class Request {
+
+        final CameraTimings timings;
+        final CameraCallback callback;
+
+        Request(int command, CameraCallback callback) {
+            this(new CameraTimings(command), callback);
+        }
+
+        Request(CameraTimings timings, CameraCallback callback) {
+            this.timings = timings;
+            this.callback = callback;
         }
+
+    }
+
+    /**
+     * 点击对焦的请求, 坐标为撤销 centerCrop 之后的显示坐标
+     */
+    static class FocusRequest {
+
+        final float x;
+        final float y;
+        final OnFocusListener listener;
+        final long requestNanos = System.nanoTime();
+
+        FocusRequest(float x, float y, OnFocusListener listener) {
+            this.x = x;
+            this.y = y;
+            this.listener = listener;
+        }
+
+    }
+
+    private static class FrameStreamRequest {
+
+        final OnPreviewFrameListener listener;
+        final Size analysisSize;
+
+        FrameStreamRequest(OnPreviewFrameListener listener, Size analysisSize) {
+            this.listener = listener;
+            this.analysisSize = analysisSize;
+        }
+
     }
 
 }
@@ -0,0 +1,112 @@
+package com.sharry.lib.camera;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 按设备选择相机引擎的策略
+ * <p>
+ * 每个引擎记录打开耗时与实际帧率的滑动平均, 持久化在 SharedPreferences 中, 系统升级后失效.
+ * 测量数据来自显式指定引擎时的实际运行, 或者由外界导入的基准测试结果.
+ * 至少两个可用引擎有测量数据时, 选择代价最低的一个, 否则使用默认的顺序.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class BackendPolicy {
+
+    private static final String TAG = BackendPolicy.class.getSimpleName();
+    private static final String PREFS_NAME = "scamera_backend_policy";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_OPEN_MILLIS = ".openMillis";
+    private static final String KEY_FPS = ".fps";
+
+    /**
+     * 滑动平均中新样本的权重
+     */
+    private static final float SMOOTHING = 0.3f;
+    /**
+     * 帧率低于目标时, 每少 1fps 折算的打开耗时
+     */
+    private static final float TARGET_FPS = 30f;
+    private static final float MILLIS_PER_MISSING_FPS = 20f;
+
+    private static volatile BackendPolicy sInstance;
+
+    static BackendPolicy getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            synchronized (BackendPolicy.class) {
+                if (sInstance == null) {
+                    sInstance = new BackendPolicy(context.getApplicationContext());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private final SharedPreferences mPrefs;
+
+    private BackendPolicy(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        // 系统升级后相机 HAL 可能变化, 旧的测量数据不再可信
+        if (!Build.FINGERPRINT.equals(mPrefs.getString(KEY_FINGERPRINT, null))) {
+            mPrefs.edit().clear().putString(KEY_FINGERPRINT, Build.FINGERPRINT).apply();
+        }
+    }
+
+    /**
+     * @param candidates    可用的引擎
+     * @param defaultEngine 测量数据不足时使用的引擎
+     */
+    int choose(int[] candidates, int defaultEngine) {
+        int best = -1;
+        float bestCost = Float.MAX_VALUE;
+        int measured = 0;
+        for (int engine : candidates) {
+            float cost = cost(engine);
+            if (cost < 0) {
+                continue;
+            }
+            measured++;
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = engine;
+            }
+        }
+        int result = measured >= 2 ? best : defaultEngine;
+        Log.i(TAG, "Choose engine " + result + ", measured " + measured + " engines.");
+        return result;
+    }
+
+    synchronized void recordOpenMillis(int engine, long openMillis) {
+        record(engine + KEY_OPEN_MILLIS, openMillis);
+    }
+
+    synchronized void recordFps(int engine, float fps) {
+        record(engine + KEY_FPS, fps);
+    }
+
+    /**
+     * @return 引擎的代价, 没有打开耗时的测量数据时返回 -1
+     */
+    private float cost(int engine) {
+        float openMillis = mPrefs.getFloat(engine + KEY_OPEN_MILLIS, -1);
+        if (openMillis < 0) {
+            return -1;
+        }
+        float fps = mPrefs.getFloat(engine + KEY_FPS, TARGET_FPS);
+        return openMillis + Math.max(0, TARGET_FPS - fps) * MILLIS_PER_MISSING_FPS;
+    }
+
+    private void record(String key, float sample) {
+        float previous = mPrefs.getFloat(key, -1);
+        float value = previous < 0 ? sample : previous + (sample - previous) * SMOOTHING;
+        mPrefs.edit().putFloat(key, value).apply();
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.sharry.lib.camera;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次连拍
+ * <p>
+ * 帧的生产线程按照间隔从帧流中拷贝帧到独立的缓冲池, 编码交由编码线程池并行执行;
+ * 缓冲池的容量即流水线的深度, 编码跟不上时跳过当前帧, 等待下一帧, 不阻塞帧的生产.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class BurstCapture {
+
+    private static final String TAG = BurstCapture.class.getSimpleName();
+
+    /**
+     * 同时在编码的帧数
+     */
+    private static final int PIPELINE_DEPTH = 4;
+
+    private final int mCount;
+    private final long mIntervalNanos;
+    private final OnBurstListener mListener;
+    private final DirectBufferPool mPicturePool;
+    private final Executor mEncoder;
+    private final FrameBufferPool mFramePool = new FrameBufferPool(PIPELINE_DEPTH);
+    private final long[] mFrameNanos;
+    private final long[] mEncodeNanos;
+    private final AtomicInteger mEncodedCount = new AtomicInteger();
+    private final AtomicBoolean mFinished = new AtomicBoolean();
+    /**
+     * 已经采集的帧数, 只在帧的生产线程访问
+     */
+    private int mCapturedCount;
+    private long mNextDueNanos;
+
+    BurstCapture(int count, long intervalMillis, @NonNull OnBurstListener listener,
+                 @NonNull DirectBufferPool picturePool, @NonNull Executor encoder) {
+        if (count <= 0 || intervalMillis < 0) {
+            throw new IllegalArgumentException("Illegal burst: count = " + count
+                    + ", interval = " + intervalMillis + "ms");
+        }
+        mCount = count;
+        mIntervalNanos = intervalMillis * 1000000;
+        mListener = listener;
+        mPicturePool = picturePool;
+        mEncoder = encoder;
+        mFrameNanos = new long[count];
+        mEncodeNanos = new long[count];
+    }
+
+    /**
+     * 从帧流中采集一帧, 运行在帧的生产线程, 调用返回后 frame 仍归调用方所有
+     *
+     * @param rotationDegrees 帧显示前需要顺时针旋转的角度
+     * @return 是否已经采集完所有的帧
+     */
+    boolean offer(@NonNull PreviewFrame frame, int rotationDegrees) {
+        if (mCapturedCount == mCount || mFinished.get()) {
+            return true;
+        }
+        long timestamp = frame.getTimestamp();
+        if (mCapturedCount > 0 && timestamp < mNextDueNanos) {
+            return false;
+        }
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (mFramePool.getWidth() != width || mFramePool.getHeight() != height) {
+            mFramePool.prepare(width, height, null);
+        }
+        PreviewFrame copy = mFramePool.acquire(timestamp);
+        if (copy == null) {
+            // 编码跟不上, 跳过这一帧
+            return false;
+        }
+        System.arraycopy(frame.getData(), 0, copy.getData(), 0, width * height * 3 / 2);
+        int index = mCapturedCount++;
+        mFrameNanos[index] = timestamp;
+        mNextDueNanos = timestamp + mIntervalNanos;
+        mEncoder.execute(new EncodeTask(index, copy, rotationDegrees));
+        return mCapturedCount == mCount;
+    }
+
+    /**
+     * 通知连拍失败, 尚未交付的帧被丢弃, 可在任意线程调用
+     */
+    void fail(@NonNull Throwable error) {
+        if (mFinished.compareAndSet(false, true)) {
+            mListener.onBurstFailed(error);
+        }
+    }
+
+    private void encode(int index, PreviewFrame frame, int rotationDegrees) {
+        try {
+            if (mFinished.get()) {
+                return;
+            }
+            long startNanos = System.nanoTime();
+            ByteBuffer jpeg = JpegEncoder.encode(frame.getData(), frame.getWidth(),
+                    frame.getHeight(), JpegEncoder.DEFAULT_QUALITY, mPicturePool);
+            long endNanos = System.nanoTime();
+            mEncodeNanos[index] = endNanos - startNanos;
+            Picture picture = new Picture(mPicturePool, jpeg, frame.getWidth(), frame.getHeight(),
+                    endNanos - frame.getTimestamp(), endNanos - frame.getTimestamp(),
+                    rotationDegrees);
+            mListener.onBurstFrame(index, picture);
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            frame.release();
+        }
+        // 计数保证了所有编码线程的写入对完成回调可见
+        if (mEncodedCount.incrementAndGet() == mCount && mFinished.compareAndSet(false, true)) {
+            BurstStats stats = new BurstStats(mFrameNanos, mEncodeNanos, System.nanoTime());
+            Log.i(TAG, "Burst completed: " + stats);
+            mListener.onBurstCompleted(stats);
+        }
+    }
+
+    private class EncodeTask implements Runnable {
+
+        private final int mIndex;
+        private final PreviewFrame mFrame;
+        private final int mRotationDegrees;
+
+        EncodeTask(int index, PreviewFrame frame, int rotationDegrees) {
+            mIndex = index;
+            mFrame = frame;
+            mRotationDegrees = rotationDegrees;
+        }
+
+        @Override
+        public void run() {
+            encode(mIndex, mFrame, mRotationDegrees);
+        }
+
+    }
+
+}
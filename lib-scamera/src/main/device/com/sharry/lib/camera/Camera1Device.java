@@ -1,14 +1,18 @@
 package com.sharry.lib.camera;
 
-import android.graphics.Bitmap;
+import android.graphics.ImageFormat;
 import android.graphics.SurfaceTexture;
 import android.hardware.Camera;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.collection.SparseArrayCompat;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.SortedSet;
 
 /**
  * Camera1 实现的相机引擎
@@ -17,7 +21,7 @@ import java.util.SortedSet;
  * @version 1.0
  * @since 2019-04-24
  */
-class Camera1Device extends AbsCameraDevice {
+class Camera1Device extends AbsCameraDevice implements Camera.PreviewCallback {
 
     private static final String TAG = Camera1Device.class.getSimpleName();
     private static final SparseArrayCompat<String> FLASH_MODES = new SparseArrayCompat<>();
@@ -32,18 +36,54 @@ class Camera1Device extends AbsCameraDevice {
 
     private static final int MAGIC_TEXTURE_ID = 0;
     private static final int INVALID_CAMERA_ID = -1;
+    /**
+     * Camera1 的预览回调不带时间戳, 估算从曝光到回调经过的帧数(曝光、ISP 处理与回调的排队)
+     */
+    private static final int CALLBACK_DELAY_FRAMES = 2;
 
     private final Camera.CameraInfo mCameraInfo = new Camera.CameraInfo();
-    private final SizeMap mPreviewSizes = new SizeMap();
-    private final SizeMap mPictureSizes = new SizeMap();
     private final SurfaceTexture mBufferTexture;
+    private final CameraCapabilityCache mCapabilityCache;
 
-    private Camera mImpl;
+    private volatile Camera mImpl;
     private Camera.Parameters mCameraParams;
+    private int mCameraId = INVALID_CAMERA_ID;
+    private Size mPictureSize;
+    /**
+     * 实际生效的闪光灯模式, 相机不支持时会回退为 {@link Constants#FLASH_OFF}
+     */
+    private int mFlashMode = Constants.FLASH_OFF;
+    /**
+     * 相机默认的帧率范围, 用于恢复 {@link Constants#PROFILE_DEFAULT}
+     */
+    private final int[] mDefaultFpsRange = new int[2];
+    /**
+     * 按照生效的帧率范围估算的从曝光到预览回调的耗时, 在相机线程写入, 在回调线程读取
+     */
+    private volatile long mCallbackDelayNanos;
+    /**
+     * 正在进行的拍照, 同一时刻最多只有一个
+     */
+    private PictureRequest mPictureRequest;
+    /**
+     * 拍照过程中推迟执行的配置变更
+     */
+    private int mDeferredChanges;
+    /**
+     * 正在进行的点击对焦, 只在相机线程访问
+     */
+    private FocusRequest mFocusRequest;
 
     Camera1Device(CameraContext context, OnCameraReadyListener listener) {
-        super(context, listener);
+        super(context, listener, CameraThread.getLooper());
         mBufferTexture = new SurfaceTexture(MAGIC_TEXTURE_ID);
+        mCapabilityCache = CameraCapabilityCache.getInstance(context);
+        mCapabilityCache.preload();
+    }
+
+    @Override
+    int getEngine() {
+        return Constants.ENGINE_CAMERA1;
     }
 
     @Override
@@ -51,16 +91,55 @@ class Camera1Device extends AbsCameraDevice {
         return mImpl != null;
     }
 
+    /**
+     * Camera1 只有打开相机之后才能获取能力, 只使用缓存
+     */
+    @Nullable
+    @Override
+    CameraCapabilities loadLensCapabilities(int facing) {
+        List<CameraCapabilities> lenses = mCapabilityCache.getLenses(
+                CameraCapabilityCache.API_CAMERA1);
+        if (lenses == null) {
+            return null;
+        }
+        for (CameraCapabilities lens : lenses) {
+            if (lens.facing == facing) {
+                CameraCapabilities capabilities = mCapabilityCache.get(
+                        CameraCapabilityCache.API_CAMERA1, lens.cameraId);
+                return capabilities != null && capabilities.hasStreamInfo() ? capabilities : null;
+            }
+        }
+        return null;
+    }
+
     @Override
-    public void open() {
+    void performOpen(@NonNull CameraTimings timings) {
+        int cameraId = chooseCamera(config.getFacing());
+        // 相机 id 未变更时, 不释放相机, 原地重新配置
+        if (isCameraOpened() && cameraId == mCameraId) {
+            reconfigureInternal(timings);
+            return;
+        }
         // Stop preview first.
-        close();
+        performClose(timings);
         // 根据 Options 初始化相机
-        startPreviewInternal();
+        startPreviewInternal(cameraId, timings);
     }
 
     @Override
-    public void close() {
+    void performClose(@NonNull CameraTimings timings) {
+        // 相机关闭后不会再回调 JPEG 数据
+        if (mPictureRequest != null) {
+            dispatchPictureFailed(mPictureRequest.listener,
+                    new IllegalStateException("Camera closed before the picture was taken."));
+            mPictureRequest = null;
+        }
+        mDeferredChanges = 0;
+        if (mFocusRequest != null) {
+            dispatchFocusFailed(mFocusRequest,
+                    new IllegalStateException("Camera closed before the focus converged."));
+            mFocusRequest = null;
+        }
         if (null != mImpl) {
             try {
                 // 停止预览
@@ -68,149 +147,481 @@ class Camera1Device extends AbsCameraDevice {
                 /*
                  移除回调, 否则会扔出: Camera is being used after Camera.release() was called
                 */
-                mImpl.setPreviewCallback(null);
+                mImpl.setPreviewCallbackWithBuffer(null);
+                // 解除缓冲池与相机的绑定, 之后归还的缓冲不会再调用 addCallbackBuffer
+                framePool.invalidate();
                 mImpl.release();
-                mImpl = null;
                 Log.i(TAG, "Camera release success.");
             } catch (Throwable e) {
                 // ignore.
+            } finally {
+                mImpl = null;
+                mCameraId = INVALID_CAMERA_ID;
             }
         }
+        timings.mark(CameraTimings.PHASE_RELEASE);
     }
 
     @Override
-    public Bitmap takePicture() {
-        close();
-        return null;
+    void performConfigChanged(int changes) {
+        // 拍照过程中不能操作预览和参数, 等 JPEG 回调之后再执行
+        if (mPictureRequest != null) {
+            mDeferredChanges |= changes;
+            return;
+        }
+        super.performConfigChanged(changes);
     }
 
     @Override
-    public void notifyAutoFocusChanged() {
-        // is previewing
-        if (isCameraOpened()) {
-            if (this.autoFocus == context.isAutoFocus()) {
-                return;
+    void performParametersChanged(int changes) {
+        boolean modified = false;
+        if ((changes & CameraConfig.CHANGED_AUTO_FOCUS) != 0) {
+            setAutoFocusInternal(config.isAutoFocus());
+            modified = true;
+        }
+        if ((changes & CameraConfig.CHANGED_FLASH_MODE) != 0) {
+            modified |= setFlashInternal(config.getFlashMode());
+        }
+        // 预览过程中可以直接修改帧率, 无需重启
+        if ((changes & CameraConfig.CHANGED_CAPTURE_PROFILE) != 0) {
+            modified |= setFpsRangeInternal(config.getCaptureProfile());
+        }
+        if ((changes & CameraConfig.CHANGED_ZOOM) != 0) {
+            modified |= setZoomInternal(config.getZoom());
+        }
+        if ((changes & CameraConfig.CHANGED_EXPOSURE_COMPENSATION) != 0) {
+            modified |= setExposureCompensationInternal(config.getExposureCompensation());
+        }
+        // 合并为一次 setParameters, 每次调用都会完整地序列化并解析参数, 部分机型耗时数十毫秒
+        if (modified) {
+            try {
+                mImpl.setParameters(mCameraParams);
+            } catch (RuntimeException e) {
+                // 参数被拒绝, 恢复为相机当前实际生效的参数
+                mCameraParams = mImpl.getParameters();
+                throw e;
             }
-            this.autoFocus = context.isAutoFocus();
-            // resetMatrix params
-            setAutoFocusInternal(autoFocus);
+        }
+    }
+
+    @Override
+    void performFocus(@NonNull final FocusRequest request) {
+        // 拍照过程中不能修改参数
+        if (mPictureRequest != null) {
+            dispatchFocusFailed(request, new IllegalStateException("Camera is taking picture."));
+            return;
+        }
+        boolean supportsAutoFocus = capabilities.supportsFocusMode(
+                Camera.Parameters.FOCUS_MODE_AUTO);
+        int maxFocusAreas = mCameraParams.getMaxNumFocusAreas();
+        int maxMeteringAreas = mCameraParams.getMaxNumMeteringAreas();
+        if (!supportsAutoFocus && maxMeteringAreas == 0) {
+            dispatchFocusFailed(request, new UnsupportedOperationException(
+                    "Camera " + mCameraId + " supports neither auto focus nor metering areas."));
+            return;
+        }
+        // 1. 取消尚未收敛的上一次对焦
+        if (mFocusRequest != null) {
+            mImpl.cancelAutoFocus();
+            dispatchFocusFailed(mFocusRequest,
+                    new IllegalStateException("Superseded by a newer focus request."));
+            mFocusRequest = null;
+        }
+        // 2. 将显示坐标映射到传感器坐标系, 与 setDisplayOrientation 的旋转和镜像互逆
+        int displayOrientation = calcPreviewFrameOrientation(config.getScreenOrientationDegrees());
+        boolean mirror = mCameraInfo.facing == Camera.CameraInfo.CAMERA_FACING_FRONT;
+        if (maxFocusAreas > 0) {
+            mCameraParams.setFocusAreas(Collections.singletonList(new Camera.Area(
+                    FocusArea.toSensorArea(request.x, request.y, displayOrientation, mirror,
+                            FocusArea.FOCUS_SIZE), 1000)));
+        }
+        if (maxMeteringAreas > 0) {
+            mCameraParams.setMeteringAreas(Collections.singletonList(new Camera.Area(
+                    FocusArea.toSensorArea(request.x, request.y, displayOrientation, mirror,
+                            FocusArea.METERING_SIZE), 1000)));
+        }
+        // 3. 连续对焦模式下 autoFocus 会等待当前的扫描结束, 切到单次对焦立即按新区域扫描
+        if (supportsAutoFocus) {
+            mCameraParams.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
+        }
+        try {
             mImpl.setParameters(mCameraParams);
+        } catch (RuntimeException e) {
+            mCameraParams = mImpl.getParameters();
+            dispatchFocusFailed(request, e);
+            return;
         }
-        // not previewing
-        else {
-            this.autoFocus = context.isAutoFocus();
+        // 4. 定焦镜头只应用测光区域
+        if (!supportsAutoFocus) {
+            dispatchFocused(request, false);
+            scheduleFocusReset();
+            return;
         }
+        // 5. 开始对焦, 回调在打开相机的线程, 即相机线程
+        mFocusRequest = request;
+        mImpl.autoFocus(new Camera.AutoFocusCallback() {
+            @Override
+            public void onAutoFocus(boolean success, Camera camera) {
+                // 已被取代或相机已关闭
+                if (mFocusRequest != request) {
+                    return;
+                }
+                mFocusRequest = null;
+                dispatchFocused(request, success);
+                scheduleFocusReset();
+            }
+        });
     }
 
     @Override
-    public void notifyFlashModeChanged() {
-        // is previewing
-        if (isCameraOpened()) {
-            if (flashMode == context.getFlashMode()) {
-                return;
-            }
-            // resetMatrix params
-            if (setFlashInternal(context.getFlashMode())) {
-                mImpl.setParameters(mCameraParams);
-            }
+    void performFocusReset() {
+        // 拍照结束后再恢复
+        if (mPictureRequest != null) {
+            scheduleFocusReset();
+            return;
         }
-        // not previewing
-        else {
-            flashMode = context.getFlashMode();
+        try {
+            mImpl.cancelAutoFocus();
+            clearFocusAreasInternal();
+            setAutoFocusInternal(config.isAutoFocus());
+            mImpl.setParameters(mCameraParams);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Reset focus areas failed.", e);
+            mCameraParams = mImpl.getParameters();
+        }
+    }
+
+    @Override
+    void performPreviewFrameListenerChanged(@Nullable OnPreviewFrameListener listener) {
+        OnPreviewFrameListener prev = frameListener;
+        frameListener = listener;
+        if (!isCameraOpened()) {
+            return;
+        }
+        if (prev == null && listener != null) {
+            startFrameStream();
+        } else if (prev != null && listener == null) {
+            stopFrameStream();
+        }
+    }
+
+    @Override
+    void performTakePicture(@NonNull OnPictureTakenListener listener) {
+        if (!isCameraOpened()) {
+            dispatchPictureFailed(listener, new IllegalStateException("Camera is not opened."));
+            return;
+        }
+        if (mPictureRequest != null) {
+            dispatchPictureFailed(listener, new IllegalStateException("Camera is taking picture."));
+            return;
+        }
+        final PictureRequest request = new PictureRequest(listener, mPictureSize);
+        mPictureRequest = request;
+        try {
+            // 拍照尺寸已在 applyParametersToCache 中设置, 回调在相机线程
+            mImpl.takePicture(
+                    new Camera.ShutterCallback() {
+                        @Override
+                        public void onShutter() {
+                            request.shutterNanos = System.nanoTime();
+                        }
+                    },
+                    null,
+                    new Camera.PictureCallback() {
+                        @Override
+                        public void onPictureTaken(byte[] data, Camera camera) {
+                            onJpegTaken(request, data);
+                        }
+                    }
+            );
+        } catch (RuntimeException e) {
+            mPictureRequest = null;
+            dispatchPictureFailed(listener, e);
+        }
+    }
+
+    @Override
+    public void onPreviewFrame(byte[] data, Camera camera) {
+        if (data == null) {
+            return;
+        }
+        // 回调没有传感器时间戳, 减去估算的延迟, 近似为曝光的时刻
+        PreviewFrame frame = framePool.obtain(data, System.nanoTime() - mCallbackDelayNanos);
+        if (frame != null) {
+            dispatchPreviewFrame(frame);
         }
     }
 
     /**
-     * 开启预览真正的逻辑实现
+     * 拿到 JPEG 数据, 运行在相机线程
      */
-    private void startPreviewInternal() {
+    private void onJpegTaken(final PictureRequest request, final byte[] data) {
+        final long jpegNanos = System.nanoTime();
+        // 拍照过程中相机已被关闭
+        if (mPictureRequest != request) {
+            return;
+        }
+        mPictureRequest = null;
+        // 1. 拍照会停止预览, 优先恢复
         try {
-            // 1. 打开相机
-            int cameraId = chooseCamera(facing);
-            mImpl = Camera.open(cameraId);
-            // 2. 设置相机参数
-            mCameraParams = mImpl.getParameters();
-            /*
-             3. 设置预览尺寸
-             */
-            // 采集所有的预览尺寸
-            mPreviewSizes.clear();
-            for (Camera.Size size : mCameraParams.getSupportedPreviewSizes()) {
-                mPreviewSizes.add(new Size(size.width, size.height));
-            }
-            // 获取用户期望的比例的集合
-            SortedSet<Size> previewSizes = mPreviewSizes.sizes(aspectRatio);
-            if (previewSizes == null) {
-                // 用户期望的比例不存在, 获取默认比例
-                previewSizes = mPreviewSizes.sizes(chooseDefaultAspectRatio());
-            }
-            final Size previewSize = chooseOptimalPreviewSize(previewSizes);
-            mCameraParams.setPreviewSize(previewSize.getWidth(), previewSize.getHeight());
-
-            /*
-             4. 设置拍照尺寸
-             */
-            // 采集所有照片的尺寸
-            mPictureSizes.clear();
-            for (Camera.Size size : mCameraParams.getSupportedPictureSizes()) {
-                mPictureSizes.add(new Size(size.width, size.height));
+            mImpl.startPreview();
+            if (frameListener != null) {
+                startFrameStream();
             }
-            // 获取用户期望的比例集合
-            SortedSet<Size> pictureSizes = mPictureSizes.sizes(aspectRatio);
-            if (pictureSizes == null) {
-                // 用户期望的尺寸不存在, 获取默认比例
-                pictureSizes = mPreviewSizes.sizes(chooseDefaultAspectRatio());
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Restart preview after taking picture failed.", e);
+        }
+        if (mDeferredChanges != 0) {
+            int changes = mDeferredChanges;
+            mDeferredChanges = 0;
+            performConfigChanged(changes);
+        }
+        if (data == null) {
+            dispatchPictureFailed(request.listener,
+                    new IllegalStateException("Camera returned no JPEG data."));
+            return;
+        }
+        // 2. 在后台线程拷贝到直接内存中, 不占用相机线程
+        final long captureNanos = jpegNanos - request.requestNanos;
+        final long shutterToJpegNanos = request.shutterNanos == 0
+                ? captureNanos : jpegNanos - request.shutterNanos;
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buffer = picturePool.acquire(data.length);
+                buffer.put(data);
+                buffer.flip();
+                Picture picture = new Picture(picturePool, buffer, request.size.getWidth(),
+                        request.size.getHeight(), captureNanos, shutterToJpegNanos, 0);
+                Log.i(TAG, "Picture taken: " + picture);
+                request.listener.onPictureTaken(picture);
             }
-            // 选择期望集合中, 尺寸最大的一个, 保证拍照后输出图像的清晰度
-            Size pictureSize = pictureSizes.last();
-            mCameraParams.setPictureSize(pictureSize.getWidth(), pictureSize.getHeight());
-            // 5. 设置拍摄后的图像输出的方向
-            mCameraParams.setRotation(calcTakenPictureRotation(screenOrientationDegrees));
-            // 6. 处理自动对焦
-            setAutoFocusInternal(autoFocus);
-            // 7. 处理闪光灯变化
-            setFlashInternal(flashMode);
-            mImpl.setParameters(mCameraParams);
-            // 8. 设置预览帧的图像的输出方向
-            mImpl.setDisplayOrientation(calcPreviewFrameOrientation(screenOrientationDegrees));
-            // 9. 设置图像输出的画布
-            mImpl.setPreviewTexture(mBufferTexture);
-            // 10. 启动预览
+        });
+    }
+
+    /**
+     * 开启预览真正的逻辑实现
+     */
+    private void startPreviewInternal(int cameraId, CameraTimings timings) {
+        // 1. 命中缓存时, 无需从相机参数中解析能力
+        CameraCapabilities capabilities = mCapabilityCache.get(
+                CameraCapabilityCache.API_CAMERA1, String.valueOf(cameraId));
+        boolean cached = capabilities != null && capabilities.hasStreamInfo();
+        // 2. 打开相机
+        mImpl = Camera.open(cameraId);
+        mCameraId = cameraId;
+        timings.mark(CameraTimings.PHASE_ACQUIRE);
+        // 3. 获取相机参数
+        mCameraParams = mImpl.getParameters();
+        mCameraParams.getPreviewFpsRange(mDefaultFpsRange);
+        // 4. 未命中缓存, 从相机参数中解析能力, 并写入缓存
+        if (!cached) {
+            capabilities = queryCapabilities(cameraId, capabilities, mCameraParams);
+            mCapabilityCache.put(capabilities);
+            mCapabilityCache.flushAsync();
+        }
+        this.capabilities = capabilities;
+        // 5. 设置相机参数
+        applyParameters();
+        // 6. 设置预览帧的图像的输出方向
+        mImpl.setDisplayOrientation(calcPreviewFrameOrientation(
+                config.getScreenOrientationDegrees()));
+        // 7. 设置图像输出的画布
+        mImpl.setPreviewTexture(mBufferTexture);
+        // 8. 开启帧流
+        if (frameListener != null) {
+            startFrameStream();
+        }
+        timings.mark(CameraTimings.PHASE_CONFIGURE);
+        // 9. 启动预览
+        mImpl.startPreview();
+        timings.mark(CameraTimings.PHASE_START_PREVIEW);
+        // 10. 通知外界, Camera 数据准备好了
+        dispatchCameraReady(mBufferTexture, previewSize, 0);
+        Log.i(TAG, "Camera start preview success.");
+    }
+
+    /**
+     * 不释放相机, 按照最新的配置原地重新配置
+     * <p>
+     * 尺寸未变化时(如仅屏幕方向变化), 无需停止预览; 否则按照
+     * stopPreview -> setParameters -> setDisplayOrientation -> startPreview 执行.
+     */
+    private void reconfigureInternal(CameraTimings timings) {
+        Size prevPreviewSize = previewSize;
+        Size prevPictureSize = mPictureSize;
+        // 1. 选取尺寸并写入参数
+        applyParametersToCache();
+        boolean sizeChanged = !previewSize.equals(prevPreviewSize)
+                || !mPictureSize.equals(prevPictureSize);
+        // 2. 尺寸变化时需要停止预览
+        if (sizeChanged) {
+            mImpl.stopPreview();
+            timings.mark(CameraTimings.PHASE_RELEASE);
+        }
+        // 3. 设置相机参数
+        mImpl.setParameters(mCameraParams);
+        // 4. 设置预览帧的图像的输出方向, API 14 之后支持在预览过程中调用
+        mImpl.setDisplayOrientation(calcPreviewFrameOrientation(
+                config.getScreenOrientationDegrees()));
+        // 5. 预览尺寸变化时, 帧缓冲需要重建
+        if (frameListener != null && !previewSize.equals(prevPreviewSize)) {
+            startFrameStream();
+        }
+        timings.mark(CameraTimings.PHASE_CONFIGURE);
+        // 6. 重新启动预览
+        if (sizeChanged) {
             mImpl.startPreview();
-            // 6. 通知外界, Camera 数据准备好了
-            listener.onCameraReady(mBufferTexture, previewSize, 0);
-            Log.i(TAG, "Camera start preview success.");
-        } catch (Throwable e) {
-            Log.e(TAG, "Camera start preview failed.", e);
-            close();
+            timings.mark(CameraTimings.PHASE_START_PREVIEW);
         }
+        // 7. 通知外界更新预览的变换
+        dispatchCameraReady(mBufferTexture, previewSize, 0);
+        Log.i(TAG, "Camera reconfigure success, size changed: " + sizeChanged);
+    }
+
+    /**
+     * 将当前的配置写入相机参数, 并提交给相机
+     */
+    private void applyParameters() {
+        applyParametersToCache();
+        mImpl.setParameters(mCameraParams);
+    }
+
+    /**
+     * 将当前的配置写入 {@link #mCameraParams}, 不提交
+     */
+    private void applyParametersToCache() {
+        /*
+         1. 设置预览尺寸, 由代价模型综合比例、清晰度、带宽与帧率选取
+         */
+        previewSize = sizeSelector.select(capabilities, getViewSizeInSensorOrientation(),
+                config.getAspectRatio());
+        mCameraParams.setPreviewSize(previewSize.getWidth(), previewSize.getHeight());
+        mCameraParams.setPreviewFormat(ImageFormat.NV21);
+        /*
+         2. 设置拍照尺寸
+         */
+        // 优先与预览比例一致, 保证拍照与预览的画面一致; 选择面积最大的一个, 保证清晰度
+        SizeMap pictureSizes = capabilities.pictureSizeMap();
+        long pictureSize = pictureSizes.largest(
+                AspectRatio.of(previewSize.getWidth(), previewSize.getHeight()));
+        if (pictureSize == SizeMap.NONE) {
+            pictureSize = pictureSizes.largest(config.getAspectRatio());
+        }
+        if (pictureSize == SizeMap.NONE) {
+            // 用户期望的尺寸不存在, 获取默认比例
+            pictureSize = pictureSizes.largestOfDefaultRatio();
+        }
+        if (pictureSize == SizeMap.NONE) {
+            throw new IllegalStateException("Camera has no picture size.");
+        }
+        mPictureSize = Size.of(SizeMap.width(pictureSize), SizeMap.height(pictureSize));
+        mCameraParams.setPictureSize(mPictureSize.getWidth(), mPictureSize.getHeight());
+        // 3. 设置拍摄后的图像输出的方向
+        int rotation = calcTakenPictureRotation(config.getScreenOrientationDegrees());
+        mCameraParams.setRotation(rotation);
+        frameRotationDegrees = rotation;
+        // 4. 处理自动对焦, 点击对焦的区域不再保留
+        clearFocusAreasInternal();
+        setAutoFocusInternal(config.isAutoFocus());
+        // 5. 处理闪光灯变化
+        setFlashInternal(config.getFlashMode());
+        // 6. 设置帧率范围
+        setFpsRangeInternal(config.getCaptureProfile());
+        // 7. 设置缩放与曝光补偿
+        setZoomInternal(config.getZoom());
+        setExposureCompensationInternal(config.getExposureCompensation());
+    }
+
+    /**
+     * 将缓冲池中的缓冲全部交给相机, 并开始接收帧数据
+     */
+    private void startFrameStream() {
+        final Camera camera = mImpl;
+        // 移除回调时相机会清空已添加的缓冲, 避免同一个缓冲被重复添加
+        camera.setPreviewCallbackWithBuffer(null);
+        framePool.prepare(previewSize.getWidth(), previewSize.getHeight(),
+                new FrameBufferPool.Recycler() {
+                    @Override
+                    public void recycle(@NonNull byte[] buffer) {
+                        camera.addCallbackBuffer(buffer);
+                    }
+                });
+        camera.setPreviewCallbackWithBuffer(this);
+    }
+
+    /**
+     * 停止接收帧数据
+     */
+    private void stopFrameStream() {
+        mImpl.setPreviewCallbackWithBuffer(null);
+        framePool.invalidate();
     }
 
     /**
      * 选择相机 id
+     * <p>
+     * 镜头信息优先从缓存中读取, 避免每次都遍历 {@link Camera#getCameraInfo}
      */
     private int chooseCamera(int facing) {
-        int cameraId = INVALID_CAMERA_ID;
-        for (int i = 0, count = Camera.getNumberOfCameras(); i < count; i++) {
-            Camera.getCameraInfo(i, mCameraInfo);
-            if (mCameraInfo.facing == facing) {
-                cameraId = i;
-                break;
+        List<CameraCapabilities> lenses = mCapabilityCache.getLenses(
+                CameraCapabilityCache.API_CAMERA1);
+        if (lenses == null) {
+            lenses = new ArrayList<>();
+            Camera.CameraInfo info = new Camera.CameraInfo();
+            for (int i = 0, count = Camera.getNumberOfCameras(); i < count; i++) {
+                Camera.getCameraInfo(i, info);
+                lenses.add(new CameraCapabilities(CameraCapabilityCache.API_CAMERA1,
+                        String.valueOf(i), info.facing, info.orientation));
+            }
+            mCapabilityCache.putLenses(CameraCapabilityCache.API_CAMERA1, lenses);
+            mCapabilityCache.flushAsync();
+        }
+        for (CameraCapabilities lens : lenses) {
+            if (lens.facing == facing) {
+                mCameraInfo.facing = lens.facing;
+                mCameraInfo.orientation = lens.sensorOrientation;
+                return Integer.parseInt(lens.cameraId);
             }
         }
-        return cameraId;
+        return INVALID_CAMERA_ID;
     }
 
     /**
-     * 获取默认比例
+     * 从相机参数中解析相机的能力
+     *
+     * @param lens 镜头信息, 可能为 null
      */
-    private AspectRatio chooseDefaultAspectRatio() {
-        AspectRatio result = null;
-        for (AspectRatio ratio : mPreviewSizes.ratios()) {
-            result = ratio;
-            if (AspectRatio.DEFAULT.equals(ratio)) {
-                break;
-            }
+    private CameraCapabilities queryCapabilities(int cameraId, @Nullable CameraCapabilities lens,
+                                                 Camera.Parameters params) {
+        if (lens == null) {
+            lens = new CameraCapabilities(CameraCapabilityCache.API_CAMERA1,
+                    String.valueOf(cameraId), mCameraInfo.facing, mCameraInfo.orientation);
+        }
+        List<int[]> fpsRanges = params.getSupportedPreviewFpsRange();
+        int[] packedFpsRanges = new int[fpsRanges == null ? 0 : fpsRanges.size() * 2];
+        for (int i = 0; i < packedFpsRanges.length / 2; i++) {
+            int[] range = fpsRanges.get(i);
+            packedFpsRanges[i * 2] = range[Camera.Parameters.PREVIEW_FPS_MIN_INDEX];
+            packedFpsRanges[i * 2 + 1] = range[Camera.Parameters.PREVIEW_FPS_MAX_INDEX];
+        }
+        // Camera1 的帧率与尺寸无关
+        return lens.withStreamInfo(
+                packSizes(params.getSupportedPreviewSizes()),
+                null,
+                packSizes(params.getSupportedPictureSizes()),
+                CameraCapabilities.toArray(params.getSupportedFocusModes()),
+                CameraCapabilities.toArray(params.getSupportedFlashModes()),
+                packedFpsRanges
+        );
+    }
+
+    private static int[] packSizes(List<Camera.Size> sizes) {
+        int[] result = new int[sizes.size() * 2];
+        for (int i = 0; i < sizes.size(); i++) {
+            Camera.Size size = sizes.get(i);
+            result[i * 2] = size.width;
+            result[i * 2 + 1] = size.height;
         }
         return result;
     }
@@ -221,15 +632,29 @@ class Camera1Device extends AbsCameraDevice {
      * it will modify {@link #mCameraParams}.
      */
     private void setAutoFocusInternal(boolean autoFocus) {
-        final List<String> modes = mCameraParams.getSupportedFocusModes();
-        if (autoFocus && modes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE)) {
+        final CameraCapabilities caps = capabilities;
+        if (autoFocus && caps.supportsFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE)) {
             mCameraParams.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE);
-        } else if (modes.contains(Camera.Parameters.FOCUS_MODE_FIXED)) {
+        } else if (caps.supportsFocusMode(Camera.Parameters.FOCUS_MODE_FIXED)) {
             mCameraParams.setFocusMode(Camera.Parameters.FOCUS_MODE_FIXED);
-        } else if (modes.contains(Camera.Parameters.FOCUS_MODE_INFINITY)) {
+        } else if (caps.supportsFocusMode(Camera.Parameters.FOCUS_MODE_INFINITY)) {
             mCameraParams.setFocusMode(Camera.Parameters.FOCUS_MODE_INFINITY);
-        } else {
-            mCameraParams.setFocusMode(modes.get(0));
+        } else if (caps.focusModes.length > 0) {
+            mCameraParams.setFocusMode(caps.focusModes[0]);
+        }
+    }
+
+    /**
+     * 清除点击对焦设置的对焦与测光区域, 交由相机自行决定
+     * <p>
+     * it will modify {@link #mCameraParams}.
+     */
+    private void clearFocusAreasInternal() {
+        if (mCameraParams.getMaxNumFocusAreas() > 0) {
+            mCameraParams.setFocusAreas(null);
+        }
+        if (mCameraParams.getMaxNumMeteringAreas() > 0) {
+            mCameraParams.setMeteringAreas(null);
         }
     }
 
@@ -239,44 +664,82 @@ class Camera1Device extends AbsCameraDevice {
      * @return {@code true} if {@link #mCameraParams} was modified.
      */
     private boolean setFlashInternal(int flash) {
-        List<String> modes = mCameraParams.getSupportedFlashModes();
+        final CameraCapabilities caps = capabilities;
         String mode = FLASH_MODES.get(flash);
-        if (modes != null && modes.contains(mode)) {
+        if (caps.supportsFlashMode(mode)) {
             mCameraParams.setFlashMode(mode);
-            flashMode = flash;
+            mFlashMode = flash;
             return true;
         }
-        String currentMode = FLASH_MODES.get(flashMode);
-        if (modes == null || !modes.contains(currentMode)) {
+        String currentMode = FLASH_MODES.get(mFlashMode);
+        if (!caps.supportsFlashMode(currentMode)) {
             mCameraParams.setFlashMode(Camera.Parameters.FLASH_MODE_OFF);
-            flashMode = Constants.FLASH_OFF;
+            mFlashMode = Constants.FLASH_OFF;
             return true;
         }
         return false;
     }
 
     /**
-     * 选择最合适的预览尺寸
+     * 根据采集策略设置帧率范围
+     *
+     * @return {@code true} if {@link #mCameraParams} was modified.
      */
-    private Size chooseOptimalPreviewSize(SortedSet<Size> sizes) {
-        int desiredWidth;
-        int desiredHeight;
-        if (isLandscape(screenOrientationDegrees)) {
-            desiredWidth = previewWidth;
-            desiredHeight = previewHeight;
-        } else {
-            desiredWidth = previewHeight;
-            desiredHeight = previewWidth;
-        }
-        Size result = null;
-        for (Size size : sizes) {
-            result = size;
-            // Iterate from small to large
-            if (desiredWidth <= size.getWidth() && desiredHeight <= size.getHeight()) {
-                break;
-            }
+    private boolean setFpsRangeInternal(int profile) {
+        int[] range = FpsRangeSelector.select(profile, capabilities.fpsRanges);
+        if (range == null) {
+            range = mDefaultFpsRange;
         }
-        return result;
+        // 帧率范围的单位为 fps * 1000, 按照最高帧率估算, 即最短的帧间隔
+        mCallbackDelayNanos = range[1] > 0
+                ? CALLBACK_DELAY_FRAMES * 1000000000000L / range[1] : 0;
+        int[] current = new int[2];
+        mCameraParams.getPreviewFpsRange(current);
+        if (current[0] == range[0] && current[1] == range[1]) {
+            return false;
+        }
+        mCameraParams.setPreviewFpsRange(range[0], range[1]);
+        return true;
+    }
+
+    /**
+     * 设置缩放
+     *
+     * @param zoom 0 到 1, 1 为相机支持的最大缩放
+     * @return {@code true} if {@link #mCameraParams} was modified.
+     */
+    private boolean setZoomInternal(float zoom) {
+        if (!mCameraParams.isZoomSupported()) {
+            return false;
+        }
+        int value = Math.round(zoom * mCameraParams.getMaxZoom());
+        if (value == mCameraParams.getZoom()) {
+            return false;
+        }
+        mCameraParams.setZoom(value);
+        return true;
+    }
+
+    /**
+     * 设置曝光补偿
+     *
+     * @param ev 曝光补偿的 EV 值, 超出范围时取边界值
+     * @return {@code true} if {@link #mCameraParams} was modified.
+     */
+    private boolean setExposureCompensationInternal(float ev) {
+        float step = mCameraParams.getExposureCompensationStep();
+        int min = mCameraParams.getMinExposureCompensation();
+        int max = mCameraParams.getMaxExposureCompensation();
+        // 不支持曝光补偿
+        if (step <= 0 || min == max) {
+            return false;
+        }
+        int index = Math.max(min, Math.min(max, Math.round(ev / step)));
+        if (index == mCameraParams.getExposureCompensation()) {
+            return false;
+        }
+        mCameraParams.setExposureCompensation(index);
+        return true;
     }
 
     /**
@@ -336,4 +799,18 @@ class Camera1Device extends AbsCameraDevice {
                 || screenOrientationDegrees == Constants.LANDSCAPE_270);
     }
 
+    private static class PictureRequest {
+
+        final OnPictureTakenListener listener;
+        final Size size;
+        final long requestNanos = System.nanoTime();
+        long shutterNanos;
+
+        PictureRequest(OnPictureTakenListener listener, Size size) {
+            this.listener = listener;
+            this.size = size;
+        }
+
+    }
+
 }
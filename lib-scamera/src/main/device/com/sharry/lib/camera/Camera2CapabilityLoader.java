@@ -0,0 +1,186 @@
+package com.sharry.lib.camera;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.SurfaceTexture;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.util.Range;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 从 {@link CameraCharacteristics} 中解析镜头的能力, 并借助 {@link CameraCapabilityCache} 缓存
+ * <p>
+ * Camera2 与 CameraX 共用. 对焦模式与 AE 模式以常量的字符串形式保存.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+@TargetApi(21)
+final class Camera2CapabilityLoader {
+
+    /**
+     * 外接镜头的朝向, 不参与选择
+     */
+    private static final int FACING_EXTERNAL = -1;
+
+    private final CameraManager mManager;
+    private final CameraCapabilityCache mCache;
+
+    Camera2CapabilityLoader(@NonNull Context context) {
+        mManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        mCache = CameraCapabilityCache.getInstance(context);
+        mCache.preload();
+    }
+
+    /**
+     * 根据朝向选择镜头
+     * <p>
+     * 镜头信息优先从缓存中读取, 避免每次都遍历 {@link CameraManager#getCameraCharacteristics}
+     */
+    @Nullable
+    CameraCapabilities findLens(int facing) {
+        for (CameraCapabilities lens : getLenses()) {
+            if (lens.facing == facing) {
+                return lens;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据 id 选择镜头
+     */
+    @Nullable
+    CameraCapabilities findLens(@NonNull String cameraId) {
+        for (CameraCapabilities lens : getLenses()) {
+            if (lens.cameraId.equals(cameraId)) {
+                return lens;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取镜头的能力, 未命中缓存时从 {@link CameraCharacteristics} 中解析, 并写入缓存
+     */
+    @NonNull
+    CameraCapabilities load(@NonNull CameraCapabilities lens) {
+        CameraCapabilities cached = mCache.get(CameraCapabilityCache.API_CAMERA2, lens.cameraId);
+        if (cached != null && cached.hasStreamInfo()) {
+            return cached;
+        }
+        CameraCharacteristics characteristics;
+        try {
+            characteristics = mManager.getCameraCharacteristics(lens.cameraId);
+        } catch (CameraAccessException e) {
+            throw new IllegalStateException("Query characteristics failed.", e);
+        }
+        StreamConfigurationMap map = characteristics.get(
+                CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        if (map == null) {
+            throw new IllegalStateException("Camera " + lens.cameraId
+                    + " has no stream configuration.");
+        }
+        Range<Integer>[] fpsRanges = characteristics.get(
+                CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
+        int[] packedFpsRanges = new int[fpsRanges == null ? 0 : fpsRanges.length * 2];
+        int maxFps = 0;
+        for (int i = 0; i < packedFpsRanges.length / 2; i++) {
+            // 与 Camera1 保持一致, 单位为 fps * 1000
+            packedFpsRanges[i * 2] = fpsRanges[i].getLower() * 1000;
+            packedFpsRanges[i * 2 + 1] = fpsRanges[i].getUpper() * 1000;
+            maxFps = Math.max(maxFps, packedFpsRanges[i * 2 + 1]);
+        }
+        // 每个预览尺寸的最高帧率由最短帧间隔决定
+        android.util.Size[] previewSizes = map.getOutputSizes(SurfaceTexture.class);
+        int[] previewMaxFps = new int[previewSizes == null ? 0 : previewSizes.length];
+        for (int i = 0; i < previewMaxFps.length; i++) {
+            long minFrameDuration = map.getOutputMinFrameDuration(SurfaceTexture.class,
+                    previewSizes[i]);
+            previewMaxFps[i] = minFrameDuration > 0
+                    ? (int) Math.min(maxFps, 1000000000000L / minFrameDuration) : maxFps;
+        }
+        CameraCapabilities result = lens.withStreamInfo(
+                packSizes(previewSizes),
+                previewMaxFps,
+                packSizes(map.getOutputSizes(ImageFormat.JPEG)),
+                toStrings(characteristics.get(CameraCharacteristics.CONTROL_AF_AVAILABLE_MODES)),
+                toStrings(characteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_MODES)),
+                packedFpsRanges
+        );
+        mCache.put(result);
+        mCache.flushAsync();
+        return result;
+    }
+
+    private List<CameraCapabilities> getLenses() {
+        List<CameraCapabilities> lenses = mCache.getLenses(CameraCapabilityCache.API_CAMERA2);
+        if (lenses != null) {
+            return lenses;
+        }
+        lenses = new ArrayList<>();
+        try {
+            for (String cameraId : mManager.getCameraIdList()) {
+                CameraCharacteristics characteristics = mManager.getCameraCharacteristics(cameraId);
+                Integer lensFacing = characteristics.get(CameraCharacteristics.LENS_FACING);
+                Integer sensorOrientation = characteristics.get(
+                        CameraCharacteristics.SENSOR_ORIENTATION);
+                lenses.add(new CameraCapabilities(CameraCapabilityCache.API_CAMERA2, cameraId,
+                        toFacing(lensFacing), sensorOrientation == null ? 0 : sensorOrientation));
+            }
+        } catch (CameraAccessException e) {
+            throw new IllegalStateException("Enumerate cameras failed.", e);
+        }
+        mCache.putLenses(CameraCapabilityCache.API_CAMERA2, lenses);
+        mCache.flushAsync();
+        return lenses;
+    }
+
+    private static int toFacing(Integer lensFacing) {
+        if (lensFacing == null) {
+            return Constants.FACING_BACK;
+        }
+        switch (lensFacing) {
+            case CameraCharacteristics.LENS_FACING_FRONT:
+                return Constants.FACING_FRONT;
+            case CameraCharacteristics.LENS_FACING_BACK:
+                return Constants.FACING_BACK;
+            default:
+                return FACING_EXTERNAL;
+        }
+    }
+
+    private static int[] packSizes(@Nullable android.util.Size[] sizes) {
+        if (sizes == null) {
+            return new int[0];
+        }
+        int[] result = new int[sizes.length * 2];
+        for (int i = 0; i < sizes.length; i++) {
+            result[i * 2] = sizes[i].getWidth();
+            result[i * 2 + 1] = sizes[i].getHeight();
+        }
+        return result;
+    }
+
+    private static String[] toStrings(@Nullable int[] modes) {
+        if (modes == null) {
+            return new String[0];
+        }
+        String[] result = new String[modes.length];
+        for (int i = 0; i < modes.length; i++) {
+            result[i] = String.valueOf(modes[i]);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,684 @@
+package com.sharry.lib.camera;
+
+import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+import android.hardware.camera2.params.MeteringRectangle;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.util.Log;
+import android.util.Range;
+import android.view.Surface;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Camera2 实现的相机引擎
+ * <p>
+ * 预览的 SurfaceTexture 与可选的 YUV_420_888 ImageReader 共用一个 CaptureSession,
+ * 重复请求在 Session 创建时由模板构建一次, 之后反复复用, 参数变更时才重新构建.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+@TargetApi(21)
+class Camera2Device extends AbsCameraDevice implements ImageReader.OnImageAvailableListener {
+
+    private static final String TAG = Camera2Device.class.getSimpleName();
+
+    private static final int MAGIC_TEXTURE_ID = 0;
+    /**
+     * ImageReader 中最多同时持有的图像数量
+     */
+    private static final int MAX_IMAGES = 2;
+    private static final long OPEN_TIMEOUT_MILLIS = 2500;
+
+    private final CameraManager mManager;
+    private final Camera2CapabilityLoader mCapabilityLoader;
+    private final Handler mCallbackHandler;
+    private final Yuv420Converter mConverter = new Yuv420Converter();
+    private final SurfaceTexture mBufferTexture;
+
+    private volatile CameraDevice mCamera;
+    private CameraCaptureSession mSession;
+    private CaptureRequest.Builder mRequestBuilder;
+    /**
+     * 只输出到预览的重复请求
+     */
+    private CaptureRequest mPreviewRequest;
+    /**
+     * 同时输出到预览和 ImageReader 的重复请求
+     */
+    private CaptureRequest mStreamRequest;
+    private Surface mPreviewSurface;
+    private ImageReader mImageReader;
+    private String mCameraId;
+    /**
+     * 点击对焦相关, 在第一次对焦时从 CameraCharacteristics 读取, 只在相机线程访问
+     */
+    private Rect mActiveArray;
+    private int mMaxAfRegions;
+    private int mMaxAeRegions;
+    /**
+     * 正在进行的点击对焦, 对焦期间挂在重复请求上观察 AF 状态
+     */
+    private FocusCallback mFocusCallback;
+
+    Camera2Device(CameraContext context, OnCameraReadyListener listener) {
+        super(context, listener, CameraThread.getLooper());
+        mManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        mCallbackHandler = new Handler(CameraThread.getCallbackLooper());
+        mBufferTexture = new SurfaceTexture(MAGIC_TEXTURE_ID);
+        mCapabilityLoader = new Camera2CapabilityLoader(context);
+    }
+
+    @Override
+    int getEngine() {
+        return Constants.ENGINE_CAMERA2;
+    }
+
+    @Override
+    public boolean isCameraOpened() {
+        return mCamera != null;
+    }
+
+    @Nullable
+    @Override
+    CameraCapabilities loadLensCapabilities(int facing) {
+        CameraCapabilities lens = mCapabilityLoader.findLens(facing);
+        return lens == null ? null : mCapabilityLoader.load(lens);
+    }
+
+    @Override
+    void performOpen(@NonNull CameraTimings timings) {
+        CameraCapabilities lens = mCapabilityLoader.findLens(config.getFacing());
+        if (lens == null) {
+            throw new IllegalStateException("No camera faces " + config.getFacing());
+        }
+        // 相机 id 未变更时, 不释放相机, 只重建 Session
+        if (isCameraOpened() && lens.cameraId.equals(mCameraId)) {
+            closeSession();
+            timings.mark(CameraTimings.PHASE_RELEASE);
+        } else {
+            performClose(timings);
+            openCamera(lens.cameraId);
+            timings.mark(CameraTimings.PHASE_ACQUIRE);
+        }
+        capabilities = mCapabilityLoader.load(lens);
+        frameRotationDegrees = calcFrameRotation(config.getScreenOrientationDegrees());
+        // 1. 选择预览尺寸
+        previewSize = sizeSelector.select(capabilities, getViewSizeInSensorOrientation(),
+                config.getAspectRatio());
+        // 2. 准备输出的 Surface
+        mBufferTexture.setDefaultBufferSize(previewSize.getWidth(), previewSize.getHeight());
+        mPreviewSurface = new Surface(mBufferTexture);
+        List<Surface> outputs = new ArrayList<>(2);
+        outputs.add(mPreviewSurface);
+        if (frameListener != null) {
+            mImageReader = ImageReader.newInstance(previewSize.getWidth(),
+                    previewSize.getHeight(), ImageFormat.YUV_420_888, MAX_IMAGES);
+            mImageReader.setOnImageAvailableListener(this, mCallbackHandler);
+            framePool.prepare(previewSize.getWidth(), previewSize.getHeight(), null);
+            outputs.add(mImageReader.getSurface());
+        }
+        // 3. 创建 Session, 并构建重复请求
+        createSession(outputs);
+        try {
+            mRequestBuilder = mCamera.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+            applyAutoFocus(config.isAutoFocus());
+            applyFlash(config.getFlashMode());
+            applyFpsRange(config.getCaptureProfile());
+            buildRequests();
+            timings.mark(CameraTimings.PHASE_CONFIGURE);
+            // 4. 启动预览
+            setRepeatingRequest();
+        } catch (CameraAccessException e) {
+            throw new IllegalStateException("Start preview failed.", e);
+        }
+        timings.mark(CameraTimings.PHASE_START_PREVIEW);
+        // 5. 通知外界, Camera 数据准备好了
+        dispatchCameraReady(mBufferTexture, previewSize, config.getScreenOrientationDegrees());
+        Log.i(TAG, "Camera start preview success.");
+    }
+
+    @Override
+    void performClose(@NonNull CameraTimings timings) {
+        if (null != mCamera) {
+            try {
+                closeSession();
+                mCamera.close();
+                Log.i(TAG, "Camera release success.");
+            } catch (Throwable e) {
+                // ignore.
+            } finally {
+                mCamera = null;
+                mCameraId = null;
+                mActiveArray = null;
+            }
+        }
+        timings.mark(CameraTimings.PHASE_RELEASE);
+    }
+
+    @Override
+    void performParametersChanged(int changes) {
+        // 暂不支持缩放与曝光补偿, 无需重建请求
+        int supported = CameraConfig.CHANGED_AUTO_FOCUS | CameraConfig.CHANGED_FLASH_MODE
+                | CameraConfig.CHANGED_CAPTURE_PROFILE;
+        if ((changes & supported) == 0) {
+            return;
+        }
+        if ((changes & CameraConfig.CHANGED_AUTO_FOCUS) != 0) {
+            applyAutoFocus(config.isAutoFocus());
+        }
+        if ((changes & CameraConfig.CHANGED_FLASH_MODE) != 0) {
+            applyFlash(config.getFlashMode());
+        }
+        if ((changes & CameraConfig.CHANGED_CAPTURE_PROFILE) != 0) {
+            applyFpsRange(config.getCaptureProfile());
+        }
+        // 重新构建一次请求, 替换正在执行的重复请求
+        buildRequests();
+        try {
+            setRepeatingRequest();
+        } catch (CameraAccessException e) {
+            Log.e(TAG, "Update parameters failed.", e);
+        }
+    }
+
+    @Override
+    void performFocus(@NonNull FocusRequest request) {
+        // 1. 取消尚未收敛的上一次对焦
+        if (mFocusCallback != null) {
+            dispatchFocusFailed(mFocusCallback.request,
+                    new IllegalStateException("Superseded by a newer focus request."));
+            mFocusCallback = null;
+        }
+        try {
+            loadFocusRegions();
+        } catch (CameraAccessException e) {
+            dispatchFocusFailed(request, e);
+            return;
+        }
+        boolean supportsAutoFocus = capabilities.supportsFocusMode(
+                String.valueOf(CaptureRequest.CONTROL_AF_MODE_AUTO));
+        if (mActiveArray == null || (!supportsAutoFocus && mMaxAeRegions == 0)) {
+            dispatchFocusFailed(request, new UnsupportedOperationException(
+                    "Camera " + mCameraId + " supports neither auto focus nor metering regions."));
+            return;
+        }
+        // 2. 将显示坐标映射到 active array, 与预览画面的旋转和镜像互逆
+        int displayOrientation = FocusArea.calcDisplayOrientation(
+                capabilities.sensorOrientation, config.getScreenOrientationDegrees(),
+                capabilities.facing == Constants.FACING_FRONT);
+        boolean mirror = capabilities.facing == Constants.FACING_FRONT;
+        if (mMaxAfRegions > 0) {
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_REGIONS, new MeteringRectangle[]{
+                    new MeteringRectangle(FocusArea.toActiveArray(FocusArea.toSensorArea(
+                            request.x, request.y, displayOrientation, mirror,
+                            FocusArea.FOCUS_SIZE), mActiveArray),
+                            MeteringRectangle.METERING_WEIGHT_MAX)
+            });
+        }
+        if (mMaxAeRegions > 0) {
+            mRequestBuilder.set(CaptureRequest.CONTROL_AE_REGIONS, new MeteringRectangle[]{
+                    new MeteringRectangle(FocusArea.toActiveArray(FocusArea.toSensorArea(
+                            request.x, request.y, displayOrientation, mirror,
+                            FocusArea.METERING_SIZE), mActiveArray),
+                            MeteringRectangle.METERING_WEIGHT_MAX)
+            });
+        }
+        // 3. 单次对焦模式下, 由 AF_TRIGGER 立即按新区域扫描
+        if (supportsAutoFocus) {
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE,
+                    CaptureRequest.CONTROL_AF_MODE_AUTO);
+            mFocusCallback = new FocusCallback(request);
+        }
+        try {
+            buildRequests();
+            setRepeatingRequest();
+            if (supportsAutoFocus) {
+                captureAfTrigger(CaptureRequest.CONTROL_AF_TRIGGER_START, mFocusCallback);
+            }
+        } catch (CameraAccessException | RuntimeException e) {
+            mFocusCallback = null;
+            dispatchFocusFailed(request, e);
+            return;
+        }
+        // 4. 定焦镜头只应用测光区域
+        if (!supportsAutoFocus) {
+            dispatchFocused(request, false);
+        }
+        // 超时未收敛时, 由恢复对焦模式时通知失败
+        scheduleFocusReset();
+    }
+
+    @Override
+    void performFocusReset() {
+        if (mFocusCallback != null) {
+            dispatchFocusFailed(mFocusCallback.request, new IllegalStateException(
+                    "Focus didn't converge in " + FOCUS_HOLD_MILLIS + "ms."));
+            mFocusCallback = null;
+        }
+        mRequestBuilder.set(CaptureRequest.CONTROL_AF_REGIONS, null);
+        mRequestBuilder.set(CaptureRequest.CONTROL_AE_REGIONS, null);
+        applyAutoFocus(config.isAutoFocus());
+        try {
+            // 解除对焦锁定, 之后的重复请求不再观察 AF 状态
+            captureAfTrigger(CaptureRequest.CONTROL_AF_TRIGGER_CANCEL, null);
+            buildRequests();
+            setRepeatingRequest();
+        } catch (CameraAccessException | RuntimeException e) {
+            Log.w(TAG, "Reset focus regions failed.", e);
+        }
+    }
+
+    @Override
+    void performPreviewFrameListenerChanged(@Nullable OnPreviewFrameListener listener) {
+        frameListener = listener;
+        if (!isCameraOpened()) {
+            return;
+        }
+        // Session 的输出不可变更, 缺少 ImageReader 时需要重建 Session
+        if (listener != null && mImageReader == null) {
+            requestReopen();
+            return;
+        }
+        if (listener != null) {
+            framePool.prepare(previewSize.getWidth(), previewSize.getHeight(), null);
+        }
+        try {
+            setRepeatingRequest();
+        } catch (CameraAccessException e) {
+            Log.e(TAG, "Switch frame stream failed.", e);
+        }
+    }
+
+    @Override
+    public void onImageAvailable(ImageReader reader) {
+        Image image = reader.acquireLatestImage();
+        if (image == null) {
+            return;
+        }
+        try {
+            if (frameListener == null) {
+                return;
+            }
+            // 以传感器开始曝光的时刻为准, 零延迟拍照据此匹配快门
+            PreviewFrame frame = framePool.acquire(toNanoTime(image.getTimestamp()));
+            if (frame == null) {
+                return;
+            }
+            mConverter.toNV21(image, frame.getData());
+            dispatchPreviewFrame(frame);
+        } finally {
+            image.close();
+        }
+    }
+
+    /**
+     * 同步打开相机, 运行在相机线程
+     */
+    @SuppressLint("MissingPermission")
+    private void openCamera(String cameraId) {
+        OpenCallback callback = new OpenCallback();
+        try {
+            mManager.openCamera(cameraId, callback, mCallbackHandler);
+        } catch (CameraAccessException e) {
+            throw new IllegalStateException("Open camera " + cameraId + " failed.", e);
+        }
+        mCamera = callback.await();
+        mCameraId = cameraId;
+    }
+
+    /**
+     * 同步创建 Session, 运行在相机线程
+     */
+    private void createSession(List<Surface> outputs) {
+        SessionCallback callback = new SessionCallback();
+        try {
+            mCamera.createCaptureSession(outputs, callback, mCallbackHandler);
+        } catch (CameraAccessException e) {
+            throw new IllegalStateException("Create capture session failed.", e);
+        }
+        mSession = callback.await();
+    }
+
+    private void closeSession() {
+        if (mFocusCallback != null) {
+            dispatchFocusFailed(mFocusCallback.request,
+                    new IllegalStateException("Camera closed before the focus converged."));
+            mFocusCallback = null;
+        }
+        if (mSession != null) {
+            mSession.close();
+            mSession = null;
+        }
+        if (mImageReader != null) {
+            mImageReader.close();
+            mImageReader = null;
+        }
+        if (mPreviewSurface != null) {
+            mPreviewSurface.release();
+            mPreviewSurface = null;
+        }
+        mRequestBuilder = null;
+        mPreviewRequest = null;
+        mStreamRequest = null;
+    }
+
+    /**
+     * 由 {@link #mRequestBuilder} 构建预览请求与帧流请求
+     */
+    private void buildRequests() {
+        mRequestBuilder.addTarget(mPreviewSurface);
+        mPreviewRequest = mRequestBuilder.build();
+        if (mImageReader != null) {
+            mRequestBuilder.addTarget(mImageReader.getSurface());
+            mStreamRequest = mRequestBuilder.build();
+            mRequestBuilder.removeTarget(mImageReader.getSurface());
+        }
+        mRequestBuilder.removeTarget(mPreviewSurface);
+    }
+
+    private void setRepeatingRequest() throws CameraAccessException {
+        CaptureRequest request = frameListener != null && mStreamRequest != null
+                ? mStreamRequest : mPreviewRequest;
+        mSession.setRepeatingRequest(request, mFocusCallback, mCallbackHandler);
+    }
+
+    /**
+     * 提交一次带有 AF_TRIGGER 的请求, 只输出到预览
+     * <p>
+     * it will modify {@link #mRequestBuilder}, and restore it after the capture.
+     */
+    private void captureAfTrigger(int trigger,
+                                  @Nullable CameraCaptureSession.CaptureCallback callback)
+            throws CameraAccessException {
+        mRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER, trigger);
+        mRequestBuilder.addTarget(mPreviewSurface);
+        try {
+            mSession.capture(mRequestBuilder.build(), callback, mCallbackHandler);
+        } finally {
+            mRequestBuilder.removeTarget(mPreviewSurface);
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER,
+                    CaptureRequest.CONTROL_AF_TRIGGER_IDLE);
+        }
+    }
+
+    /**
+     * 读取 active array 与对焦、测光区域的最大数量, 每个镜头只读取一次
+     */
+    private void loadFocusRegions() throws CameraAccessException {
+        if (mActiveArray != null) {
+            return;
+        }
+        CameraCharacteristics characteristics = mManager.getCameraCharacteristics(mCameraId);
+        Integer maxAfRegions = characteristics.get(CameraCharacteristics.CONTROL_MAX_REGIONS_AF);
+        Integer maxAeRegions = characteristics.get(CameraCharacteristics.CONTROL_MAX_REGIONS_AE);
+        mMaxAfRegions = maxAfRegions == null ? 0 : maxAfRegions;
+        mMaxAeRegions = maxAeRegions == null ? 0 : maxAeRegions;
+        mActiveArray = characteristics.get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
+    }
+
+    /**
+     * AF 状态收敛, 运行在相机线程
+     */
+    private void onFocusConverged(FocusCallback callback, boolean focused) {
+        // 已被取代或相机已关闭
+        if (mFocusCallback != callback) {
+            return;
+        }
+        mFocusCallback = null;
+        dispatchFocused(callback.request, focused);
+        scheduleFocusReset();
+    }
+
+    /**
+     * 设置自动对焦
+     * <p>
+     * it will modify {@link #mRequestBuilder}.
+     */
+    private void applyAutoFocus(boolean autoFocus) {
+        int continuous = CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE;
+        if (autoFocus && capabilities.supportsFocusMode(String.valueOf(continuous))) {
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE, continuous);
+        } else {
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_OFF);
+        }
+    }
+
+    /**
+     * 设置闪光灯, 闪光灯由 AE 模式控制
+     * <p>
+     * it will modify {@link #mRequestBuilder}.
+     */
+    private void applyFlash(int flash) {
+        int aeMode = CaptureRequest.CONTROL_AE_MODE_ON;
+        int flashMode = CaptureRequest.FLASH_MODE_OFF;
+        switch (flash) {
+            case Constants.FLASH_ON:
+                aeMode = CaptureRequest.CONTROL_AE_MODE_ON_ALWAYS_FLASH;
+                break;
+            case Constants.FLASH_TORCH:
+                flashMode = CaptureRequest.FLASH_MODE_TORCH;
+                break;
+            case Constants.FLASH_AUTO:
+                aeMode = CaptureRequest.CONTROL_AE_MODE_ON_AUTO_FLASH;
+                break;
+            case Constants.FLASH_RED_EYE:
+                aeMode = CaptureRequest.CONTROL_AE_MODE_ON_AUTO_FLASH_REDEYE;
+                break;
+            default:
+                break;
+        }
+        // 没有闪光灯的镜头不支持闪光类的 AE 模式
+        boolean hasFlashUnit = capabilities.supportsFlashMode(
+                String.valueOf(CaptureRequest.CONTROL_AE_MODE_ON_AUTO_FLASH));
+        if (!hasFlashUnit || !capabilities.supportsFlashMode(String.valueOf(aeMode))) {
+            aeMode = CaptureRequest.CONTROL_AE_MODE_ON;
+            flashMode = hasFlashUnit ? flashMode : CaptureRequest.FLASH_MODE_OFF;
+        }
+        mRequestBuilder.set(CaptureRequest.CONTROL_AE_MODE, aeMode);
+        mRequestBuilder.set(CaptureRequest.FLASH_MODE, flashMode);
+    }
+
+    /**
+     * 根据采集策略设置帧率范围, 默认策略时交由模板决定
+     * <p>
+     * it will modify {@link #mRequestBuilder}.
+     */
+    private void applyFpsRange(int profile) {
+        int[] range = FpsRangeSelector.select(profile, capabilities.fpsRanges);
+        mRequestBuilder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, range == null ? null
+                : new Range<Integer>(range[0] / 1000, range[1] / 1000));
+    }
+
+    /**
+     * 计算帧流中的帧显示前需要顺时针旋转的角度, 与 Camera1 拍照的旋转角度一致
+     */
+    private int calcFrameRotation(int screenOrientationDegrees) {
+        int sensorOrientation = capabilities.sensorOrientation;
+        if (capabilities.facing == Constants.FACING_FRONT) {
+            return (sensorOrientation + screenOrientationDegrees) % 360;
+        }
+        boolean landscape = screenOrientationDegrees == Constants.LANDSCAPE_90
+                || screenOrientationDegrees == Constants.LANDSCAPE_270;
+        return (sensorOrientation + screenOrientationDegrees + (landscape ? 180 : 0)) % 360;
+    }
+
+    /**
+     * 等待相机打开的回调, 相机打开后继续监听断开与异常
+     */
+    private class OpenCallback extends CameraDevice.StateCallback {
+
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+        private volatile CameraDevice mResult;
+        private volatile int mError;
+
+        @Override
+        public void onOpened(@NonNull CameraDevice camera) {
+            mResult = camera;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onDisconnected(@NonNull CameraDevice camera) {
+            Log.w(TAG, "Camera " + camera.getId() + " disconnected.");
+            camera.close();
+            // 被其他进程抢占, 之后由下次 open 重新打开
+            postCameraLost(camera);
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onError(@NonNull CameraDevice camera, int error) {
+            Log.e(TAG, "Camera " + camera.getId() + " error: " + error);
+            mError = error;
+            camera.close();
+            postCameraLost(camera);
+            mLatch.countDown();
+        }
+
+        /**
+         * 相机已打开时, 在相机线程中释放 Session 与 ImageReader, 与 {@link #performClose} 一致
+         */
+        private void postCameraLost(final CameraDevice camera) {
+            if (mResult == null) {
+                return;
+            }
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // 相机已被关闭或重新打开
+                    if (mCamera != camera) {
+                        return;
+                    }
+                    try {
+                        closeSession();
+                    } catch (Throwable e) {
+                        // ignore.
+                    } finally {
+                        mCamera = null;
+                        mCameraId = null;
+                        mActiveArray = null;
+                    }
+                }
+            });
+        }
+
+        CameraDevice await() {
+            try {
+                if (!mLatch.await(OPEN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Open camera timeout.");
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Open camera interrupted.", e);
+            }
+            if (mResult == null) {
+                throw new IllegalStateException("Open camera failed, error: " + mError);
+            }
+            return mResult;
+        }
+
+    }
+
+    /**
+     * 观察点击对焦的 AF 状态, 回调在 {@link #mCallbackHandler} 的线程
+     * <p>
+     * 结果按帧序回调, 收到 AF_TRIGGER_START 请求的结果之后, AF 状态才属于这一次对焦.
+     */
+    private class FocusCallback extends CameraCaptureSession.CaptureCallback {
+
+        final FocusRequest request;
+        private boolean mTriggered;
+        private boolean mConverged;
+
+        FocusCallback(FocusRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void onCaptureCompleted(@NonNull CameraCaptureSession session,
+                                       @NonNull CaptureRequest captureRequest,
+                                       @NonNull TotalCaptureResult result) {
+            if (mConverged) {
+                return;
+            }
+            Integer trigger = captureRequest.get(CaptureRequest.CONTROL_AF_TRIGGER);
+            if (trigger != null && trigger == CaptureRequest.CONTROL_AF_TRIGGER_START) {
+                mTriggered = true;
+            }
+            Integer afState = result.get(CaptureResult.CONTROL_AF_STATE);
+            if (!mTriggered || afState == null) {
+                return;
+            }
+            if (afState == CaptureResult.CONTROL_AF_STATE_FOCUSED_LOCKED
+                    || afState == CaptureResult.CONTROL_AF_STATE_NOT_FOCUSED_LOCKED) {
+                mConverged = true;
+                final boolean focused = afState == CaptureResult.CONTROL_AF_STATE_FOCUSED_LOCKED;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFocusConverged(FocusCallback.this, focused);
+                    }
+                });
+            }
+        }
+
+    }
+
+    /**
+     * 等待 Session 配置完成的回调
+     */
+    private static class SessionCallback extends CameraCaptureSession.StateCallback {
+
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+        private volatile CameraCaptureSession mResult;
+
+        @Override
+        public void onConfigured(@NonNull CameraCaptureSession session) {
+            mResult = session;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onConfigureFailed(@NonNull CameraCaptureSession session) {
+            mLatch.countDown();
+        }
+
+        CameraCaptureSession await() {
+            try {
+                if (!mLatch.await(OPEN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Configure session timeout.");
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Configure session interrupted.", e);
+            }
+            if (mResult == null) {
+                throw new IllegalStateException("Configure session failed.");
+            }
+            return mResult;
+        }
+
+    }
+
+}
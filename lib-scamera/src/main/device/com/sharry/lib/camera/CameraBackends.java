@@ -0,0 +1,115 @@
+package com.sharry.lib.camera;
+
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Arrays;
+
+/**
+ * 相机引擎的注册表
+ * <p>
+ * Camera2 与 CameraX 的实现由各自的工厂类直接创建, 工厂类只有被选中时才会被加载与校验,
+ * Camera1 的路径不会触碰到 CameraX 的任何类. 不使用反射, 开启混淆的应用中无需额外的 keep 规则.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class CameraBackends {
+
+    private static final String TAG = CameraBackends.class.getSimpleName();
+
+    /**
+     * 根据引擎创建相机设备, 自动选择时由 {@link BackendPolicy} 决定, 当前系统不支持时回退到 Camera1
+     */
+    @NonNull
+    static ICameraDevice create(int engine, @NonNull CameraContext context,
+                                @NonNull ICameraDevice.OnCameraReadyListener listener) {
+        if (engine == Constants.ENGINE_AUTO) {
+            int defaultEngine = isAvailable(Constants.ENGINE_CAMERAX, context)
+                    ? Constants.ENGINE_CAMERAX : Constants.ENGINE_CAMERA1;
+            engine = BackendPolicy.getInstance(context).choose(availableEngines(context),
+                    defaultEngine);
+        }
+        if (!isAvailable(engine, context)) {
+            engine = Constants.ENGINE_CAMERA1;
+        }
+        switch (engine) {
+            case Constants.ENGINE_CAMERA2:
+                try {
+                    return Camera2Factory.create(context, listener);
+                } catch (RuntimeException | LinkageError e) {
+                    Log.e(TAG, "Create Camera2 device failed, fallback to Camera1.", e);
+                    return new Camera1Device(context, listener);
+                }
+            case Constants.ENGINE_CAMERAX:
+                try {
+                    return CameraXFactory.create(context, listener);
+                } catch (RuntimeException | LinkageError e) {
+                    // 如 CameraX 的依赖被裁剪掉
+                    Log.e(TAG, "Create CameraX device failed, fallback to Camera1.", e);
+                    return new Camera1Device(context, listener);
+                }
+            default:
+                return new Camera1Device(context, listener);
+        }
+    }
+
+    static boolean isAvailable(int engine, @NonNull CameraContext context) {
+        switch (engine) {
+            case Constants.ENGINE_CAMERA1:
+                return true;
+            case Constants.ENGINE_CAMERA2:
+                return Build.VERSION.SDK_INT >= 21;
+            case Constants.ENGINE_CAMERAX:
+                // CameraX 的 UseCase 需要绑定到生命周期上
+                return Build.VERSION.SDK_INT > 21
+                        && context.getBaseContext() instanceof LifecycleOwner;
+            default:
+                return false;
+        }
+    }
+
+    private static int[] availableEngines(CameraContext context) {
+        int[] engines = {Constants.ENGINE_CAMERA1, Constants.ENGINE_CAMERA2,
+                Constants.ENGINE_CAMERAX};
+        int count = 0;
+        for (int engine : engines) {
+            if (isAvailable(engine, context)) {
+                engines[count++] = engine;
+            }
+        }
+        return Arrays.copyOf(engines, count);
+    }
+
+    private CameraBackends() {
+    }
+
+    /**
+     * 隔离 Camera2Device 的加载, 只有调用时才会解析
+     */
+    private static final class Camera2Factory {
+
+        static ICameraDevice create(CameraContext context,
+                                    ICameraDevice.OnCameraReadyListener listener) {
+            return new Camera2Device(context, listener);
+        }
+
+    }
+
+    /**
+     * 隔离 CameraXDevice 及 CameraX 的类的加载, 只有调用时才会解析
+     */
+    private static final class CameraXFactory {
+
+        static ICameraDevice create(CameraContext context,
+                                    ICameraDevice.OnCameraReadyListener listener) {
+            return new CameraXDevice(context, listener);
+        }
+
+    }
+
+}
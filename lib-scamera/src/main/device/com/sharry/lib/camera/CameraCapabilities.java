@@ -0,0 +1,251 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个镜头的能力描述, 不可变
+ * <p>
+ * 尺寸与帧率使用 int 数组紧凑存储, 便于序列化到磁盘缓存.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class CameraCapabilities {
+
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final String[] EMPTY_STRINGS = new String[0];
+
+    final String api;
+    final String cameraId;
+    final int facing;
+    final int sensorOrientation;
+    /**
+     * 按照 [width0, height0, width1, height1...] 排列
+     */
+    final int[] previewSizes;
+    /**
+     * 每个预览尺寸能达到的最高帧率, 与 {@link #previewSizes} 一一对应, 单位为 fps * 1000
+     */
+    final int[] previewMaxFps;
+    final int[] pictureSizes;
+    final String[] focusModes;
+    final String[] flashModes;
+    /**
+     * 按照 [min0, max0, min1, max1...] 排列, 单位为 fps * 1000
+     */
+    final int[] fpsRanges;
+    /**
+     * 由 {@link #pictureSizes} 按需构建, 随能力一起被缓存复用, 不需要每次打开相机都重建
+     */
+    private volatile SizeMap mPictureSizeMap;
+    /**
+     * 由 {@link #previewSizes} 按需构建, 用于预览尺寸的初选
+     */
+    private volatile SizeMap mPreviewSizeMap;
+
+    /**
+     * 只包含镜头信息, 尚未打开过相机
+     */
+    CameraCapabilities(String api, String cameraId, int facing, int sensorOrientation) {
+        this(api, cameraId, facing, sensorOrientation, EMPTY_INTS, EMPTY_INTS, EMPTY_INTS,
+                EMPTY_STRINGS, EMPTY_STRINGS, EMPTY_INTS);
+    }
+
+    CameraCapabilities(String api, String cameraId, int facing, int sensorOrientation,
+                       int[] previewSizes, int[] previewMaxFps, int[] pictureSizes,
+                       String[] focusModes, String[] flashModes, int[] fpsRanges) {
+        this.api = api;
+        this.cameraId = cameraId;
+        this.facing = facing;
+        this.sensorOrientation = sensorOrientation;
+        this.previewSizes = previewSizes;
+        this.previewMaxFps = previewMaxFps;
+        this.pictureSizes = pictureSizes;
+        this.focusModes = focusModes;
+        this.flashModes = flashModes;
+        this.fpsRanges = fpsRanges;
+    }
+
+    /**
+     * @return 是否包含尺寸等需要打开相机才能获取的信息
+     */
+    boolean hasStreamInfo() {
+        return previewSizes.length > 0 && pictureSizes.length > 0;
+    }
+
+    /**
+     * 补充打开相机后才能获取的信息
+     *
+     * @param previewMaxFps 每个预览尺寸的最高帧率, 为 null 时取 fpsRanges 中的最高帧率
+     */
+    CameraCapabilities withStreamInfo(int[] previewSizes, @Nullable int[] previewMaxFps,
+                                      int[] pictureSizes, String[] focusModes,
+                                      String[] flashModes, int[] fpsRanges) {
+        if (previewMaxFps == null) {
+            int maxFps = 0;
+            for (int i = 1; i < fpsRanges.length; i += 2) {
+                maxFps = Math.max(maxFps, fpsRanges[i]);
+            }
+            previewMaxFps = new int[previewSizes.length / 2];
+            Arrays.fill(previewMaxFps, maxFps);
+        }
+        return new CameraCapabilities(api, cameraId, facing, sensorOrientation, previewSizes,
+                previewMaxFps, pictureSizes, focusModes, flashModes, fpsRanges);
+    }
+
+    /**
+     * @return 镜头的唯一标识, 如 camera1:0
+     */
+    String key() {
+        return api + ":" + cameraId;
+    }
+
+    @NonNull
+    SizeMap pictureSizeMap() {
+        SizeMap sizeMap = mPictureSizeMap;
+        if (sizeMap == null) {
+            // 能力不可变, 并发构建的结果一致, 无需加锁
+            sizeMap = new SizeMap(pictureSizes);
+            mPictureSizeMap = sizeMap;
+        }
+        return sizeMap;
+    }
+
+    @NonNull
+    SizeMap previewSizeMap() {
+        SizeMap sizeMap = mPreviewSizeMap;
+        if (sizeMap == null) {
+            sizeMap = new SizeMap(previewSizes);
+            mPreviewSizeMap = sizeMap;
+        }
+        return sizeMap;
+    }
+
+    boolean supportsFocusMode(@Nullable String mode) {
+        return contains(focusModes, mode);
+    }
+
+    boolean supportsFlashMode(@Nullable String mode) {
+        return contains(flashModes, mode);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CameraCapabilities{" + api + ":" + cameraId
+                + ", facing=" + facing
+                + ", sensorOrientation=" + sensorOrientation
+                + ", previewSizes=" + previewSizes.length / 2
+                + ", pictureSizes=" + pictureSizes.length / 2
+                + ", focusModes=" + Arrays.toString(focusModes)
+                + ", flashModes=" + Arrays.toString(flashModes)
+                + ", fpsRanges=" + Arrays.toString(fpsRanges)
+                + '}';
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(api);
+        out.writeUTF(cameraId);
+        out.writeInt(facing);
+        out.writeInt(sensorOrientation);
+        writeInts(out, previewSizes);
+        writeInts(out, previewMaxFps);
+        writeInts(out, pictureSizes);
+        writeStrings(out, focusModes);
+        writeStrings(out, flashModes);
+        writeInts(out, fpsRanges);
+    }
+
+    static CameraCapabilities readFrom(DataInputStream in) throws IOException {
+        return new CameraCapabilities(
+                in.readUTF(),
+                in.readUTF(),
+                in.readInt(),
+                in.readInt(),
+                readInts(in),
+                readInts(in),
+                readInts(in),
+                readStrings(in),
+                readStrings(in),
+                readInts(in)
+        );
+    }
+
+    /**
+     * 将字符串集合转为数组, null 视为空集合
+     */
+    static String[] toArray(@Nullable List<String> list) {
+        return list == null ? EMPTY_STRINGS : list.toArray(new String[0]);
+    }
+
+    private static boolean contains(String[] array, String value) {
+        if (value == null) {
+            return false;
+        }
+        for (String item : array) {
+            if (value.equals(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * 读取数组的长度, 按照每个元素至少占用的字节数与文件剩余的长度校验, 避免损坏的文件导致分配过大的数组
+     */
+    static int readCount(DataInputStream in, int minElementBytes) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || (long) count * minElementBytes > in.available()) {
+            throw new IOException("Corrupt count " + count + ".");
+        }
+        return count;
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int length = readCount(in, 4);
+        if (length == 0) {
+            return EMPTY_INTS;
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        // writeUTF 至少写入 2 字节的长度
+        int length = readCount(in, 2);
+        if (length == 0) {
+            return EMPTY_STRINGS;
+        }
+        String[] values = new String[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,260 @@
+package com.sharry.lib.camera;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 相机能力的持久化缓存
+ * <p>
+ * 以设备指纹 {@link Build#FINGERPRINT} 与相机 id 为 key, 保存镜头朝向、传感器方向、尺寸、对焦、闪光灯、帧率等信息,
+ * 避免每次冷启动都遍历 getCameraInfo 和解析 getSupportedXxx. 系统升级后指纹变化, 缓存自动失效.
+ * <p>
+ * 缓存在相机线程上懒加载, 不会阻塞 UI 线程.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class CameraCapabilityCache {
+
+    static final String API_CAMERA1 = "camera1";
+    static final String API_CAMERA2 = "camera2";
+
+    private static final String TAG = CameraCapabilityCache.class.getSimpleName();
+    private static final String FILE_NAME = "scamera_capabilities.bin";
+    private static final int MAGIC = 0x53434150;   // SCAP
+    private static final int VERSION = 2;
+
+    /**
+     * 镜头按照 id 排序, 纯数字的 id 按照数值排序
+     */
+    private static final Comparator<CameraCapabilities> LENS_ORDER =
+            new Comparator<CameraCapabilities>() {
+                @Override
+                public int compare(CameraCapabilities o1, CameraCapabilities o2) {
+                    int result = o1.cameraId.length() - o2.cameraId.length();
+                    return result != 0 ? result : o1.cameraId.compareTo(o2.cameraId);
+                }
+            };
+
+    private static volatile CameraCapabilityCache sInstance;
+
+    static CameraCapabilityCache getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            synchronized (CameraCapabilityCache.class) {
+                if (sInstance == null) {
+                    sInstance = new CameraCapabilityCache(context.getApplicationContext());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private final File mFile;
+    private final Handler mHandler;
+    /**
+     * key 为 api:cameraId
+     */
+    private final Map<String, CameraCapabilities> mCapabilities = new HashMap<>();
+    /**
+     * 每种 api 的镜头数量, 用于判断镜头列表是否完整
+     */
+    private final Map<String, Integer> mLensCounts = new HashMap<>();
+    private boolean mLoaded;
+    private boolean mDirty;
+
+    private CameraCapabilityCache(Context context) {
+        mFile = new File(context.getFilesDir(), FILE_NAME);
+        mHandler = new Handler(CameraThread.getLooper());
+    }
+
+    /**
+     * 在相机线程预加载缓存, 使其在打开相机之前就绪
+     */
+    void preload() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+            }
+        });
+    }
+
+    /**
+     * @return api 对应的所有镜头, 按照 id 的顺序排列, 未缓存时返回 null
+     */
+    @Nullable
+    @WorkerThread
+    synchronized List<CameraCapabilities> getLenses(@NonNull String api) {
+        ensureLoaded();
+        Integer count = mLensCounts.get(api);
+        if (count == null) {
+            return null;
+        }
+        List<CameraCapabilities> result = new ArrayList<>(count);
+        for (CameraCapabilities capabilities : mCapabilities.values()) {
+            if (capabilities.api.equals(api)) {
+                result.add(capabilities);
+            }
+        }
+        if (result.size() != count) {
+            return null;
+        }
+        Collections.sort(result, LENS_ORDER);
+        return result;
+    }
+
+    /**
+     * 保存 api 对应的完整镜头列表
+     */
+    @WorkerThread
+    synchronized void putLenses(@NonNull String api, @NonNull List<CameraCapabilities> lenses) {
+        ensureLoaded();
+        for (CameraCapabilities lens : lenses) {
+            String key = keyOf(api, lens.cameraId);
+            // 已经包含尺寸等信息的, 无需覆盖
+            if (!mCapabilities.containsKey(key)) {
+                mCapabilities.put(key, lens);
+            }
+        }
+        mLensCounts.put(api, lenses.size());
+        mDirty = true;
+    }
+
+    @Nullable
+    @WorkerThread
+    synchronized CameraCapabilities get(@NonNull String api, @NonNull String cameraId) {
+        ensureLoaded();
+        return mCapabilities.get(keyOf(api, cameraId));
+    }
+
+    @WorkerThread
+    synchronized void put(@NonNull CameraCapabilities capabilities) {
+        ensureLoaded();
+        mCapabilities.put(capabilities.key(), capabilities);
+        mDirty = true;
+    }
+
+    /**
+     * 在相机线程空闲时将变更写入磁盘
+     */
+    void flushAsync() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        });
+    }
+
+    private synchronized void flush() {
+        if (!mDirty) {
+            return;
+        }
+        File tmp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(Build.FINGERPRINT);
+            out.writeInt(mLensCounts.size());
+            for (Map.Entry<String, Integer> entry : mLensCounts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.writeInt(mCapabilities.size());
+            for (CameraCapabilities capabilities : mCapabilities.values()) {
+                capabilities.writeTo(out);
+            }
+            out.close();
+            out = null;
+            // 原子替换, 避免写入中途退出导致文件损坏
+            if (!tmp.renameTo(mFile)) {
+                throw new IOException("Rename " + tmp + " failed.");
+            }
+            mDirty = false;
+        } catch (IOException e) {
+            Log.w(TAG, "Write camera capabilities failed.", e);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private synchronized void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        if (!mFile.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !Build.FINGERPRINT.equals(in.readUTF())) {
+                // 格式不兼容或者系统已升级, 缓存失效
+                Log.i(TAG, "Camera capabilities cache is stale, discard it.");
+                return;
+            }
+            // api 与数量至少 6 字节, 一个镜头至少包含 2 个字符串与 8 个整数
+            for (int i = 0, count = CameraCapabilities.readCount(in, 6); i < count; i++) {
+                mLensCounts.put(in.readUTF(), in.readInt());
+            }
+            for (int i = 0, count = CameraCapabilities.readCount(in, 36); i < count; i++) {
+                CameraCapabilities capabilities = CameraCapabilities.readFrom(in);
+                mCapabilities.put(capabilities.key(), capabilities);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 文件已损坏, 删除后重新查询
+            Log.w(TAG, "Read camera capabilities failed, discard them.", e);
+            mLensCounts.clear();
+            mCapabilities.clear();
+            closeQuietly(in);
+            in = null;
+            if (!mFile.delete()) {
+                Log.w(TAG, "Delete " + mFile + " failed.");
+            }
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private static String keyOf(String api, String cameraId) {
+        return api + ":" + cameraId;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore.
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 相机相关的后台任务执行器
+ * <p>
+ * 拷贝、编码等耗时的数据处理在此执行, 不占用相机线程与主线程.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class CameraExecutors {
+
+    private static final int BACKGROUND_THREADS = 2;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * 编码线程数, 给相机与渲染线程留出一个核心
+     */
+    private static final int ENCODER_THREADS = Math.max(2,
+            Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static ThreadPoolExecutor sBackground;
+    private static ThreadPoolExecutor sEncoder;
+
+    static synchronized Executor background() {
+        if (sBackground == null) {
+            sBackground = new ThreadPoolExecutor(BACKGROUND_THREADS, BACKGROUND_THREADS,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new NamedThreadFactory("SCamera Background"));
+            sBackground.allowCoreThreadTimeOut(true);
+        }
+        return sBackground;
+    }
+
+    /**
+     * 连拍等需要并行编码的任务使用, 与 {@link #background()} 隔离, 互不阻塞
+     */
+    static synchronized Executor encoder() {
+        if (sEncoder == null) {
+            sEncoder = new ThreadPoolExecutor(ENCODER_THREADS, ENCODER_THREADS,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new NamedThreadFactory("SCamera Encoder"));
+            sEncoder.allowCoreThreadTimeOut(true);
+        }
+        return sEncoder;
+    }
+
+    private CameraExecutors() {
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String mName;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, mName + " #" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
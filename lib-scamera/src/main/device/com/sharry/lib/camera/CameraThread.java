@@ -0,0 +1,44 @@
+package com.sharry.lib.camera;
+
+import android.os.HandlerThread;
+import android.os.Looper;
+
+/**
+ * 相机指令的串行执行线程
+ * <p>
+ * 相机是进程内的独占资源, 所有的相机设备共用一个线程, 保证 open/close 严格有序.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class CameraThread {
+
+    private static HandlerThread sThread;
+    private static HandlerThread sCallbackThread;
+
+    static synchronized Looper getLooper() {
+        if (sThread == null) {
+            sThread = new HandlerThread("SCamera Thread");
+            sThread.start();
+        }
+        return sThread.getLooper();
+    }
+
+    /**
+     * 相机异步回调的执行线程
+     * <p>
+     * Camera2 的状态回调与图像回调投递到此线程, 使得相机线程可以同步等待异步操作的结果.
+     */
+    static synchronized Looper getCallbackLooper() {
+        if (sCallbackThread == null) {
+            sCallbackThread = new HandlerThread("SCamera Callback Thread");
+            sCallbackThread.start();
+        }
+        return sCallbackThread.getLooper();
+    }
+
+    private CameraThread() {
+    }
+
+}
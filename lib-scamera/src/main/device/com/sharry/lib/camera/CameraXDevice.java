@@ -1,11 +1,25 @@
 package com.sharry.lib.camera;
 
 import android.annotation.TargetApi;
-import android.graphics.Bitmap;
+import android.content.Context;
+import android.graphics.Rect;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.Range;
 import android.util.Rational;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.camera.camera2.Camera2Config;
 import androidx.camera.core.CameraX;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageAnalysisConfig;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.core.PreviewConfig;
 import androidx.lifecycle.LifecycleOwner;
@@ -16,14 +30,45 @@ import androidx.lifecycle.LifecycleOwner;
  * @since 2019-07-26 13:57
  */
 @TargetApi(21)
-class CameraXDevice extends AbsCameraDevice implements Preview.OnPreviewOutputUpdateListener {
+class CameraXDevice extends AbsCameraDevice implements Preview.OnPreviewOutputUpdateListener,
+        ImageAnalysis.Analyzer {
 
+    private static final String TAG = CameraXDevice.class.getSimpleName();
+
+    private final Handler mAnalysisHandler;
+    private final Yuv420Converter mConverter = new Yuv420Converter();
+    private final Camera2CapabilityLoader mCapabilityLoader;
     private Preview mPreview;
+    /**
+     * 可选的分析流, 只在设置了帧监听器时绑定
+     */
+    private ImageAnalysis mAnalysis;
     private LifecycleOwner mLifecycleOwner;
+    /**
+     * 每次打开或关闭时递增, 后台解析完成时据此丢弃已被取代的打开, 只在主线程访问
+     */
+    private int mOpenGeneration;
+    /**
+     * 对焦区域映射的目标, 即预览的裁剪区域; 未缩放时与 active array 一致, 未知时为 null
+     */
+    private Rect mCropRegion;
+    /**
+     * 尚未收敛的点击对焦, 只在主线程访问
+     */
+    private FocusRequest mFocusRequest;
 
     CameraXDevice(CameraContext context, OnCameraReadyListener listener) {
-        super(context, listener);
+        // CameraX 的绑定操作必须在主线程执行
+        super(context, listener, Looper.getMainLooper());
         this.mLifecycleOwner = (LifecycleOwner) context.getBaseContext();
+        // 分析帧的拷贝不占用主线程
+        this.mAnalysisHandler = new Handler(CameraThread.getCallbackLooper());
+        this.mCapabilityLoader = new Camera2CapabilityLoader(context);
+    }
+
+    @Override
+    int getEngine() {
+        return Constants.ENGINE_CAMERAX;
     }
 
     @Override
@@ -31,68 +76,323 @@ class CameraXDevice extends AbsCameraDevice implements Preview.OnPreviewOutputUp
         return mPreview != null && CameraX.isBound(mPreview);
     }
 
+    @Nullable
     @Override
-    public void open() {
-        close();
-        setupPreview();
-        CameraX.bindToLifecycle(mLifecycleOwner, mPreview);
+    CameraCapabilities loadLensCapabilities(int facing) {
+        CameraCapabilities lens = mCapabilityLoader.findLens(facing);
+        return lens == null ? null : mCapabilityLoader.load(lens);
     }
 
     @Override
-    public void close() {
-        CameraX.unbindAll();
+    void performOpen(@NonNull CameraTimings timings) {
+        performClose(timings);
+        resolveAndBind(mOpenGeneration, config);
+        timings.mark(CameraTimings.PHASE_CONFIGURE);
+    }
+
+    /**
+     * 能力的查询涉及 binder 调用与磁盘读取, 在后台线程解析能力与预览尺寸, 只将绑定投递到主线程
+     */
+    private void resolveAndBind(final int generation, final CameraConfig openConfig) {
+        final Size viewSize = getViewSizeInSensorOrientation();
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Resolved resolved = new Resolved();
+                try {
+                    resolved.capabilities = loadCapabilities(
+                            getLensFacing(openConfig.getFacing()));
+                    if (resolved.capabilities != null) {
+                        resolved.previewSize = sizeSelector.select(resolved.capabilities,
+                                viewSize, openConfig.getAspectRatio());
+                        resolved.activeArray = loadActiveArray(resolved.capabilities.cameraId);
+                    }
+                } catch (Throwable e) {
+                    Log.w(TAG, "Resolve capabilities failed.", e);
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        bind(generation, openConfig, resolved);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 绑定 UseCase, 运行在主线程
+     */
+    private void bind(int generation, CameraConfig openConfig, Resolved resolved) {
+        // 解析期间已被关闭或重新打开
+        if (generation != mOpenGeneration) {
+            return;
+        }
+        // 解析期间镜头或尺寸相关的配置变更了, 按照最新的配置重新解析
+        if ((config.diff(openConfig) & CameraConfig.CHANGES_STREAM) != 0) {
+            resolveAndBind(generation, config);
+            return;
+        }
+        capabilities = resolved.capabilities;
+        previewSize = resolved.previewSize;
+        mCropRegion = resolved.activeArray;
+        try {
+            setupPreview(resolved.capabilities, resolved.previewSize);
+            if (frameListener != null) {
+                setupAnalysis();
+                CameraX.bindToLifecycle(mLifecycleOwner, mPreview, mAnalysis);
+            } else {
+                CameraX.bindToLifecycle(mLifecycleOwner, mPreview);
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Bind use cases failed.", e);
+            CameraX.unbindAll();
+            mAnalysis = null;
+        }
     }
 
-    @Nullable
     @Override
-    public Bitmap takePicture() {
-        return null;
+    void performClose(@NonNull CameraTimings timings) {
+        mOpenGeneration++;
+        if (mFocusRequest != null) {
+            dispatchFocusFailed(mFocusRequest, new IllegalStateException("Camera is closed."));
+            mFocusRequest = null;
+        }
+        CameraX.unbindAll();
+        mAnalysis = null;
+        timings.mark(CameraTimings.PHASE_RELEASE);
     }
 
+    /**
+     * 通过 {@link Preview#focus} 设置对焦与测光区域, 由 CameraX 触发单次对焦,
+     * 超时后 CameraX 自行清除区域并恢复连续对焦, 因此无需 {@link #performFocusReset()}
+     */
     @Override
-    public void notifyAutoFocusChanged() {
-        if (this.autoFocus == context.isAutoFocus()) {
+    void performFocus(@NonNull final FocusRequest request) {
+        // 1. 取消尚未收敛的上一次对焦
+        if (mFocusRequest != null) {
+            dispatchFocusFailed(mFocusRequest,
+                    new IllegalStateException("Superseded by a newer focus request."));
+            mFocusRequest = null;
+        }
+        if (capabilities == null || mCropRegion == null) {
+            dispatchFocusFailed(request, new UnsupportedOperationException(
+                    "Crop region of the lens is unknown."));
             return;
         }
-        this.autoFocus = context.isAutoFocus();
-        if (isCameraOpened()) {
-            // TODO: 探究 CameraX 的自动对焦技术
+        // 2. 将显示坐标映射到裁剪区域, 与预览画面的旋转和镜像互逆
+        boolean mirror = capabilities.facing == Constants.FACING_FRONT;
+        int displayOrientation = FocusArea.calcDisplayOrientation(
+                capabilities.sensorOrientation, config.getScreenOrientationDegrees(), mirror);
+        Rect focus = FocusArea.toActiveArray(FocusArea.toSensorArea(request.x, request.y,
+                displayOrientation, mirror, FocusArea.FOCUS_SIZE), mCropRegion);
+        Rect metering = FocusArea.toActiveArray(FocusArea.toSensorArea(request.x, request.y,
+                displayOrientation, mirror, FocusArea.METERING_SIZE), mCropRegion);
+        // 3. 回调所在的线程不确定, 统一切换到主线程
+        mFocusRequest = request;
+        mPreview.focus(focus, metering, new androidx.camera.core.OnFocusListener() {
+            @Override
+            public void onFocusLocked(Rect afRect) {
+                postFocusConverged(request, true);
+            }
+
+            @Override
+            public void onFocusUnableToLock(Rect afRect) {
+                postFocusConverged(request, false);
+            }
+
+            @Override
+            public void onFocusTimedOut(Rect afRect) {
+                postFocusConverged(request, false);
+            }
+        });
+    }
+
+    private void postFocusConverged(final FocusRequest request, final boolean focused) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                // 已被取代或相机已关闭
+                if (mFocusRequest != request) {
+                    return;
+                }
+                mFocusRequest = null;
+                dispatchFocused(request, focused);
+            }
+        });
+    }
+
+    @Override
+    void performParametersChanged(int changes) {
+        if ((changes & CameraConfig.CHANGED_FLASH_MODE) != 0) {
+            // TODO: 探究 CameraX 的闪光灯控制
+        }
+        // 对焦模式与帧率只能在构建 UseCase 时通过 Camera2Config 设置, 需要重新绑定
+        if ((changes & (CameraConfig.CHANGED_AUTO_FOCUS
+                | CameraConfig.CHANGED_CAPTURE_PROFILE)) != 0) {
+            requestReopen();
         }
     }
 
     @Override
-    public void notifyFlashModeChanged() {
-        if (flashMode == context.getFlashMode()) {
+    void performPreviewFrameListenerChanged(@Nullable OnPreviewFrameListener listener) {
+        frameListener = listener;
+        if (!isCameraOpened()) {
             return;
         }
-        flashMode = context.getFlashMode();
-        if (isCameraOpened()) {
-            // TODO: 探究 CameraX 的闪光灯控制
+        // 只增删分析流, 预览流保持绑定, 不会输出新的 SurfaceTexture
+        if (mAnalysis != null) {
+            CameraX.unbind(mAnalysis);
+            mAnalysis = null;
+        }
+        if (listener != null) {
+            setupAnalysis();
+            CameraX.bindToLifecycle(mLifecycleOwner, mAnalysis);
         }
     }
 
     @Override
     public void onUpdated(final Preview.PreviewOutput output) {
-        listener.onCameraReady(
+        dispatchCameraReady(
                 output.getSurfaceTexture(),
-                new Size(output.getTextureSize().getWidth(), output.getTextureSize().getHeight()),
-                screenOrientationDegrees
+                Size.of(output.getTextureSize().getWidth(), output.getTextureSize().getHeight()),
+                config.getScreenOrientationDegrees()
         );
     }
 
-    private void setupPreview() {
-        PreviewConfig config = new PreviewConfig.Builder()
+    @Override
+    public void analyze(ImageProxy image, int rotationDegrees) {
+        // 运行在分析线程, image 在方法返回后由 CameraX 关闭
+        if (frameListener == null) {
+            return;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // CameraX 实际选取的分辨率可能与期望的不同
+        if (framePool.getWidth() != width || framePool.getHeight() != height) {
+            framePool.prepare(width, height, null);
+        }
+        // 以传感器开始曝光的时刻为准, 零延迟拍照据此匹配快门
+        PreviewFrame frame = framePool.acquire(toNanoTime(image.getTimestamp()));
+        if (frame == null) {
+            return;
+        }
+        mConverter.toNV21(image, frame.getData());
+        frameRotationDegrees = rotationDegrees;
+        dispatchPreviewFrame(frame);
+    }
+
+    private void setupPreview(@Nullable CameraCapabilities capabilities,
+                              @Nullable Size previewSize) {
+        PreviewConfig.Builder builder = new PreviewConfig.Builder();
+        Camera2Config.Extender extender = new Camera2Config.Extender(builder);
+        // 帧率范围
+        Range<Integer> fpsRange = capabilities == null ? null : chooseFpsRange(capabilities);
+        if (fpsRange != null) {
+            extender.setCaptureRequestOption(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, fpsRange);
+        }
+        // 对焦模式, 开启时使用 CameraX 默认的连续对焦
+        if (!config.isAutoFocus()) {
+            extender.setCaptureRequestOption(CaptureRequest.CONTROL_AF_MODE,
+                    CaptureRequest.CONTROL_AF_MODE_OFF);
+        }
+        // 分辨率, 与 Camera1/Camera2 共用代价模型选取, 能力未知时交由 CameraX 匹配
+        Size targetSize = config.getDesiredSize();
+        if (previewSize != null) {
+            // 选取的尺寸为传感器方向, 竖屏时转回与屏幕一致的方向
+            targetSize = isLandscape(config.getScreenOrientationDegrees()) ? previewSize
+                    : Size.of(previewSize.getHeight(), previewSize.getWidth());
+        }
+        PreviewConfig previewConfig = builder
                 // CameraX 的宽高比和 Camera1 相反, 为 3:4 9:16......
-                .setTargetAspectRatio(new Rational(aspectRatio.getY(), aspectRatio.getX()))
-                // 分辨率
-                .setTargetResolution(new android.util.Size(previewWidth, previewHeight))
+                .setTargetAspectRatio(new Rational(config.getAspectRatio().getY(),
+                        config.getAspectRatio().getX()))
+                .setTargetResolution(new android.util.Size(targetSize.getWidth(),
+                        targetSize.getHeight()))
                 // 前置与否
-                .setLensFacing(facing == Constants.FACING_FRONT ? CameraX.LensFacing.FRONT
-                        : CameraX.LensFacing.BACK)
+                .setLensFacing(getLensFacing())
                 .build();
-        mPreview = new Preview(config);
+        mPreview = new Preview(previewConfig);
         mPreview.setOnPreviewOutputUpdateListener(this);
     }
 
+    /**
+     * 获取镜头的能力, 与 Camera2 共用缓存, 运行在后台线程
+     */
+    @Nullable
+    private CameraCapabilities loadCapabilities(CameraX.LensFacing lensFacing) {
+        try {
+            String cameraId = CameraX.getCameraWithLensFacing(lensFacing);
+            CameraCapabilities lens = cameraId == null ? null : mCapabilityLoader.findLens(cameraId);
+            return lens == null ? null : mCapabilityLoader.load(lens);
+        } catch (Exception e) {
+            Log.w(TAG, "Query capabilities failed.", e);
+            return null;
+        }
+    }
+
+    /**
+     * 获取镜头的 active array, 运行在后台线程
+     */
+    @Nullable
+    private Rect loadActiveArray(String cameraId) {
+        CameraManager manager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        try {
+            return manager.getCameraCharacteristics(cameraId)
+                    .get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
+        } catch (CameraAccessException e) {
+            Log.w(TAG, "Query active array failed.", e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据采集策略, 从当前镜头支持的帧率范围中选取
+     */
+    @Nullable
+    private Range<Integer> chooseFpsRange(CameraCapabilities capabilities) {
+        int[] range = FpsRangeSelector.select(config.getCaptureProfile(), capabilities.fpsRanges);
+        return range == null ? null : new Range<Integer>(range[0] / 1000, range[1] / 1000);
+    }
+
+    private CameraX.LensFacing getLensFacing() {
+        return getLensFacing(config.getFacing());
+    }
+
+    private static CameraX.LensFacing getLensFacing(int facing) {
+        return facing == Constants.FACING_FRONT
+                ? CameraX.LensFacing.FRONT : CameraX.LensFacing.BACK;
+    }
+
+    private static boolean isLandscape(int screenOrientationDegrees) {
+        return (screenOrientationDegrees == Constants.LANDSCAPE_90
+                || screenOrientationDegrees == Constants.LANDSCAPE_270);
+    }
+
+    private void setupAnalysis() {
+        Size targetSize = analysisSize != null ? analysisSize : config.getDesiredSize();
+        ImageAnalysisConfig analysisConfig = new ImageAnalysisConfig.Builder()
+                // 分析过慢时只保留最新的一帧, 不会阻塞预览
+                .setImageReaderMode(ImageAnalysis.ImageReaderMode.ACQUIRE_LATEST_IMAGE)
+                // 分析帧的分辨率与预览相互独立
+                .setTargetResolution(new android.util.Size(targetSize.getWidth(),
+                        targetSize.getHeight()))
+                .setLensFacing(getLensFacing())
+                .setCallbackHandler(mAnalysisHandler)
+                .build();
+        mAnalysis = new ImageAnalysis(analysisConfig);
+        mAnalysis.setAnalyzer(this);
+    }
+
+    /**
+     * 后台线程解析的结果, 能力未知时各字段为 null
+     */
+    private static class Resolved {
+
+        CameraCapabilities capabilities;
+        Size previewSize;
+        Rect activeArray;
+
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package com.sharry.lib.camera;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 基于代价模型的预览尺寸选择器
+ * <p>
+ * 每个候选尺寸的代价由四部分组成, 选取代价最低的一个:
+ * 1. 比例误差: 与期望比例的对数差, 接近但不相等的比例也能参与比较
+ * 2. 放大惩罚: CenterCrop 铺满视图时需要的放大倍数, 放大会损失清晰度
+ * 3. 像素预算: 超出视图像素数的部分浪费带宽与 GPU 填充, 超出预算后惩罚加重
+ * 4. 帧率能力: 尺寸能达到的最高帧率低于 30fps 时的惩罚
+ * <p>
+ * 计算之前先从 {@link SizeMap} 中取比例一致且能覆盖视图的最小尺寸作为初始的最优解, 比例误差已超过当前最低代价的候选
+ * 不再计算其余部分.
+ * <p>
+ * 决策结果按照 (镜头, 视图尺寸, 比例) 缓存, 视图尺寸已包含屏幕方向. 镜头以能力的实例区分, 尺寸与比例为享元,
+ * 与最近一次的决策相同时直接返回, 不分配对象.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class CostModelSizeSelector implements PreviewSizeSelector {
+
+    private static final int TARGET_FPS = 30000;
+    private static final float RATIO_WEIGHT = 40f;
+    private static final float UPSCALE_WEIGHT = 8f;
+    private static final float OVERSCAN_WEIGHT = 2f;
+    private static final float OVER_BUDGET_WEIGHT = 6f;
+    private static final float FPS_WEIGHT = 10f;
+    /**
+     * 超出视图像素数的倍数, 超过之后视为超出预算
+     */
+    private static final float BUDGET_FACTOR = 1.5f;
+    /**
+     * 视图尚未布局时, 按照 1080p 的视图选取
+     */
+    private static final Size FALLBACK_VIEW_SIZE = Size.of(1920, 1080);
+    private static final int MEMO_CAPACITY = 32;
+    private static final double LN_2 = Math.log(2);
+
+    private static volatile CostModelSizeSelector sInstance;
+
+    static CostModelSizeSelector getInstance() {
+        if (sInstance == null) {
+            synchronized (CostModelSizeSelector.class) {
+                if (sInstance == null) {
+                    sInstance = new CostModelSizeSelector();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private final LruCache<Key, Size> mMemo = new LruCache<>(MEMO_CAPACITY);
+    /**
+     * 最近一次的决策, 打开相机与每次布局的检查大多命中它
+     */
+    private volatile Decision mLastDecision;
+
+    private CostModelSizeSelector() {
+    }
+
+    @NonNull
+    @Override
+    public Size select(@NonNull CameraCapabilities capabilities, @NonNull Size viewSize,
+                       @NonNull AspectRatio aspectRatio) {
+        if (viewSize.getWidth() <= 0 || viewSize.getHeight() <= 0) {
+            viewSize = FALLBACK_VIEW_SIZE;
+        }
+        Decision last = mLastDecision;
+        if (last != null && last.key.matches(capabilities, viewSize, aspectRatio)) {
+            return last.result;
+        }
+        Key key = new Key(capabilities, viewSize, aspectRatio);
+        Size result = mMemo.get(key);
+        if (result == null) {
+            result = compute(capabilities, viewSize, aspectRatio);
+            mMemo.put(key, result);
+        }
+        mLastDecision = new Decision(key, result);
+        return result;
+    }
+
+    private static Size compute(CameraCapabilities capabilities, Size viewSize,
+                                AspectRatio aspectRatio) {
+        int[] sizes = capabilities.previewSizes;
+        int viewWidth = viewSize.getWidth();
+        int viewHeight = viewSize.getHeight();
+        float ratio = aspectRatio.toFloat();
+        float bestCost = Float.MAX_VALUE;
+        int best = indexOf(sizes, capabilities.previewSizeMap()
+                .smallestAtLeast(aspectRatio, viewWidth, viewHeight));
+        if (best >= 0) {
+            bestCost = addStreamCost(ratioCost(sizes[best], sizes[best + 1], ratio),
+                    sizes[best], sizes[best + 1], capabilities.previewMaxFps[best / 2],
+                    viewWidth, viewHeight);
+        }
+        for (int i = 0; i + 1 < sizes.length; i += 2) {
+            if (i == best) {
+                continue;
+            }
+            float cost = ratioCost(sizes[i], sizes[i + 1], ratio);
+            // 其余部分非负, 比例误差已超过最低代价时不可能更优
+            if (cost > bestCost) {
+                continue;
+            }
+            cost = addStreamCost(cost, sizes[i], sizes[i + 1], capabilities.previewMaxFps[i / 2],
+                    viewWidth, viewHeight);
+            // 代价相同时与逐个比较的结果一致, 取靠前的一个
+            if (cost < bestCost || (cost == bestCost && i < best)) {
+                bestCost = cost;
+                best = i;
+            }
+        }
+        if (best < 0) {
+            throw new IllegalStateException(capabilities.key() + " has no preview size.");
+        }
+        return Size.of(sizes[best], sizes[best + 1]);
+    }
+
+    /**
+     * @return 尺寸在 [width0, height0, width1, height1...] 中的下标, 不存在时返回 -1
+     */
+    private static int indexOf(int[] sizes, long size) {
+        if (size == SizeMap.NONE) {
+            return -1;
+        }
+        int width = SizeMap.width(size);
+        int height = SizeMap.height(size);
+        for (int i = 0; i + 1 < sizes.length; i += 2) {
+            if (sizes[i] == width && sizes[i + 1] == height) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 1. 比例误差, 取对数使放大与缩小的误差对称
+     */
+    private static float ratioCost(int width, int height, float ratio) {
+        return RATIO_WEIGHT * Math.abs((float) Math.log((float) width / height / ratio));
+    }
+
+    /**
+     * 在比例误差之上累加其余部分的代价
+     */
+    private static float addStreamCost(float cost, int width, int height, int maxFps,
+                                       int viewWidth, int viewHeight) {
+        // 2. 放大惩罚
+        float scale = Math.max((float) viewWidth / width, (float) viewHeight / height);
+        if (scale > 1) {
+            cost += UPSCALE_WEIGHT * log2(scale);
+        }
+        // 3. 像素预算
+        float overscan = (float) width * height / ((float) viewWidth * viewHeight);
+        if (overscan > 1) {
+            cost += OVERSCAN_WEIGHT * log2(overscan);
+        }
+        if (overscan > BUDGET_FACTOR) {
+            cost += OVER_BUDGET_WEIGHT * log2(overscan / BUDGET_FACTOR);
+        }
+        // 4. 帧率能力
+        if (maxFps < TARGET_FPS) {
+            cost += FPS_WEIGHT * (TARGET_FPS - maxFps) / TARGET_FPS;
+        }
+        return cost;
+    }
+
+    private static float log2(float value) {
+        return (float) (Math.log(value) / LN_2);
+    }
+
+    /**
+     * 决策的 key, 能力按照实例比较, 缓存中的能力在进程内复用同一个实例
+     */
+    private static final class Key {
+
+        final CameraCapabilities capabilities;
+        final Size viewSize;
+        final AspectRatio aspectRatio;
+
+        Key(CameraCapabilities capabilities, Size viewSize, AspectRatio aspectRatio) {
+            this.capabilities = capabilities;
+            this.viewSize = viewSize;
+            this.aspectRatio = aspectRatio;
+        }
+
+        boolean matches(CameraCapabilities capabilities, Size viewSize, AspectRatio aspectRatio) {
+            return this.capabilities == capabilities && this.viewSize.equals(viewSize)
+                    && this.aspectRatio.equals(aspectRatio);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return matches(other.capabilities, other.viewSize, other.aspectRatio);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(capabilities);
+            result = 31 * result + viewSize.hashCode();
+            result = 31 * result + aspectRatio.hashCode();
+            return result;
+        }
+
+    }
+
+    private static final class Decision {
+
+        final Key key;
+        final Size result;
+
+        Decision(Key key, Size result) {
+            this.key = key;
+            this.result = result;
+        }
+
+    }
+
+}
@@ -0,0 +1,355 @@
+package com.sharry.lib.camera;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Surface;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 模拟的相机引擎, 不依赖相机硬件
+ * <p>
+ * 在独立的生产线程上按照帧率输出 NV21 帧, 时间戳为每一帧的理论曝光时刻;
+ * 预览在低优先级的线程上通过 {@link Surface#lockCanvas} 绘制到 SurfaceTexture 上, 来不及绘制的帧直接跳过,
+ * 不占用生产线程的帧时钟, 与真实相机走同样的 {@link OnCameraReadyListener} 与帧流流程.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+class FakeCameraDevice extends AbsCameraDevice {
+
+    private static final String TAG = FakeCameraDevice.class.getSimpleName();
+    private static final int MAGIC_TEXTURE_ID = 0;
+
+    private final FakeCameraOptions mOptions;
+    private final SurfaceTexture mBufferTexture;
+    private final Size mSize;
+    private final long mIntervalNanos;
+
+    private volatile HandlerThread mProducerThread;
+    private Handler mProducer;
+    private HandlerThread mPreviewThread;
+    private Handler mPreviewHandler;
+    private final AtomicBoolean mPreviewBusy = new AtomicBoolean();
+    private Surface mSurface;
+    private FrameSource mSource;
+    private Bitmap mBitmap;
+    /**
+     * 预览线程绘制的 NV21 数据, 以及转换用的 I420 缓冲
+     */
+    private byte[] mPreviewData;
+    private byte[] mI420;
+    /**
+     * 没有帧监听器时, 用于承载预览数据
+     */
+    private byte[] mScratch;
+    private long mFrameIndex;
+    private long mNextFrameNanos;
+
+    FakeCameraDevice(CameraContext context, OnCameraReadyListener listener,
+                     @NonNull FakeCameraOptions options) {
+        super(context, listener, CameraThread.getLooper());
+        mOptions = options;
+        mSize = options.getSize();
+        mIntervalNanos = 1000000000L / options.getFps();
+        mBufferTexture = new SurfaceTexture(MAGIC_TEXTURE_ID);
+    }
+
+    @Override
+    public boolean isCameraOpened() {
+        return mProducerThread != null;
+    }
+
+    @Override
+    void performOpen(@NonNull CameraTimings timings) {
+        performClose(timings);
+        // 1. 准备帧数据的来源
+        mSource = mOptions.getYuvFile() != null
+                ? new FileFrameSource(mOptions.getYuvFile(), mSize)
+                : new PatternFrameSource(mOptions.getPattern(), mSize);
+        timings.mark(CameraTimings.PHASE_ACQUIRE);
+        // 2. 准备预览的画布与缓冲
+        mBufferTexture.setDefaultBufferSize(mSize.getWidth(), mSize.getHeight());
+        mSurface = new Surface(mBufferTexture);
+        if (mBitmap == null) {
+            mBitmap = Bitmap.createBitmap(mSize.getWidth(), mSize.getHeight(),
+                    Bitmap.Config.ARGB_8888);
+            mPreviewData = new byte[mSize.getWidth() * mSize.getHeight() * 3 / 2];
+            mI420 = new byte[mPreviewData.length];
+            mScratch = new byte[mPreviewData.length];
+        }
+        if (frameListener != null) {
+            framePool.prepare(mSize.getWidth(), mSize.getHeight(), null);
+        }
+        timings.mark(CameraTimings.PHASE_CONFIGURE);
+        // 3. 启动预览线程与生产线程
+        mPreviewThread = new HandlerThread("SCamera Fake Preview",
+                Process.THREAD_PRIORITY_BACKGROUND);
+        mPreviewThread.start();
+        mPreviewHandler = new Handler(mPreviewThread.getLooper());
+        mPreviewBusy.set(false);
+        mProducerThread = new HandlerThread("SCamera Fake Producer");
+        mProducerThread.start();
+        mProducer = new Handler(mProducerThread.getLooper());
+        mFrameIndex = 0;
+        mNextFrameNanos = System.nanoTime();
+        mProducer.post(mProduceFrame);
+        timings.mark(CameraTimings.PHASE_START_PREVIEW);
+        // 4. 通知外界, Camera 数据准备好了
+        dispatchCameraReady(mBufferTexture, mSize, 0);
+        Log.i(TAG, "Fake camera start preview success: " + mOptions);
+    }
+
+    @Override
+    void performClose(@NonNull CameraTimings timings) {
+        HandlerThread producerThread = mProducerThread;
+        if (producerThread != null) {
+            // 等待正在生产的帧结束, 之后才能释放 Surface
+            mProducer.removeCallbacks(mProduceFrame);
+            producerThread.quit();
+            try {
+                producerThread.join();
+            } catch (InterruptedException e) {
+                // ignore.
+            }
+            mProducerThread = null;
+            mProducer = null;
+            // 等待正在绘制的预览结束
+            mPreviewThread.quit();
+            try {
+                mPreviewThread.join();
+            } catch (InterruptedException e) {
+                // ignore.
+            }
+            mPreviewThread = null;
+            mPreviewHandler = null;
+            mSurface.release();
+            mSurface = null;
+            mSource.close();
+            mSource = null;
+        }
+        timings.mark(CameraTimings.PHASE_RELEASE);
+    }
+
+    @Override
+    boolean isViewSizeRequired() {
+        return false;
+    }
+
+    @Override
+    boolean isPreviewSizeChanged() {
+        // 尺寸由 FakeCameraOptions 决定, 与视图无关
+        return false;
+    }
+
+    @Override
+    void performParametersChanged(int changes) {
+        // 模拟相机没有对焦、闪光灯, 帧率由 FakeCameraOptions 决定
+    }
+
+    @Override
+    void performPreviewFrameListenerChanged(@Nullable OnPreviewFrameListener listener) {
+        if (listener != null && frameListener == null && isCameraOpened()) {
+            framePool.prepare(mSize.getWidth(), mSize.getHeight(), null);
+        }
+        frameListener = listener;
+    }
+
+    private final Runnable mProduceFrame = new Runnable() {
+        @Override
+        public void run() {
+            produceFrame();
+        }
+    };
+
+    private final Runnable mDrawPreview = new Runnable() {
+        @Override
+        public void run() {
+            drawPreview();
+            mPreviewBusy.set(false);
+        }
+    };
+
+    /**
+     * 生产一帧, 运行在生产线程
+     */
+    private void produceFrame() {
+        // 生产过慢时跳过已经错过的帧, 与真实的传感器一致
+        long now = System.nanoTime();
+        while (mNextFrameNanos + mIntervalNanos <= now) {
+            mNextFrameNanos += mIntervalNanos;
+            mFrameIndex++;
+        }
+        PreviewFrame frame = frameListener != null ? framePool.acquire(mNextFrameNanos) : null;
+        byte[] data = frame != null ? frame.getData() : mScratch;
+        mSource.read(mFrameIndex, data);
+        if (frame != null) {
+            dispatchPreviewFrame(frame);
+        }
+        // 预览线程空闲时才拷贝一份交给它绘制, 预览的开销不影响帧的节奏与延迟
+        if (mPreviewBusy.compareAndSet(false, true)) {
+            System.arraycopy(data, 0, mPreviewData, 0, mPreviewData.length);
+            mPreviewHandler.post(mDrawPreview);
+        }
+        mFrameIndex++;
+        mNextFrameNanos += mIntervalNanos;
+        long delayMillis = Math.max(0, (mNextFrameNanos - System.nanoTime()) / 1000000);
+        mProducer.postAtTime(mProduceFrame, SystemClock.uptimeMillis() + delayMillis);
+    }
+
+    /**
+     * 将 NV21 数据通过 libyuv 转为 ARGB 绘制到预览的 Surface 上, 运行在预览线程
+     */
+    private void drawPreview() {
+        int width = mSize.getWidth();
+        int height = mSize.getHeight();
+        LibyuvUtil.convertNV21ToI420(mPreviewData, mI420, width, height);
+        LibyuvUtil.convertI420ToBitmap(mI420, mBitmap, width, height);
+        try {
+            Canvas canvas = mSurface.lockCanvas(null);
+            canvas.drawBitmap(mBitmap, 0, 0, null);
+            mSurface.unlockCanvasAndPost(canvas);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Draw preview failed.", e);
+        }
+    }
+
+    /**
+     * 帧数据的来源, 运行在生产线程
+     */
+    private interface FrameSource {
+
+        /**
+         * 将第 index 帧的 NV21 数据写入 dst
+         */
+        void read(long index, byte[] dst);
+
+        void close();
+
+    }
+
+    /**
+     * 生成的图案, 叠加一条随帧移动的竖线
+     */
+    private static class PatternFrameSource implements FrameSource {
+
+        /**
+         * BT.601 彩条: 白, 黄, 青, 绿, 品红, 红, 蓝, 黑, 按照 Y, U, V 排列
+         */
+        private static final int[][] COLOR_BARS = {
+                {235, 128, 128}, {210, 16, 146}, {170, 166, 16}, {145, 54, 34},
+                {106, 202, 222}, {81, 90, 240}, {41, 240, 110}, {16, 128, 128}
+        };
+        private static final int LINE_WIDTH = 8;
+        private static final int LINE_STEP = 4;
+
+        private final int mWidth;
+        private final int mHeight;
+        private final byte[] mBase;
+
+        PatternFrameSource(int pattern, Size size) {
+            mWidth = size.getWidth();
+            mHeight = size.getHeight();
+            mBase = new byte[mWidth * mHeight * 3 / 2];
+            int frameSize = mWidth * mHeight;
+            for (int row = 0; row < mHeight; row++) {
+                for (int col = 0; col < mWidth; col++) {
+                    int luma;
+                    int u = 128;
+                    int v = 128;
+                    if (pattern == FakeCameraOptions.PATTERN_GRADIENT) {
+                        luma = 16 + col * 219 / mWidth;
+                    } else {
+                        int[] bar = COLOR_BARS[col * COLOR_BARS.length / mWidth];
+                        luma = bar[0];
+                        u = bar[1];
+                        v = bar[2];
+                    }
+                    mBase[row * mWidth + col] = (byte) luma;
+                    if ((row & 1) == 0 && (col & 1) == 0) {
+                        int index = frameSize + (row >> 1) * mWidth + col;
+                        mBase[index] = (byte) v;
+                        mBase[index + 1] = (byte) u;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void read(long index, byte[] dst) {
+            System.arraycopy(mBase, 0, dst, 0, mBase.length);
+            int x = (int) (index * LINE_STEP % mWidth);
+            int lineWidth = Math.min(LINE_WIDTH, mWidth - x);
+            for (int row = 0; row < mHeight; row++) {
+                int offset = row * mWidth + x;
+                for (int i = 0; i < lineWidth; i++) {
+                    dst[offset + i] = (byte) 235;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    /**
+     * 循环读取 NV21 原始文件
+     */
+    private static class FileFrameSource implements FrameSource {
+
+        private final RandomAccessFile mFile;
+        private final int mFrameLength;
+        private final long mFrameCount;
+
+        FileFrameSource(File file, Size size) {
+            mFrameLength = size.getWidth() * size.getHeight() * 3 / 2;
+            try {
+                mFile = new RandomAccessFile(file, "r");
+                mFrameCount = mFile.length() / mFrameLength;
+            } catch (IOException e) {
+                throw new IllegalStateException("Open " + file + " failed.", e);
+            }
+            if (mFrameCount == 0) {
+                close();
+                throw new IllegalStateException(file + " doesn't contain a " + size
+                        + " NV21 frame.");
+            }
+        }
+
+        @Override
+        public void read(long index, byte[] dst) {
+            try {
+                mFile.seek(index % mFrameCount * mFrameLength);
+                mFile.readFully(dst, 0, mFrameLength);
+            } catch (IOException e) {
+                Log.w(TAG, "Read frame " + index + " failed.", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                mFile.close();
+            } catch (IOException e) {
+                // ignore.
+            }
+        }
+
+    }
+
+}
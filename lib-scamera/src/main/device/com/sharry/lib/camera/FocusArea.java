@@ -0,0 +1,110 @@
+package com.sharry.lib.camera;
+
+import android.graphics.Rect;
+
+/**
+ * 对焦与测光区域的坐标映射
+ * <p>
+ * 输入为预览画面上的归一化坐标, 即撤销 centerCrop 之后的显示坐标, 取值 [-1, 1], y 轴向下;
+ * 输出为传感器坐标系下的区域, 取值 [-1000, 1000], 与 Camera1 的 Camera.Area 一致,
+ * Camera2 再按照 active array 的尺寸缩放.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class FocusArea {
+
+    /**
+     * 对焦区域的边长, 约为画面的 1/10
+     */
+    static final int FOCUS_SIZE = 200;
+
+    /**
+     * 测光区域的边长, 比对焦区域大一些, 避免高光的小物体使曝光剧烈变化
+     */
+    static final int METERING_SIZE = 300;
+
+    private static final int HALF_RANGE = 1000;
+
+    private FocusArea() {
+    }
+
+    /**
+     * 将显示坐标映射为传感器坐标系下的区域
+     * <p>
+     * 传感器画面先镜像(前置), 再顺时针旋转 displayOrientation 后显示在屏幕上, 这里做逆变换.
+     *
+     * @param x                  显示坐标 x, [-1, 1]
+     * @param y                  显示坐标 y, [-1, 1], 向下为正
+     * @param displayOrientation 传感器画面显示时顺时针旋转的角度
+     * @param mirror             画面是否水平镜像, 前置镜头为 true
+     * @param size               区域的边长, 如 {@link #FOCUS_SIZE}
+     */
+    static Rect toSensorArea(float x, float y, int displayOrientation, boolean mirror, int size) {
+        float sensorX, sensorY;
+        // 1. 逆时针旋转 displayOrientation
+        switch (displayOrientation) {
+            case 90:
+                sensorX = y;
+                sensorY = -x;
+                break;
+            case 180:
+                sensorX = -x;
+                sensorY = -y;
+                break;
+            case 270:
+                sensorX = -y;
+                sensorY = x;
+                break;
+            default:
+                sensorX = x;
+                sensorY = y;
+                break;
+        }
+        // 2. 撤销镜像
+        if (mirror) {
+            sensorX = -sensorX;
+        }
+        // 3. 缩放到 [-1000, 1000], 区域整体保持在范围内
+        int half = size / 2;
+        int bound = HALF_RANGE - half;
+        int centerX = clamp(Math.round(sensorX * HALF_RANGE), -bound, bound);
+        int centerY = clamp(Math.round(sensorY * HALF_RANGE), -bound, bound);
+        return new Rect(centerX - half, centerY - half, centerX + half, centerY + half);
+    }
+
+    /**
+     * 将 [-1000, 1000] 的区域缩放到 active array 中, 供 Camera2 使用
+     */
+    static Rect toActiveArray(Rect area, Rect activeArray) {
+        int width = activeArray.width();
+        int height = activeArray.height();
+        return new Rect(
+                activeArray.left + (area.left + HALF_RANGE) * width / (2 * HALF_RANGE),
+                activeArray.top + (area.top + HALF_RANGE) * height / (2 * HALF_RANGE),
+                activeArray.left + (area.right + HALF_RANGE) * width / (2 * HALF_RANGE),
+                activeArray.top + (area.bottom + HALF_RANGE) * height / (2 * HALF_RANGE)
+        );
+    }
+
+    /**
+     * 计算传感器画面显示时需要顺时针旋转的角度, 与 Camera1 的 setDisplayOrientation 一致
+     *
+     * @param sensorOrientation        传感器的安装角度
+     * @param screenOrientationDegrees 屏幕的方向
+     * @param front                    是否为前置镜头
+     */
+    static int calcDisplayOrientation(int sensorOrientation, int screenOrientationDegrees,
+                                      boolean front) {
+        if (front) {
+            return (360 - (sensorOrientation + screenOrientationDegrees) % 360) % 360;
+        }
+        return (sensorOrientation - screenOrientationDegrees + 360) % 360;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 根据采集策略从相机支持的帧率范围中选取一个
+ * <p>
+ * 帧率范围按照 [min0, max0, min1, max1...] 排列, 单位为 fps * 1000, 与 Camera1 保持一致.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class FpsRangeSelector {
+
+    /**
+     * 低延迟策略的目标帧率
+     */
+    private static final int LOW_LATENCY_FPS = 30000;
+
+    /**
+     * 省电策略的帧率上限
+     */
+    private static final int POWER_SAVING_MAX_FPS = 15000;
+
+    /**
+     * @param profile      采集策略, 如 {@link Constants#PROFILE_LOW_LATENCY}
+     * @param packedRanges 相机支持的帧率范围
+     * @return [min, max], 不需要设置或者没有可选的范围时返回 null
+     */
+    @Nullable
+    static int[] select(int profile, int[] packedRanges) {
+        if (profile == Constants.PROFILE_DEFAULT) {
+            return null;
+        }
+        int best = -1;
+        for (int i = 0; i + 1 < packedRanges.length; i += 2) {
+            if (best < 0 || isBetter(profile, packedRanges[i], packedRanges[i + 1],
+                    packedRanges[best], packedRanges[best + 1])) {
+                best = i;
+            }
+        }
+        return best < 0 ? null : new int[]{packedRanges[best], packedRanges[best + 1]};
+    }
+
+    private static boolean isBetter(int profile, int min, int max, int bestMin, int bestMax) {
+        switch (profile) {
+            case Constants.PROFILE_LOW_LATENCY:
+                // 上限最接近 30fps 的优先; 能达到 30fps 的范围中, 固定帧率的帧间隔稳定, 其次下限越高越好
+                int distance = Math.abs(max - LOW_LATENCY_FPS);
+                int bestDistance = Math.abs(bestMax - LOW_LATENCY_FPS);
+                if (distance != bestDistance) {
+                    return distance < bestDistance;
+                }
+                boolean reaches = max >= LOW_LATENCY_FPS;
+                boolean bestReaches = bestMax >= LOW_LATENCY_FPS;
+                if (reaches != bestReaches) {
+                    return reaches;
+                }
+                boolean fixed = min == max;
+                boolean bestFixed = bestMin == bestMax;
+                if (reaches && fixed != bestFixed) {
+                    return fixed;
+                }
+                return min > bestMin;
+            case Constants.PROFILE_LOW_LIGHT:
+                // 上限越高越好, 下限越低越好, 给 AE 留出延长曝光的空间
+                if (max != bestMax) {
+                    return max > bestMax;
+                }
+                return min < bestMin;
+            case Constants.PROFILE_POWER_SAVING:
+                // 不超过上限的范围优先, 其中上限越高越好; 都超过时取上限最低的
+                boolean capped = max <= POWER_SAVING_MAX_FPS;
+                boolean bestCapped = bestMax <= POWER_SAVING_MAX_FPS;
+                if (capped != bestCapped) {
+                    return capped;
+                }
+                if (max != bestMax) {
+                    return capped ? max > bestMax : max < bestMax;
+                }
+                return min > bestMin;
+            default:
+                return false;
+        }
+    }
+
+    private FpsRangeSelector() {
+    }
+
+}
@@ -1,9 +1,11 @@
 package com.sharry.lib.camera;
 
-import android.graphics.Bitmap;
 import android.graphics.SurfaceTexture;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executor;
 
 /**
  * The interface desc camera device.
@@ -16,23 +18,99 @@ interface ICameraDevice {
 
     void open();
 
+    /**
+     * Opens the camera on the camera thread, supersedes the pending open/close request.
+     */
+    void open(@Nullable CameraCallback callback);
+
     void close();
 
-    Bitmap takePicture();
+    /**
+     * Closes the camera on the camera thread, supersedes the pending open/close request.
+     */
+    void close(@Nullable CameraCallback callback);
+
+    /**
+     * Takes a full resolution picture on the camera thread, the preview restarts automatically.
+     *
+     * @param listener The listener to receive the JPEG picture, invoked on background thread.
+     */
+    void takePicture(@NonNull OnPictureTakenListener listener);
+
+    /**
+     * Keeps the latest preview frames in memory, so that {@link #takePicture} encodes the frame
+     * closest to the shutter press instead of running a full capture.
+     *
+     * @param memoryCapBytes The memory cap of the kept frames, 0 to disable.
+     */
+    void setZeroShutterLag(long memoryCapBytes);
+
+    /**
+     * Captures frames from the live frame stream and encodes them to JPEG on a worker pool.
+     *
+     * @param count          The number of frames to capture.
+     * @param intervalMillis The minimum interval between frames, 0 to take every frame.
+     * @param listener       The listener to receive the pictures, invoked on encoder threads.
+     */
+    void captureBurst(int count, long intervalMillis, @NonNull OnBurstListener listener);
+
+    /**
+     * Focuses and meters on the point of the preview without reopening the camera, the camera
+     * returns to its configured focus mode a few seconds later.
+     *
+     * @param x        The x of the point on the displayed preview, the crop of the view is
+     *                 already undone, in [-1, 1].
+     * @param y        The y of the point, in [-1, 1], positive downwards.
+     * @param listener The listener to receive the focus result, invoked on main thread.
+     */
+    void focusAt(float x, float y, @Nullable OnFocusListener listener);
 
     boolean isCameraOpened();
 
-    void notifyFacingChanged();
-
-    void notifyAspectRatioChanged();
-
-    void notifyAutoFocusChanged();
-
-    void notifyFlashModeChanged();
-
-    void notifyScreenOrientationChanged();
-
-    void notifyDesiredSizeChanged();
+    /**
+     * Notifies that a new {@link CameraConfig} snapshot was committed, the device diffs it with
+     * the applied one and reconfigures at most once.
+     */
+    void notifyConfigChanged();
+
+    /**
+     * Sets the callback to receive the timings of every parameter update, a burst of commits
+     * is applied as one update.
+     */
+    void setParametersCallback(@Nullable CameraCallback callback);
+
+    /**
+     * Sets the listener to receive NV21 preview frames, {@code null} to stop the frame stream.
+     */
+    void setPreviewFrameListener(@Nullable OnPreviewFrameListener listener);
+
+    /**
+     * Sets the listener to receive NV21 preview frames on the executor, only the latest frame
+     * is kept while the listener is busy.
+     *
+     * @param executor     The executor to run the listener, {@code null} to run on the producer
+     *                     thread without backpressure.
+     * @param analysisSize The desired frame resolution, {@code null} to follow the preview.
+     *                     Only engines with a separate analysis stream honor it.
+     * @param listener     The frame listener, {@code null} to stop the frame stream.
+     */
+    void setPreviewFrameListener(@Nullable Executor executor, @Nullable Size analysisSize,
+                                 @Nullable OnPreviewFrameListener listener);
+
+    /**
+     * @return The number of preview frames dropped by the frame stream.
+     */
+    long getDroppedFrameCount();
+
+    /**
+     * @return The number of frames replaced by newer ones before the listener could run.
+     */
+    long getSkippedFrameCount();
+
+    /**
+     * @return The number of times that all frame buffers are held by consumers.
+     */
+    long getFramePoolExhaustedCount();
 
     interface OnCameraReadyListener {
 
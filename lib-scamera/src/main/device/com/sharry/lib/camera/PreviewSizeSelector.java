@@ -0,0 +1,26 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 预览尺寸的选择器
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+interface PreviewSizeSelector {
+
+    /**
+     * 从镜头支持的预览尺寸中选取一个
+     *
+     * @param capabilities 镜头的能力, 必须包含尺寸信息
+     * @param viewSize     预览视图的尺寸, 已按照屏幕方向转换到传感器的方向(横屏)
+     * @param aspectRatio  期望的比例
+     * @return 选中的预览尺寸, 为传感器的方向
+     */
+    @NonNull
+    Size select(@NonNull CameraCapabilities capabilities, @NonNull Size viewSize,
+                @NonNull AspectRatio aspectRatio);
+
+}
@@ -72,6 +72,14 @@ class ScreenOrientationDetector {
                 || screenOrientationDegrees == Constants.LANDSCAPE_270);
     }
 
+    /**
+     * @param rotation Surface.Rotation_n
+     * @return 屏幕旋转的角度
+     */
+    static int toDegrees(int rotation) {
+        return DISPLAY_ORIENTATIONS.get(rotation);
+    }
+
     interface OnDisplayChangedListener {
 
         /**
@@ -0,0 +1,220 @@
+package com.sharry.lib.camera;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 预览的滤镜链
+ * <p>
+ * 滤镜可以在任意线程增删, 渲染线程在下一帧绘制之前发现版本变化, 重新生成绘制的步骤:
+ * 相邻的 {@link PixelFilter} 拼接为同一个片元着色器, 每个 {@link ShaderFilter} 单独一步.
+ * 着色器程序从当前上下文的 {@link ProgramCache.Programs} 获取, 增删滤镜时未变化的步骤无需重新编译.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class FilterChain {
+
+    private static final String TAG = FilterChain.class.getSimpleName();
+
+    private final CopyOnWriteArrayList<PreviewFilter> mFilters = new CopyOnWriteArrayList<>();
+    private final AtomicInteger mVersion = new AtomicInteger();
+
+    /**
+     * 以下字段只在渲染线程访问
+     */
+    private List<Pass> mPasses = new ArrayList<>();
+    private int mBuiltVersion = -1;
+
+    private ProgramCache.Programs mPrograms;
+
+    void add(@NonNull PreviewFilter filter) {
+        mFilters.add(filter);
+        mVersion.incrementAndGet();
+    }
+
+    boolean remove(@NonNull PreviewFilter filter) {
+        if (mFilters.remove(filter)) {
+            mVersion.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    void clear() {
+        mFilters.clear();
+        mVersion.incrementAndGet();
+    }
+
+    /**
+     * 上下文变更了, 之前的程序都已失效, 运行在渲染线程
+     */
+    void onEglContextCreated(@NonNull ProgramCache.Programs programs) {
+        mPrograms = programs;
+        mPasses.clear();
+        mBuiltVersion = -1;
+    }
+
+    /**
+     * 获取这一帧绘制的步骤, 滤镜变化时重新生成, 运行在渲染线程
+     */
+    @NonNull
+    List<Pass> preparePasses() {
+        int version = mVersion.get();
+        if (version == mBuiltVersion) {
+            return mPasses;
+        }
+        mBuiltVersion = version;
+        List<Pass> passes = new ArrayList<>();
+        List<PixelFilter> pixelFilters = new ArrayList<>();
+        for (PreviewFilter filter : mFilters) {
+            if (filter instanceof PixelFilter) {
+                pixelFilters.add((PixelFilter) filter);
+                continue;
+            }
+            addFusedPass(passes, pixelFilters);
+            pixelFilters.clear();
+            ShaderFilter shaderFilter = (ShaderFilter) filter;
+            addPass(passes, new Pass(shaderFilter), shaderFilter.getFragmentShader());
+        }
+        addFusedPass(passes, pixelFilters);
+        // 先获取新的程序再释放旧的, 未变化的程序不会被删除
+        for (Pass pass : mPasses) {
+            mPrograms.release(pass.mProgram);
+        }
+        mPasses = passes;
+        return mPasses;
+    }
+
+    /**
+     * 将相邻的逐像素滤镜拼接为一个片元着色器, 每个滤镜的函数体作为一个函数, 参数作为 uniform 传入
+     */
+    private void addFusedPass(List<Pass> passes, List<PixelFilter> filters) {
+        if (filters.isEmpty()) {
+            return;
+        }
+        StringBuilder uniforms = new StringBuilder()
+                .append("precision mediump float;\n")
+                .append("varying vec2 vPosition;\n")
+                .append("uniform sampler2D uTexture;\n");
+        StringBuilder functions = new StringBuilder();
+        StringBuilder main = new StringBuilder()
+                .append("void main() {\n")
+                .append("    vec4 color = texture2D(uTexture, vPosition);\n");
+        for (int i = 0; i < filters.size(); i++) {
+            String[] paramNames = filters.get(i).getParamNames();
+            functions.append("vec4 stage").append(i).append("(vec4 color");
+            main.append("    color = stage").append(i).append("(color");
+            for (int j = 0; j < paramNames.length; j++) {
+                uniforms.append("uniform float ").append(paramUniform(i, j)).append(";\n");
+                functions.append(", float ").append(paramNames[j]);
+                main.append(", ").append(paramUniform(i, j));
+            }
+            functions.append(") {\n").append(filters.get(i).getColorTransform()).append("\n}\n");
+            main.append(");\n");
+        }
+        main.append("    gl_FragColor = color;\n").append("}\n");
+        String source = uniforms.append(functions).append(main).toString();
+        addPass(passes, new Pass(new ArrayList<PixelFilter>(filters)), source);
+    }
+
+    private void addPass(List<Pass> passes, Pass pass, String fragmentSource) {
+        int program = mPrograms.obtain(PreviewerFramebufferRenderer.getVertexShader(),
+                fragmentSource);
+        if (program == 0) {
+            Log.e(TAG, "Create filter program failed, skip it:\n" + fragmentSource);
+            return;
+        }
+        pass.onProgramCreated(program);
+        passes.add(pass);
+    }
+
+    private static String paramUniform(int stage, int param) {
+        return "uParam" + stage + "_" + param;
+    }
+
+    /**
+     * 一次铺满画布的绘制
+     */
+    static final class Pass {
+
+        private final List<PixelFilter> mPixelFilters;
+        private final ShaderFilter mShaderFilter;
+        private int mProgram;
+        private int aVertexPosition;
+        private int aTexturePosition;
+        private int uTexture;
+        private int uTexelSize;
+        private int[] uParams;
+        private float[] mParamValues;
+
+        Pass(List<PixelFilter> pixelFilters) {
+            mPixelFilters = pixelFilters;
+            mShaderFilter = null;
+        }
+
+        Pass(ShaderFilter shaderFilter) {
+            mPixelFilters = null;
+            mShaderFilter = shaderFilter;
+        }
+
+        void onProgramCreated(int program) {
+            mProgram = program;
+            aVertexPosition = GLES20.glGetAttribLocation(program, "aVertexPosition");
+            aTexturePosition = GLES20.glGetAttribLocation(program, "aTexturePosition");
+            uTexture = GLES20.glGetUniformLocation(program, "uTexture");
+            uTexelSize = GLES20.glGetUniformLocation(program, "uTexelSize");
+            if (mPixelFilters == null) {
+                return;
+            }
+            List<Integer> locations = new ArrayList<>();
+            int maxParams = 0;
+            for (int i = 0; i < mPixelFilters.size(); i++) {
+                int count = mPixelFilters.get(i).getParamNames().length;
+                for (int j = 0; j < count; j++) {
+                    locations.add(GLES20.glGetUniformLocation(program, paramUniform(i, j)));
+                }
+                maxParams = Math.max(maxParams, count);
+            }
+            uParams = new int[locations.size()];
+            for (int i = 0; i < uParams.length; i++) {
+                uParams[i] = locations.get(i);
+            }
+            mParamValues = new float[maxParams];
+        }
+
+        /**
+         * 以 inputTexture 为输入, 绘制到当前绑定的画布上
+         */
+        void draw(PreviewerFramebufferRenderer framebuffers, int inputTexture) {
+            GLES20.glUseProgram(mProgram);
+            GLES20.glUniform1i(uTexture, 0);
+            if (uTexelSize >= 0) {
+                GLES20.glUniform2f(uTexelSize, 1f / framebuffers.getWidth(),
+                        1f / framebuffers.getHeight());
+            }
+            if (mPixelFilters != null) {
+                int location = 0;
+                for (PixelFilter filter : mPixelFilters) {
+                    filter.copyParams(mParamValues);
+                    for (int j = 0; j < filter.getParamNames().length; j++) {
+                        GLES20.glUniform1f(uParams[location++], mParamValues[j]);
+                    }
+                }
+            } else {
+                mShaderFilter.onBindUniforms(mProgram);
+            }
+            framebuffers.drawQuad(inputTexture, aVertexPosition, aTexturePosition);
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.sharry.lib.camera;
+
+/**
+ * 按照屏幕的 vsync 安排预览帧的上屏时刻
+ * <p>
+ * 30fps 的相机在 60/90/120Hz 的屏幕上, 帧到达的相位是随机的, 到达即绘制时每帧停留的 vsync 数
+ * 忽多忽少(如 90Hz 上的 2/3/4 交替), 表现为抖动.
+ * <ul>
+ * <li>{@link Constants#PACING_LOW_LATENCY}: 帧到达后的第一个 vsync 绘制, 在下一个 vsync 上屏</li>
+ * <li>{@link Constants#PACING_SMOOTH}: 每帧固定停留 round(帧间隔 / vsync 周期) 个 vsync,
+ * 早到的帧等到节拍再绘制, 晚到的帧重新对齐节拍</li>
+ * </ul>
+ * 只在渲染线程访问.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class FramePacer {
+
+    /**
+     * 这个 vsync 不绘制, 等待下一个 vsync
+     */
+    static final long HOLD = -1;
+
+    private static final long DEFAULT_VSYNC_PERIOD_NANOS = 1000000000L / 60;
+
+    /**
+     * 帧间隔的平滑系数, 1/8 的权重给最新的一次间隔
+     */
+    private static final int INTERVAL_SMOOTHING_SHIFT = 3;
+
+    private long mVsyncPeriodNanos = DEFAULT_VSYNC_PERIOD_NANOS;
+    private long mFrameIntervalNanos;
+    private long mLastFrameTimestamp;
+    private long mLastPresentNanos;
+
+    /**
+     * 屏幕的刷新率可能在运行中切换, 每次安排之前更新
+     */
+    void setRefreshRate(float refreshRate) {
+        if (refreshRate > 0) {
+            mVsyncPeriodNanos = (long) (1000000000L / refreshRate);
+        }
+    }
+
+    /**
+     * 记录相机帧的时间戳, 估算相机的帧间隔
+     */
+    void onFrameTimestamp(long timestampNanos) {
+        long lastTimestamp = mLastFrameTimestamp;
+        long interval = timestampNanos - lastTimestamp;
+        mLastFrameTimestamp = timestampNanos;
+        // 第一帧, 或时间戳不连续(如切换了镜头)时不计入
+        if (lastTimestamp == 0 || interval <= 0
+                || (mFrameIntervalNanos > 0 && interval > 4 * mFrameIntervalNanos)) {
+            return;
+        }
+        if (mFrameIntervalNanos == 0) {
+            mFrameIntervalNanos = interval;
+        } else {
+            mFrameIntervalNanos += (interval - mFrameIntervalNanos) >> INTERVAL_SMOOTHING_SHIFT;
+        }
+    }
+
+    /**
+     * 在 vsync 回调中决定是否绘制
+     *
+     * @param pacing         上屏的节奏, 如 {@link Constants#PACING_SMOOTH}
+     * @param frameTimeNanos vsync 的时刻
+     * @return 绘制的帧的上屏时刻, {@link #HOLD} 表示这个 vsync 不绘制
+     */
+    long schedule(int pacing, long frameTimeNanos) {
+        long earliest = frameTimeNanos + mVsyncPeriodNanos;
+        if (pacing != Constants.PACING_SMOOTH || mFrameIntervalNanos == 0
+                || mLastPresentNanos == 0) {
+            mLastPresentNanos = earliest;
+            return earliest;
+        }
+        long cadence = Math.max(1, Math.round(mFrameIntervalNanos / (double) mVsyncPeriodNanos));
+        long target = mLastPresentNanos + cadence * mVsyncPeriodNanos;
+        long halfVsync = mVsyncPeriodNanos / 2;
+        // 1. 早于节拍, 等到节拍所在的 vsync 再绘制
+        if (target > earliest + halfVsync) {
+            return HOLD;
+        }
+        // 2. 在节拍上, 或晚于节拍时从当前 vsync 重新对齐
+        mLastPresentNanos = target < earliest - halfVsync ? earliest : target;
+        return mLastPresentNanos;
+    }
+
+    /**
+     * 数据源变更, 之前的节拍作废
+     */
+    void reset() {
+        mFrameIntervalNanos = 0;
+        mLastFrameTimestamp = 0;
+        mLastPresentNanos = 0;
+    }
+
+}
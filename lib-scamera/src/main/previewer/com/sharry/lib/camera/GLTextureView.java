@@ -9,11 +9,16 @@ import android.os.HandlerThread;
 import android.os.Message;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.TextureView;
 
 import androidx.annotation.NonNull;
 
 import java.lang.ref.WeakReference;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.microedition.khronos.opengles.GL10;
 
@@ -43,6 +48,38 @@ public class GLTextureView extends TextureView {
      */
     private RendererThread mRendererThread;
 
+    /**
+     * 预热时创建的 EGL 上下文, 渲染线程启动后接管
+     */
+    private volatile Future<EglCore> mPrewarmedEgl;
+
+    /**
+     * 冷启动的耗时统计, 首帧上屏后置空
+     */
+    private volatile StartupTimings mStartupTimings;
+    private Runnable mFirstFrameAction;
+
+    /**
+     * 画面冻结的起始时刻与解冻的回调
+     */
+    private volatile long mFreezeStartNanos;
+    private volatile OnThawListener mThawListener;
+
+    /**
+     * 上屏的节奏, 如 {@link Constants#PACING_SMOOTH}
+     */
+    private volatile int mPacing = Constants.PACING_IMMEDIATE;
+
+    /**
+     * 视图所在的屏幕, 用于获取刷新率
+     */
+    private volatile Display mDisplay;
+
+    /**
+     * 绘制之前已被更新的帧替代, 没有上屏的帧数
+     */
+    private final AtomicLong mSkippedFrameCount = new AtomicLong();
+
     public GLTextureView(Context context) {
         this(context, null);
     }
@@ -60,6 +97,11 @@ public class GLTextureView extends TextureView {
                     Log.e(TAG, "Renderer thread already launched.");
                     return;
                 }
+                StartupTimings timings = mStartupTimings;
+                if (timings != null) {
+                    timings.end(StartupTimings.PHASE_SURFACE);
+                }
+                mDisplay = getDisplay();
                 // do launch
                 mRendererThread = new RendererThread("Renderer Thread",
                         new WeakReference<>(GLTextureView.this));
@@ -126,20 +168,123 @@ public class GLTextureView extends TextureView {
         }
     }
 
+    /**
+     * 设置上屏的节奏
+     * <p>
+     * {@link Constants#PACING_IMMEDIATE} 帧到达即绘制; 其他的节奏在 {@link Choreographer} 的
+     * vsync 回调中选择绘制的时机, 见 {@link FramePacer}.
+     * <p>
+     * TextureView 的消费端总是立即锁定最新的缓冲, 不理会 eglPresentationTimeANDROID,
+     * 因此节奏只能通过选择在哪个 vsync 绘制来实现.
+     */
+    void setRenderPacing(int pacing) {
+        mPacing = pacing;
+    }
+
+    int getRenderPacing() {
+        return mPacing;
+    }
+
+    /**
+     * 使用预热时创建的 EGL 上下文, 需要在 Surface 可用之前调用
+     * <p>
+     * 渲染器若已在这个上下文中初始化过, 则不会再次回调 {@link ITextureRenderer#onEglContextCreated}
+     */
+    void adoptPrewarmedEgl(@NonNull Future<EglCore> eglCore) {
+        mPrewarmedEgl = eglCore;
+    }
+
+    /**
+     * 记录冷启动各阶段的耗时, 首帧上屏后在主线程执行 onFirstFrame
+     */
+    void trackStartup(@NonNull StartupTimings timings, @NonNull Runnable onFirstFrame) {
+        mFirstFrameAction = onFirstFrame;
+        mStartupTimings = timings;
+    }
+
+    /**
+     * 保持当前上屏的画面, 忽略之后到达的帧, 直到 {@link #thawOnNextFrame()} 之后的第一帧上屏,
+     * 需要在主线程调用
+     * <p>
+     * 用于切换镜头等数据源短暂中断的场景, 避免旧镜头的残帧以新的变换矩阵绘制造成的跳闪.
+     *
+     * @param listener 解冻后在主线程回调
+     */
+    void freezeFrame(@NonNull OnThawListener listener) {
+        mThawListener = listener;
+        mFreezeStartNanos = System.nanoTime();
+        if (mRendererThread != null) {
+            mRendererThread.handleFreeze();
+        }
+    }
+
+    /**
+     * 下一帧到达时解冻, 需要在主线程调用
+     */
+    void thawOnNextFrame() {
+        if (mRendererThread != null) {
+            mRendererThread.handleThaw();
+        }
+    }
+
+    /**
+     * Gets the number of camera frames that were replaced by newer ones before the renderer
+     * could draw them, which happens when a draw takes longer than the frame interval.
+     *
+     * @return The skipped frame count.
+     */
+    public long getSkippedFrameCount() {
+        return mSkippedFrameCount.get();
+    }
+
+    interface OnThawListener {
+
+        /**
+         * @param frozenMillis 从冻结到新的一帧上屏的时长
+         */
+        void onThawed(long frozenMillis);
+
+    }
+
     private static class RendererThread extends HandlerThread
-            implements SurfaceTexture.OnFrameAvailableListener, Handler.Callback {
+            implements SurfaceTexture.OnFrameAvailableListener, Handler.Callback,
+            Choreographer.FrameCallback {
 
         private static final int MSG_CREATE_EGL_CONTEXT = 0;
         private static final int MSG_RENDERER_CHANGED = 1;
         private static final int MSG_SURFACE_SIZE_CHANGED = 2;
         private static final int MSG_TEXTURE_CHANGED = 3;
         private static final int MSG_DRAW_FRAME = 4;
+        private static final int MSG_FREEZE = 5;
+        private static final int MSG_THAW = 6;
+
+        /**
+         * 画面冻结的状态
+         */
+        private static final int FREEZE_NONE = 0;
+        private static final int FREEZE_FROZEN = 1;
+        private static final int FREEZE_THAWING = 2;
+
+        /**
+         * 冻结的最长时间, 新的数据源迟迟没有就绪时, 恢复绘制
+         */
+        private static final long MAX_FREEZE_NANOS = 2000000000L;
 
         private final WeakReference<GLTextureView> mWkRef;
         private final float[] mTextureMatrix = new float[16];
-        private final EglCore mEglCore = new EglCore();
+        private EglCore mEglCore = new EglCore(EglCore.EGL_VERSION_3);
         private int mOESTextureId;
         private Handler mRendererHandler;
+        private int mFreezeState = FREEZE_NONE;
+        /**
+         * 到达之后尚未绘制的帧数, 不为 0 时已有一个待执行的绘制
+         */
+        private final AtomicInteger mPendingFrames = new AtomicInteger();
+        private final FramePacer mPacer = new FramePacer();
+        /**
+         * 渲染线程的 Choreographer, vsync 回调在渲染线程
+         */
+        private Choreographer mChoreographer;
 
         private RendererThread(String name, WeakReference<GLTextureView> view) {
             super(name);
@@ -164,6 +309,7 @@ public class GLTextureView extends TextureView {
             switch (msg.what) {
                 // 创建 EGL 上下文
                 case MSG_CREATE_EGL_CONTEXT:
+                    mChoreographer = Choreographer.getInstance();
                     preformCreateEGL();
                     break;
                 // 渲染器变更
@@ -182,6 +328,16 @@ public class GLTextureView extends TextureView {
                 case MSG_DRAW_FRAME:
                     performDrawTexture();
                     break;
+                // 冻结画面
+                case MSG_FREEZE:
+                    mFreezeState = FREEZE_FROZEN;
+                    break;
+                // 下一帧解冻
+                case MSG_THAW:
+                    if (mFreezeState == FREEZE_FROZEN) {
+                        mFreezeState = FREEZE_THAWING;
+                    }
+                    break;
                 default:
                     break;
             }
@@ -190,11 +346,36 @@ public class GLTextureView extends TextureView {
 
         @Override
         public void onFrameAvailable(SurfaceTexture surfaceTexture) {
-            if (mRendererHandler != null) {
+            // 最多只有一个待执行的绘制, 绘制时取最新的一帧, 绘制慢于帧率时延迟不会累积
+            if (mRendererHandler == null || mPendingFrames.getAndIncrement() != 0) {
+                return;
+            }
+            GLTextureView view = mWkRef.get();
+            int pacing = view == null ? Constants.PACING_IMMEDIATE : view.mPacing;
+            if (pacing == Constants.PACING_IMMEDIATE || mChoreographer == null) {
                 mRendererHandler.sendEmptyMessage(MSG_DRAW_FRAME);
+            } else {
+                mChoreographer.postFrameCallback(this);
             }
         }
 
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            GLTextureView view = mWkRef.get();
+            if (view == null || mPendingFrames.get() == 0) {
+                return;
+            }
+            Display display = view.mDisplay;
+            if (display != null) {
+                mPacer.setRefreshRate(display.getRefreshRate());
+            }
+            if (mPacer.schedule(view.mPacing, frameTimeNanos) == FramePacer.HOLD) {
+                mChoreographer.postFrameCallback(this);
+                return;
+            }
+            performDrawTexture();
+        }
+
         void handleRenderChanged() {
             if (mRendererHandler != null) {
                 mRendererHandler.sendEmptyMessage(MSG_RENDERER_CHANGED);
@@ -213,13 +394,49 @@ public class GLTextureView extends TextureView {
             }
         }
 
+        void handleFreeze() {
+            if (mRendererHandler != null) {
+                mRendererHandler.sendEmptyMessage(MSG_FREEZE);
+            }
+        }
+
+        void handleThaw() {
+            if (mRendererHandler != null) {
+                mRendererHandler.sendEmptyMessage(MSG_THAW);
+            }
+        }
+
         private void preformCreateEGL() {
             GLTextureView view = mWkRef.get();
             if (view == null) {
                 return;
             }
+            // Adopt the prewarmed egl context
+            Future<EglCore> prewarmed = view.mPrewarmedEgl;
+            view.mPrewarmedEgl = null;
+            if (prewarmed != null) {
+                EglCore eglCore = null;
+                try {
+                    eglCore = prewarmed.get();
+                    eglCore.attachWindowSurface(view.getSurfaceTexture());
+                    mEglCore = eglCore;
+                    return;
+                } catch (Throwable e) {
+                    Log.w(TAG, "Adopt prewarmed egl context failed.", e);
+                    if (eglCore != null) {
+                        eglCore.release();
+                    }
+                }
+            }
             // Create egl context
+            StartupTimings timings = view.mStartupTimings;
+            if (timings != null) {
+                timings.begin(StartupTimings.PHASE_EGL_SETUP);
+            }
             mEglCore.initialize(view.getSurfaceTexture(), null);
+            if (timings != null) {
+                timings.end(StartupTimings.PHASE_EGL_SETUP);
+            }
         }
 
         private void performRenderChanged() {
@@ -227,7 +444,20 @@ public class GLTextureView extends TextureView {
             if (view == null) {
                 return;
             }
-            view.mRenderer.onEglContextCreated(mEglCore.getContext());
+            ITextureRenderer renderer = view.mRenderer;
+            // 预热时已经在这个上下文中初始化过了
+            if (renderer instanceof IPreviewerRenderer && mEglCore.getContext().equals(
+                    ((IPreviewerRenderer) renderer).getEGLContext())) {
+                return;
+            }
+            StartupTimings timings = view.mStartupTimings;
+            if (timings != null) {
+                timings.begin(StartupTimings.PHASE_SHADER_COMPILE);
+            }
+            renderer.onEglContextCreated(mEglCore.getContext());
+            if (timings != null) {
+                timings.end(StartupTimings.PHASE_SHADER_COMPILE);
+            }
         }
 
         private void performSurfaceSizeChanged() {
@@ -263,6 +493,8 @@ public class GLTextureView extends TextureView {
                 bufferTexture.attachToGLContext(mOESTextureId);
                 // 设置监听器
                 bufferTexture.setOnFrameAvailableListener(this);
+                // 新的数据源重新估算帧间隔与节拍
+                mPacer.reset();
             }
         }
 
@@ -274,11 +506,28 @@ public class GLTextureView extends TextureView {
             // 设置当前的环境
             mEglCore.makeCurrent();
             // 更新纹理数据
+            int frames = mPendingFrames.getAndSet(0);
             SurfaceTexture bufferTexture = view.mBufferTexture;
             ITextureRenderer renderer = view.mRenderer;
             if (bufferTexture != null) {
-                bufferTexture.updateTexImage();
+                // updateTexImage 每次只出队最早的一帧, 连续出队到最新的一帧, 之前的帧直接跳过
+                // 每一帧的时间戳都计入帧间隔, 否则晚绘制时间隔会被高估, 节拍越来越慢
+                for (int i = 0; i < Math.max(frames, 1); i++) {
+                    bufferTexture.updateTexImage();
+                    mPacer.onFrameTimestamp(bufferTexture.getTimestamp());
+                }
                 bufferTexture.getTransformMatrix(mTextureMatrix);
+                if (frames > 1) {
+                    view.mSkippedFrameCount.addAndGet(frames - 1);
+                }
+            }
+            // 冻结期间只消费数据, 上屏的画面保持不变
+            if (mFreezeState == FREEZE_FROZEN) {
+                if (System.nanoTime() - view.mFreezeStartNanos < MAX_FREEZE_NANOS) {
+                    return;
+                }
+                Log.w(TAG, "Frozen frame timeout, resume drawing.");
+                mFreezeState = FREEZE_THAWING;
             }
             // 执行渲染器的绘制
             if (renderer != null) {
@@ -286,6 +535,27 @@ public class GLTextureView extends TextureView {
             }
             // 将 EGL 绘制的数据, 输出到 View 的 preview 中
             mEglCore.swapBuffers();
+            // 解冻后的第一帧上屏
+            if (mFreezeState == FREEZE_THAWING) {
+                mFreezeState = FREEZE_NONE;
+                final OnThawListener listener = view.mThawListener;
+                final long frozenMillis = (System.nanoTime() - view.mFreezeStartNanos) / 1000000;
+                view.mThawListener = null;
+                if (listener != null) {
+                    view.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onThawed(frozenMillis);
+                        }
+                    });
+                }
+            }
+            // 首帧上屏
+            StartupTimings timings = view.mStartupTimings;
+            if (timings != null && timings.finish()) {
+                view.mStartupTimings = null;
+                view.post(view.mFirstFrameAction);
+            }
         }
 
         private int createOESTextureId() {
@@ -311,6 +581,10 @@ public class GLTextureView extends TextureView {
                 mRendererHandler.removeMessages(MSG_TEXTURE_CHANGED);
                 mRendererHandler.removeMessages(MSG_DRAW_FRAME);
             }
+            if (mChoreographer != null) {
+                mChoreographer.removeFrameCallback(this);
+            }
+            mPendingFrames.set(0);
             mEglCore.release();
         }
 
@@ -0,0 +1,74 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * 逐像素的颜色变换滤镜
+ * <p>
+ * 只描述一个 GLSL 函数体, 由滤镜链将相邻的多个函数体拼接成同一个片元着色器, 例如:
+ * <pre>
+ * new PixelFilter("brightness") {
+ *     public String getColorTransform() {
+ *         return "return vec4(color.rgb + brightness, color.a);";
+ *     }
+ * };
+ * </pre>
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public abstract class PixelFilter extends PreviewFilter {
+
+    private final String[] mParamNames;
+    private final float[] mParamValues;
+
+    /**
+     * @param paramNames 函数体中可以直接使用的 float 参数, 通过 {@link #setParam} 赋值
+     */
+    protected PixelFilter(@NonNull String... paramNames) {
+        mParamNames = paramNames.clone();
+        mParamValues = new float[paramNames.length];
+    }
+
+    /**
+     * 获取颜色变换的 GLSL 函数体, 输入为 {@code vec4 color}, 返回变换后的 {@code vec4}
+     * <p>
+     * 同一个滤镜需要总是返回相同的源码, 参数的变化通过 {@link #setParam} 传递.
+     */
+    @NonNull
+    public abstract String getColorTransform();
+
+    /**
+     * 设置参数, 可在任意线程调用, 下一帧生效
+     */
+    public final synchronized void setParam(@NonNull String name, float value) {
+        int index = Arrays.asList(mParamNames).indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown param " + name + " of " + this);
+        }
+        mParamValues[index] = value;
+    }
+
+    public final synchronized float getParam(@NonNull String name) {
+        int index = Arrays.asList(mParamNames).indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown param " + name + " of " + this);
+        }
+        return mParamValues[index];
+    }
+
+    String[] getParamNames() {
+        return mParamNames;
+    }
+
+    /**
+     * 拷贝当前的参数, 运行在渲染线程
+     */
+    synchronized void copyParams(float[] dst) {
+        System.arraycopy(mParamValues, 0, dst, 0, mParamValues.length);
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.sharry.lib.camera;
+
+/**
+ * 预览的滤镜, 按照添加的顺序依次作用在相机画面上
+ * <p>
+ * 只有两种实现:
+ * <ul>
+ * <li>{@link PixelFilter}: 逐像素的颜色变换, 相邻的多个会融合到同一个着色器中, 只需一次绘制</li>
+ * <li>{@link ShaderFilter}: 完整的片元着色器, 可以采样相邻的像素, 单独占用一次绘制</li>
+ * </ul>
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public abstract class PreviewFilter {
+
+    PreviewFilter() {
+    }
+
+}
@@ -7,7 +7,11 @@ import android.opengl.GLES20;
 import android.opengl.Matrix;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+
 import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static android.opengl.GLES20.GL_FLOAT;
 import static android.opengl.GLES20.glGetUniformLocation;
@@ -37,7 +41,21 @@ public class PreviewRenderer implements IPreviewerRenderer {
     private final FloatBuffer mTextureBuffer = GlUtil.createFloatBuffer(mTextureCoordinate);
     private final Context mContext;
     private final PreviewerFramebufferRenderer mFramebufferRenderer;
+    /**
+     * 需要读取离屏纹理的消费者数量, 为 0 时直接绘制到窗口, 省去一次全屏的绘制
+     */
+    private final AtomicInteger mTextureConsumers = new AtomicInteger();
+    private final ProgramCache mProgramCache;
+    /**
+     * 当前上下文的程序记录, 随上下文重建
+     */
+    private ProgramCache.Programs mPrograms;
+    private final FilterChain mFilterChain;
     private EGLContext mEglContext;
+    /**
+     * 最终画面所在的 fbo, 没有写入 fbo 时为 -1
+     */
+    private volatile int mOutputIndex = -1;
 
     /**
      * 着色器相关
@@ -63,12 +81,25 @@ public class PreviewRenderer implements IPreviewerRenderer {
 
     PreviewRenderer(Context context) {
         mContext = context;
+        mProgramCache = ProgramCache.getInstance(context);
         mFramebufferRenderer = new PreviewerFramebufferRenderer();
+        mFilterChain = new FilterChain();
+    }
+
+    /**
+     * 读取着色器源码与程序二进制到缓存中, 不需要 EGL 上下文, 可在任意线程调用
+     */
+    static void preloadShaders(Context context) {
+        String vertexSource = GlUtil.getGLResource(context, R.raw.camera_vertex_shader);
+        String fragmentSource = GlUtil.getGLResource(context, R.raw.camera_fragment_shader);
+        ProgramCache.getInstance(context).preload(vertexSource, fragmentSource);
     }
 
     @Override
     public void onEglContextCreated(EGLContext eglContext) {
-        this.mFramebufferRenderer.onEglContextCreated();
+        this.mPrograms = mProgramCache.newPrograms();
+        this.mFramebufferRenderer.onEglContextCreated(mPrograms);
+        this.mFilterChain.onEglContextCreated(mPrograms);
         this.mEglContext = eglContext;
         // 上下文变更了, 重置数据
         reset();
@@ -86,7 +117,46 @@ public class PreviewRenderer implements IPreviewerRenderer {
 
     @Override
     public void drawTexture(int OESTextureId, float[] textureMatrix) {
-        mFramebufferRenderer.bindFramebuffer();
+        List<FilterChain.Pass> passes = mFilterChain.preparePasses();
+        boolean consumed = mTextureConsumers.get() > 0;
+        // 1. 没有滤镜与消费者时, 直接绘制到窗口, 释放 fbo
+        if (passes.isEmpty() && !consumed) {
+            mFramebufferRenderer.prepareFramebuffers(0);
+            mOutputIndex = -1;
+            drawCameraTexture(OESTextureId, textureMatrix);
+            return;
+        }
+        // 2. 相机画面绘制到第一个 fbo
+        mFramebufferRenderer.prepareFramebuffers(passes.size() + (consumed ? 1 : 0) > 1 ? 2 : 1);
+        mFramebufferRenderer.bindFramebuffer(0);
+        drawCameraTexture(OESTextureId, textureMatrix);
+        // 3. 滤镜在两个 fbo 之间交替读写, 没有消费者时最后一级直接绘制到窗口
+        int input = 0;
+        for (int i = 0; i < passes.size(); i++) {
+            boolean toWindow = !consumed && i == passes.size() - 1;
+            if (toWindow) {
+                mFramebufferRenderer.unbindFramebuffer();
+            } else {
+                mFramebufferRenderer.bindFramebuffer(1 - input);
+            }
+            GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+            passes.get(i).draw(mFramebufferRenderer, mFramebufferRenderer.getFboTextureId(input));
+            if (toWindow) {
+                mOutputIndex = -1;
+                return;
+            }
+            input = 1 - input;
+        }
+        // 4. 解绑 fbo, 输出到屏幕上
+        mFramebufferRenderer.unbindFramebuffer();
+        mOutputIndex = input;
+        mFramebufferRenderer.drawToDisplay(input);
+    }
+
+    /**
+     * 将相机的 OES 纹理按照变换矩阵绘制到当前绑定的画布上
+     */
+    private void drawCameraTexture(int OESTextureId, float[] textureMatrix) {
         // 清屏
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
         GLES20.glClearColor(0f, 0f, 0f, 0f);
@@ -124,12 +194,6 @@ public class PreviewRenderer implements IPreviewerRenderer {
 
         // 解绑纹理
         GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, 0);
-
-        // 解绑 fbo
-        mFramebufferRenderer.unbindFramebuffer();
-
-        // 输出到屏幕上
-        mFramebufferRenderer.drawToDisplay();
     }
 
     @Override
@@ -137,9 +201,57 @@ public class PreviewRenderer implements IPreviewerRenderer {
         return mEglContext;
     }
 
+    /**
+     * 获取离屏渲染的纹理
+     * <p>
+     * 只有存在 {@link #acquirePreviewerTexture()} 的消费者时, 最终画面才会写入离屏纹理,
+     * 否则直接绘制到窗口上, 返回 0.
+     */
     @Override
     public int getPreviewerTextureId() {
-        return mFramebufferRenderer.getFboTextureId();
+        int index = mOutputIndex;
+        return index < 0 ? 0 : mFramebufferRenderer.getFboTextureId(index);
+    }
+
+    /**
+     * 声明需要读取 {@link #getPreviewerTextureId()} 的纹理, 如特效、录制、截图,
+     * 每次调用都需要对应一次 {@link #releasePreviewerTexture()}
+     */
+    public void acquirePreviewerTexture() {
+        mTextureConsumers.incrementAndGet();
+    }
+
+    /**
+     * 不再需要离屏渲染的纹理, 所有的消费者都释放之后, 恢复直接绘制到窗口
+     */
+    public void releasePreviewerTexture() {
+        if (mTextureConsumers.decrementAndGet() < 0) {
+            mTextureConsumers.set(0);
+            Log.w(TAG, "releasePreviewerTexture called without acquirePreviewerTexture.");
+        }
+    }
+
+    /**
+     * 在滤镜链的末尾添加一个滤镜, 可在任意线程调用, 下一帧生效
+     */
+    public void addFilter(@NonNull PreviewFilter filter) {
+        mFilterChain.add(filter);
+    }
+
+    /**
+     * 移除滤镜, 可在任意线程调用, 下一帧生效
+     *
+     * @return 滤镜是否在滤镜链中
+     */
+    public boolean removeFilter(@NonNull PreviewFilter filter) {
+        return mFilterChain.remove(filter);
+    }
+
+    /**
+     * 移除所有的滤镜, 可在任意线程调用, 下一帧生效
+     */
+    public void clearFilters() {
+        mFilterChain.clear();
     }
 
     @Override
@@ -156,28 +268,11 @@ public class PreviewRenderer implements IPreviewerRenderer {
 
     @Override
     public void centerCrop(boolean isLandscape, Size surfaceSize, Size textureSize) {
-        // 设置正交投影
-        float aspectPlane = surfaceSize.getWidth() / (float) surfaceSize.getHeight();
-        float aspectTexture = isLandscape ? textureSize.getWidth() / (float) textureSize.getHeight()
-                : textureSize.getHeight() / (float) textureSize.getWidth();
-        float left, top, right, bottom;
-        // 1. 纹理比例 > 投影平面比例
-        if (aspectTexture > aspectPlane) {
-            left = -aspectPlane / aspectTexture;
-            right = -left;
-            top = 1;
-            bottom = -1;
-        }
-        // 2. 纹理比例 < 投影平面比例
-        else {
-            left = -1;
-            right = 1;
-            top = 1 / aspectPlane * aspectTexture;
-            bottom = -top;
-        }
+        // 设置正交投影, 投影平面只截取纹理中间可见的部分
+        float[] visible = calcVisibleScale(isLandscape, surfaceSize, textureSize);
         Matrix.orthoM(
                 mProjectionMatrix, 0,
-                left, right, bottom, top,
+                -visible[0], visible[0], -visible[1], visible[1],
                 1, -1
         );
         Log.e(TAG, "preview size = " + surfaceSize + ", camera size = " + textureSize);
@@ -190,6 +285,25 @@ public class PreviewRenderer implements IPreviewerRenderer {
                 mRotationMatrix, 0);
     }
 
+    /**
+     * 计算 centerCrop 之后, 视图在水平和竖直方向上可见的纹理比例, 用于将视图坐标映射回纹理
+     *
+     * @return {水平方向的可见比例, 竖直方向的可见比例}, 取值范围 (0, 1]
+     */
+    static float[] calcVisibleScale(boolean isLandscape, Size surfaceSize, Size textureSize) {
+        float aspectPlane = surfaceSize.getWidth() / (float) surfaceSize.getHeight();
+        float aspectTexture = isLandscape ? textureSize.getWidth() / (float) textureSize.getHeight()
+                : textureSize.getHeight() / (float) textureSize.getWidth();
+        // 1. 纹理比例 > 投影平面比例
+        if (aspectTexture > aspectPlane) {
+            return new float[]{aspectPlane / aspectTexture, 1};
+        }
+        // 2. 纹理比例 < 投影平面比例
+        else {
+            return new float[]{1, aspectTexture / aspectPlane};
+        }
+    }
+
     private void reset() {
         this.mProgram = 0;
         this.mVboId = 0;
@@ -202,7 +316,7 @@ public class PreviewRenderer implements IPreviewerRenderer {
         // 加载着色器
         String vertexSource = GlUtil.getGLResource(mContext, R.raw.camera_vertex_shader);
         String fragmentSource = GlUtil.getGLResource(mContext, R.raw.camera_fragment_shader);
-        mProgram = GlUtil.createProgram(vertexSource, fragmentSource);
+        mProgram = mPrograms.obtain(vertexSource, fragmentSource);
         // 加载 Program 中的变量
         aVertexCoordinate = GLES20.glGetAttribLocation(mProgram, "aVertexCoordinate");
         aTextureCoordinate = GLES20.glGetAttribLocation(mProgram, "aTextureCoordinate");
@@ -10,6 +10,7 @@ import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * Camera 预览器
@@ -27,13 +28,20 @@ public final class Previewer extends GLTextureView implements IPreviewer {
     private Watcher mWatcher;
 
     Previewer(Context context, FrameLayout parent) {
+        this(context, parent, null);
+    }
+
+    /**
+     * @param renderer 预热时创建的渲染器, 为 null 时使用默认的渲染器
+     */
+    Previewer(Context context, FrameLayout parent, @Nullable IPreviewerRenderer renderer) {
         super(context);
         FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
                 ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
         params.gravity = Gravity.CENTER;
         parent.addView(this, params);
         // set default renderer
-        setRender(new PreviewRenderer(context));
+        setRender(renderer != null ? renderer : new PreviewRenderer(context));
     }
 
     @Override
@@ -80,7 +88,7 @@ public final class Previewer extends GLTextureView implements IPreviewer {
 
     @Override
     public Size getSize() {
-        return new Size(getWidth(), getHeight());
+        return Size.of(getWidth(), getHeight());
     }
 
     @Override
@@ -2,12 +2,14 @@ package com.sharry.lib.camera;
 
 import android.opengl.GLES20;
 
+import androidx.annotation.NonNull;
+
 import java.nio.FloatBuffer;
 
 /**
  * 离屏渲染：把所有的纹理先绘制到 fbo 上面，然后再从 fbo 绘制到窗口上
  * <p>
- * 在绘制到屏幕上之前, 对数据进行一次拦截
+ * 在绘制到屏幕上之前, 对数据进行一次拦截. fbo 在第一次需要时才创建, 不再需要时释放.
  *
  * @author Sharry <a href="xiaoyu.zhu@1hai.cn">Contact me.</a>
  * @version 1.0
@@ -46,18 +48,37 @@ class PreviewerFramebufferRenderer {
     private final FloatBuffer mVertexBuffer = GlUtil.createFloatBuffer(mVertexCoordinate);
     private final FloatBuffer mTextureBuffer = GlUtil.createFloatBuffer(mTextureCoordinate);
 
+    /**
+     * 两个 fbo 交替作为输入和输出, 滤镜链的每一次绘制从一个读取, 写入另一个
+     */
+    static final int MAX_FRAMEBUFFERS = 2;
+
+    private final int[] mFramebufferIds = new int[MAX_FRAMEBUFFERS];
+    private final int[] mTextureIds = new int[MAX_FRAMEBUFFERS];
+    private ProgramCache.Programs mPrograms;
     private int mProgramId;
     private int aVertexPosition;
     private int aTexturePosition;
     private int mVboId;
-    private int mFramebufferId;
-    private int mTextureId;
     private int uTexture;
+    private int mWidth;
+    private int mHeight;
 
     PreviewerFramebufferRenderer() {
     }
 
-    void onEglContextCreated() {
+    /**
+     * @return 滤镜链的绘制使用的顶点着色器, 与拷贝到窗口的着色器一致
+     */
+    static String getVertexShader() {
+        return VERTEX_SHADER_STR;
+    }
+
+    /**
+     * @param programs 当前上下文的程序记录
+     */
+    void onEglContextCreated(@NonNull ProgramCache.Programs programs) {
+        mPrograms = programs;
         // 上下文变更了, 重置数据
         reset();
         // 初始化程序
@@ -68,25 +89,68 @@ class PreviewerFramebufferRenderer {
 
     void onSurfaceSizeChanged(int width, int height) {
         GLES20.glViewport(0, 0, width, height);
-        // 配置纹理
-        setupTexture(width, height);
-        // 配置 fbo
-        setupFbo();
+        mWidth = width;
+        mHeight = height;
+        // 已创建的纹理按新的尺寸重新分配, 否则等到需要时再创建
+        for (int i = 0; i < MAX_FRAMEBUFFERS; i++) {
+            if (mTextureIds[i] != 0) {
+                setupTexture(i);
+            }
+        }
     }
 
-    void bindFramebuffer() {
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebufferId);
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 确保前 count 个 fbo 已经创建, 之后的 fbo 释放掉
+     */
+    void prepareFramebuffers(int count) {
+        for (int i = 0; i < MAX_FRAMEBUFFERS; i++) {
+            if (i < count && mFramebufferIds[i] == 0) {
+                // 配置纹理
+                setupTexture(i);
+                // 配置 fbo
+                setupFbo(i);
+            } else if (i >= count && mFramebufferIds[i] != 0) {
+                releaseFramebuffer(i);
+            }
+        }
+    }
+
+    void bindFramebuffer(int index) {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebufferIds[index]);
     }
 
     void unbindFramebuffer() {
         GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
     }
 
-    void drawToDisplay() {
+    /**
+     * 将第 index 个 fbo 的纹理拷贝到当前绑定的画布上
+     */
+    void drawToDisplay(int index) {
         GLES20.glUseProgram(mProgramId);
+        // 给 uTexture 赋值
+        GLES20.glUniform1i(uTexture, 0);
+        drawQuad(mTextureIds[index], aVertexPosition, aTexturePosition);
+    }
+
+    /**
+     * 以 textureId 为输入绘制一个铺满画布的矩形, 程序需要已处于使用状态
+     *
+     * @param aVertexPosition  程序中顶点坐标的位置
+     * @param aTexturePosition 程序中纹理坐标的位置
+     */
+    void drawQuad(int textureId, int aVertexPosition, int aTexturePosition) {
         // 绑定纹理
         GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
         // 写入顶点坐标
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVboId);
         GLES20.glEnableVertexAttribArray(aVertexPosition);
@@ -97,30 +161,40 @@ class PreviewerFramebufferRenderer {
         GLES20.glVertexAttribPointer(aTexturePosition, 2, GLES20.GL_FLOAT, false,
                 8, mVertexCoordinate.length * 4);
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-        // 给 uTexture 赋值
-        GLES20.glUniform1i(uTexture, 0);
-        // 绘制到屏幕
+        // 绘制到画布
         GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
         // 解绑纹理
         GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
     }
 
-    int getFboTextureId() {
-        return mTextureId;
+    int getFboTextureId(int index) {
+        return mTextureIds[index];
     }
 
     private void reset() {
         this.mProgramId = 0;
         this.mVboId = 0;
-        this.mTextureId = 0;
-        this.mFramebufferId = 0;
+        for (int i = 0; i < MAX_FRAMEBUFFERS; i++) {
+            this.mTextureIds[i] = 0;
+            this.mFramebufferIds[i] = 0;
+        }
+    }
+
+    /**
+     * 释放第 index 个 fbo 及其纹理
+     */
+    private void releaseFramebuffer(int index) {
+        GLES20.glDeleteFramebuffers(1, mFramebufferIds, index);
+        GLES20.glDeleteTextures(1, mTextureIds, index);
+        mFramebufferIds[index] = 0;
+        mTextureIds[index] = 0;
     }
 
     private void setupShaders() {
         if (mProgramId != 0) {
             return;
         }
-        mProgramId = GlUtil.createProgram(VERTEX_SHADER_STR, FRAGMENT_SHADER_STR);
+        mProgramId = mPrograms.obtain(VERTEX_SHADER_STR, FRAGMENT_SHADER_STR);
         aVertexPosition = GLES20.glGetAttribLocation(mProgramId, "aVertexPosition");
         aTexturePosition = GLES20.glGetAttribLocation(mProgramId, "aTexturePosition");
         uTexture = GLES20.glGetUniformLocation(mProgramId, "uTexture");
@@ -161,18 +235,18 @@ class PreviewerFramebufferRenderer {
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
     }
 
-    private void setupTexture(int width, int height) {
-        if (mTextureId == 0) {
-            int[] textureIds = new int[1];
-            GLES20.glGenTextures(1, textureIds, 0);
-            mTextureId = textureIds[0];
+    private void setupTexture(int index) {
+        if (mTextureIds[index] == 0) {
+            GLES20.glGenTextures(1, mTextureIds, index);
         }
         // 绑定纹理
         GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
-        // 设置纹理环绕方式
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_REPEAT);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_REPEAT);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureIds[index]);
+        // 设置纹理环绕方式, GLES 2.0 中非 2 的幂的纹理只支持 CLAMP_TO_EDGE
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S,
+                GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T,
+                GLES20.GL_CLAMP_TO_EDGE);
         // 设置纹理过滤方式
         GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
         GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
@@ -181,7 +255,7 @@ class PreviewerFramebufferRenderer {
                 GLES20.GL_TEXTURE_2D,
                 0,
                 GLES20.GL_RGBA,
-                width, height,
+                mWidth, mHeight,
                 0,
                 GLES20.GL_RGBA,
                 GLES20.GL_UNSIGNED_BYTE,
@@ -191,22 +265,20 @@ class PreviewerFramebufferRenderer {
         GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
     }
 
-    private void setupFbo() {
-        if (mFramebufferId != 0) {
+    private void setupFbo(int index) {
+        if (mFramebufferIds[index] != 0) {
             return;
         }
         // 创建 fbo
-        int[] fBoIds = new int[1];
-        GLES20.glGenBuffers(1, fBoIds, 0);
-        mFramebufferId = fBoIds[0];
+        GLES20.glGenFramebuffers(1, mFramebufferIds, index);
         // 绑定 fbo
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebufferId);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebufferIds[index]);
         // 将纹理绑定到 FBO 上, 作为颜色附件
         GLES20.glFramebufferTexture2D(
                 GLES20.GL_FRAMEBUFFER,
                 GLES20.GL_COLOR_ATTACHMENT0,  // 描述为颜色附件
                 GLES20.GL_TEXTURE_2D,
-                mTextureId,
+                mTextureIds[index],
                 0
         );
         // 解绑 fbo
@@ -0,0 +1,33 @@
+package com.sharry.lib.camera;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+/**
+ * 完整片元着色器的滤镜, 如模糊、锐化等需要采样相邻像素的效果
+ * <p>
+ * 着色器的输入为上一级的结果 {@code uniform sampler2D uTexture} 与纹理坐标
+ * {@code varying vec2 vPosition}, 可以声明 {@code uniform vec2 uTexelSize} 获取一个像素的尺寸.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public abstract class ShaderFilter extends PreviewFilter {
+
+    /**
+     * 获取片元着色器的源码, 同一个滤镜需要总是返回相同的源码
+     */
+    @NonNull
+    public abstract String getFragmentShader();
+
+    /**
+     * 绘制之前为自定义的 uniform 赋值, 程序已处于使用状态
+     *
+     * @param program 着色器程序
+     */
+    @WorkerThread
+    protected void onBindUniforms(int program) {
+    }
+
+}
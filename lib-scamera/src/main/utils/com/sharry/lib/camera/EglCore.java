@@ -42,10 +42,11 @@ public class EglCore {
 
     private static final String TAG = EglCore.class.getSimpleName();
 
-    private final int mEGLVersion;
+    private int mEGLVersion;
     private EGLDisplay mEGLDisplay = EGL14.EGL_NO_DISPLAY;
     private EGLContext mEGLContext = EGL14.EGL_NO_CONTEXT;
     private EGLSurface mEGLSurface = EGL14.EGL_NO_SURFACE;
+    private EGLConfig mEGLConfig;
 
     public EglCore() {
         this(EGL_VERSION_2);
@@ -75,6 +76,40 @@ public class EglCore {
         initializeInternal(surfaceTexture, eglContext == null ? EGL14.EGL_NO_CONTEXT : eglContext);
     }
 
+    /**
+     * Initialize EGL with a 1x1 pbuffer surface, so that GL work can be done before the native
+     * window is available, see {@link #attachWindowSurface}.
+     *
+     * @param eglContext if null will create new context, false will use shared context
+     */
+    public void initializeOffscreen(@Nullable EGLContext eglContext) {
+        initializeInternal(null, eglContext == null ? EGL14.EGL_NO_CONTEXT : eglContext);
+    }
+
+    /**
+     * Replaces the current surface with a window surface, the context and all of its GL
+     * objects are kept. The context must not be current on other threads.
+     *
+     * @param nativeWindow a {@link Surface} or {@link SurfaceTexture}
+     */
+    public void attachWindowSurface(@NonNull Object nativeWindow) {
+        EGLSurface surface = createWindowSurface(nativeWindow);
+        EGL14.eglMakeCurrent(mEGLDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE,
+                EGL14.EGL_NO_CONTEXT);
+        EGL14.eglDestroySurface(mEGLDisplay, mEGLSurface);
+        mEGLSurface = surface;
+        makeCurrent();
+    }
+
+    /**
+     * Makes no context current on the calling thread, so that the context can be made current
+     * on another thread.
+     */
+    public void detachCurrent() {
+        EGL14.eglMakeCurrent(mEGLDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE,
+                EGL14.EGL_NO_CONTEXT);
+    }
+
     /**
      * Makes our EGL context current, using the supplied "draw" and "read" surfaces.
      */
@@ -93,6 +128,19 @@ public class EglCore {
         return EGL14.eglSwapBuffers(mEGLDisplay, mEGLSurface);
     }
 
+    /**
+     * Sends the presentation time stamp to EGL, the frame queued by the next
+     * {@link #swapBuffers()} shouldn't be displayed before it.
+     * <p>
+     * Only consumers that honor timestamps, e.g. SurfaceFlinger for a SurfaceView or a video
+     * encoder, use it. A TextureView latches the newest buffer regardless of the timestamp.
+     *
+     * @param nsecs Timestamp, in nanoseconds, in the {@link System#nanoTime()} time base.
+     */
+    public void setPresentationTime(long nsecs) {
+        EGLExt.eglPresentationTimeANDROID(mEGLDisplay, mEGLSurface, nsecs);
+    }
+
     /**
      * Discards all resources held by this class, notably the EGL context.  This must be
      * called from the thread where the context was created.
@@ -110,6 +158,17 @@ public class EglCore {
         mEGLContext = EGL14.EGL_NO_CONTEXT;
         mEGLDisplay = EGL14.EGL_NO_DISPLAY;
         mEGLSurface = EGL14.EGL_NO_SURFACE;
+        mEGLConfig = null;
+    }
+
+    /**
+     * Gets the client version of the context, may be lower than the requested one if the device
+     * doesn't support it.
+     *
+     * @return {@link #EGL_VERSION_2} or {@link #EGL_VERSION_3}
+     */
+    public int getGLVersion() {
+        return mEGLVersion;
     }
 
     /**
@@ -123,6 +182,8 @@ public class EglCore {
 
     /**
      * Copy from {@link android.opengl.GLSurfaceView#EglHelper}
+     *
+     * @param nativeWindow null to create a pbuffer surface
      */
     private void initializeInternal(Object nativeWindow, EGLContext sharedEglContext) {
         /*
@@ -146,9 +207,16 @@ public class EglCore {
          * Create EGLConfig
          */
         EGLConfig eglConfig = chooseConfig();
+        if (eglConfig == null && mEGLVersion >= EGL_VERSION_3) {
+            // 设备不支持 ES3 时回退到 ES2
+            Log.w(TAG, "Cannot find ES3 config, fallback to ES2.");
+            mEGLVersion = EGL_VERSION_2;
+            eglConfig = chooseConfig();
+        }
         if (eglConfig == null) {
             throw new RuntimeException("Cannot find suitable config.");
         }
+        mEGLConfig = eglConfig;
 
         /*
          * Create EGLContext
@@ -156,6 +224,14 @@ public class EglCore {
         int[] attrib_list = {EGL_CONTEXT_CLIENT_VERSION, mEGLVersion, EGL14.EGL_NONE};
         EGLContext eglContext = EGL14.eglCreateContext(mEGLDisplay, eglConfig, sharedEglContext,
                 attrib_list, 0);
+        if (mEGLVersion >= EGL_VERSION_3
+                && (eglContext == null || eglContext.equals(EGL14.EGL_NO_CONTEXT))) {
+            Log.w(TAG, "Create ES3 context failed, fallback to ES2.");
+            mEGLVersion = EGL_VERSION_2;
+            attrib_list[1] = mEGLVersion;
+            eglContext = EGL14.eglCreateContext(mEGLDisplay, eglConfig, sharedEglContext,
+                    attrib_list, 0);
+        }
         if (EGL14.eglGetError() == EGL14.EGL_SUCCESS) {
             mEGLContext = eglContext;
         } else {
@@ -165,11 +241,15 @@ public class EglCore {
         /*
          * Create EGLSurface
          */
-        int[] surfaceAttribs = {EGL14.EGL_NONE};
-        mEGLSurface = EGL14.eglCreateWindowSurface(mEGLDisplay, eglConfig, nativeWindow,
-                surfaceAttribs, 0);
-        if (mEGLSurface == null || mEGLSurface == EGL14.EGL_NO_SURFACE) {
-            throw new RuntimeException("createWindowSurface returned EGL_BAD_NATIVE_WINDOW.");
+        if (nativeWindow != null) {
+            mEGLSurface = createWindowSurface(nativeWindow);
+        } else {
+            int[] surfaceAttribs = {EGL14.EGL_WIDTH, 1, EGL14.EGL_HEIGHT, 1, EGL14.EGL_NONE};
+            mEGLSurface = EGL14.eglCreatePbufferSurface(mEGLDisplay, eglConfig,
+                    surfaceAttribs, 0);
+            if (mEGLSurface == null || mEGLSurface == EGL14.EGL_NO_SURFACE) {
+                throw new RuntimeException("createPbufferSurface failed.");
+            }
         }
 
         /*
@@ -178,6 +258,16 @@ public class EglCore {
         makeCurrent();
     }
 
+    private EGLSurface createWindowSurface(Object nativeWindow) {
+        int[] surfaceAttribs = {EGL14.EGL_NONE};
+        EGLSurface surface = EGL14.eglCreateWindowSurface(mEGLDisplay, mEGLConfig, nativeWindow,
+                surfaceAttribs, 0);
+        if (surface == null || surface == EGL14.EGL_NO_SURFACE) {
+            throw new RuntimeException("createWindowSurface returned EGL_BAD_NATIVE_WINDOW.");
+        }
+        return surface;
+    }
+
     /**
      * Finds a suitable EGLConfig.
      */
@@ -197,6 +287,8 @@ public class EglCore {
                 //EGL14.EGL_DEPTH_SIZE, 16,
                 //EGL14.EGL_STENCIL_SIZE, 8,
                 EGL14.EGL_RENDERABLE_TYPE, renderableType,
+                // 预热时先在 pbuffer 上创建上下文, 之后再切换到窗口
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT | EGL14.EGL_PBUFFER_BIT,
                 EGL14.EGL_NONE, 0,      // placeholder for recordable [@-3]
                 EGL14.EGL_NONE
         };
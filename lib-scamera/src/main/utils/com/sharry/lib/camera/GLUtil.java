@@ -9,13 +9,31 @@ import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 class GlUtil {
 
+    /**
+     * 已经读取的 glsl 资源, 预热时在后台线程读取, 编译时直接使用
+     */
+    private static final Map<Integer, String> sResourceCache = new ConcurrentHashMap<>();
+
     /**
      * 获取 glsl 资源
      */
     static String getGLResource(Context context, int rawId) {
+        String source = sResourceCache.get(rawId);
+        if (source == null) {
+            source = readGLResource(context, rawId);
+            if (!source.isEmpty()) {
+                sResourceCache.put(rawId, source);
+            }
+        }
+        return source;
+    }
+
+    private static String readGLResource(Context context, int rawId) {
         InputStream inputStream = context.getResources().openRawResource(rawId);
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
         StringBuilder builder = new StringBuilder();
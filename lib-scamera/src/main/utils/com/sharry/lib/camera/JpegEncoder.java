@@ -0,0 +1,65 @@
+package com.sharry.lib.camera;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 将 NV21 帧编码为 JPEG, 输出到直接内存缓冲池中
+ * <p>
+ * 编码的中间缓冲按线程复用, 可在多个工作线程中并发调用.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class JpegEncoder {
+
+    static final int DEFAULT_QUALITY = 95;
+
+    private static final ThreadLocal<JpegStream> sStream = new ThreadLocal<JpegStream>() {
+        @Override
+        protected JpegStream initialValue() {
+            return new JpegStream();
+        }
+    };
+
+    /**
+     * @return position 为 0, limit 为 JPEG 长度的缓冲, 来自 pool
+     */
+    @NonNull
+    static ByteBuffer encode(@NonNull byte[] nv21, int width, int height, int quality,
+                             @NonNull DirectBufferPool pool) {
+        JpegStream stream = sStream.get();
+        stream.reset();
+        YuvImage image = new YuvImage(nv21, ImageFormat.NV21, width, height, null);
+        if (!image.compressToJpeg(new Rect(0, 0, width, height), quality, stream)) {
+            throw new IllegalStateException("Compress " + width + "x" + height
+                    + " frame to JPEG failed.");
+        }
+        ByteBuffer buffer = pool.acquire(stream.size());
+        stream.copyTo(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 直接读取内部数组, 省去 toByteArray 的拷贝
+     */
+    private static final class JpegStream extends ByteArrayOutputStream {
+
+        void copyTo(ByteBuffer dst) {
+            dst.put(buf, 0, count);
+        }
+
+    }
+
+    private JpegEncoder() {
+    }
+
+}
@@ -0,0 +1,385 @@
+package com.sharry.lib.camera;
+
+import android.content.Context;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 着色器程序的缓存
+ * <p>
+ * 以顶点与片元着色器源码的哈希为 key:
+ * <ul>
+ * <li>同一个上下文中, 相同源码的程序只创建一次, 按引用计数释放. 每个上下文的程序由 {@link Programs} 记录,
+ * 由创建上下文的渲染器持有, 随上下文一同失效</li>
+ * <li>ES3 的上下文中, 程序链接后通过 glGetProgramBinary 取出二进制, 进程内保存在内存中, 同时写入 app 的缓存目录,
+ * 之后的上下文直接 glProgramBinary 加载, 跳过编译与链接</li>
+ * </ul>
+ * 二进制与 GPU 驱动绑定, 以 GL_VENDOR/GL_RENDERER/GL_VERSION 与 {@link Build#FINGERPRINT} 标识驱动,
+ * 驱动或系统升级后缓存自动失效; 驱动拒绝加载的二进制同样丢弃, 回退到编译源码.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+final class ProgramCache {
+
+    private static final String TAG = ProgramCache.class.getSimpleName();
+    private static final String DIR_NAME = "scamera_programs";
+    private static final int MAGIC = 0x53505247;   // SPRG
+    private static final int VERSION = 1;
+    private static final int MAX_GL_ERRORS = 16;
+
+    private static volatile ProgramCache sInstance;
+
+    static ProgramCache getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            synchronized (ProgramCache.class) {
+                if (sInstance == null) {
+                    sInstance = new ProgramCache(context.getApplicationContext());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private final File mDir;
+    /**
+     * 进程内的程序二进制, key 为源码的哈希, 预加载时在后台线程写入
+     */
+    private final Map<String, ProgramBinary> mBinaries = new ConcurrentHashMap<>();
+
+    private ProgramCache(Context context) {
+        mDir = new File(context.getCacheDir(), DIR_NAME);
+    }
+
+    /**
+     * 读取源码对应的二进制到内存中, 不需要 EGL 上下文, 可在任意线程调用
+     */
+    @WorkerThread
+    void preload(@NonNull String vertexSource, @NonNull String fragmentSource) {
+        String key = keyOf(vertexSource, fragmentSource);
+        if (!mBinaries.containsKey(key)) {
+            ProgramBinary binary = readBinary(key);
+            if (binary != null) {
+                mBinaries.put(key, binary);
+            }
+        }
+    }
+
+    /**
+     * 为当前的上下文创建程序的记录, 运行在 GL 线程
+     * <p>
+     * 上下文重建后需要重新创建, 之前的记录连同其中的程序一起失效.
+     */
+    @NonNull
+    Programs newPrograms() {
+        return new Programs();
+    }
+
+    private int loadBinary(Programs programs, String key) {
+        if (!programs.binarySupported) {
+            return 0;
+        }
+        ProgramBinary binary = mBinaries.get(key);
+        if (binary == null) {
+            binary = readBinary(key);
+        }
+        if (binary == null || !binary.driver.equals(programs.driver)) {
+            mBinaries.remove(key);
+            return 0;
+        }
+        int program = GLES20.glCreateProgram();
+        if (program == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(binary.data.length)
+                .order(ByteOrder.nativeOrder());
+        buffer.put(binary.data).position(0);
+        GLES30.glProgramBinary(program, binary.format, buffer, binary.data.length);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            // 驱动拒绝了这份二进制, 丢弃后重新编译
+            Log.i(TAG, "Program binary " + key + " is rejected, discard it.");
+            // 被拒绝的二进制可能留下错误码(如格式失效时的 GL_INVALID_ENUM), 清除后才不会影响重新编译后的保存
+            clearGlErrors();
+            GLES20.glDeleteProgram(program);
+            mBinaries.remove(key);
+            deleteBinary(key);
+            return 0;
+        }
+        mBinaries.put(key, binary);
+        return program;
+    }
+
+    private void saveBinary(Programs programs, String key, int program) {
+        if (!programs.binarySupported) {
+            return;
+        }
+        int[] length = new int[1];
+        GLES20.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+        if (length[0] <= 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length[0]).order(ByteOrder.nativeOrder());
+        int[] format = new int[1];
+        // 之前的调用遗留的错误码不属于这次读取
+        clearGlErrors();
+        GLES30.glGetProgramBinary(program, length[0], length, 0, format, 0, buffer);
+        if (GLES20.glGetError() != GLES20.GL_NO_ERROR || length[0] <= 0) {
+            return;
+        }
+        byte[] data = new byte[length[0]];
+        buffer.get(data);
+        final String finalKey = key;
+        final ProgramBinary binary = new ProgramBinary(programs.driver, format[0], data);
+        mBinaries.put(key, binary);
+        // 写入磁盘不占用 GL 线程
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                writeBinary(finalKey, binary);
+            }
+        });
+    }
+
+    private ProgramBinary readBinary(String key) {
+        File file = new File(mDir, key);
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Incompatible format.");
+            }
+            String driver = in.readUTF();
+            int format = in.readInt();
+            int length = in.readInt();
+            // 长度损坏时不能按照它分配内存
+            if (length <= 0 || length > file.length()) {
+                throw new IOException("Corrupt length " + length + ".");
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+            return new ProgramBinary(driver, format, data);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Read program binary " + key + " failed, discard it.", e);
+            closeQuietly(in);
+            in = null;
+            if (!file.delete()) {
+                Log.w(TAG, "Delete " + file + " failed.");
+            }
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private void writeBinary(String key, ProgramBinary binary) {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            Log.w(TAG, "Create " + mDir + " failed.");
+            return;
+        }
+        File file = new File(mDir, key);
+        File tmp = new File(mDir, key + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(binary.driver);
+            out.writeInt(binary.format);
+            out.writeInt(binary.data.length);
+            out.write(binary.data);
+            out.close();
+            out = null;
+            // 原子替换, 避免写入中途退出导致文件损坏
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Rename " + tmp + " failed.");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Write program binary " + key + " failed.", e);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private void deleteBinary(String key) {
+        final File file = new File(mDir, key);
+        CameraExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (file.exists() && !file.delete()) {
+                    Log.w(TAG, "Delete " + file + " failed.");
+                }
+            }
+        });
+    }
+
+    private static String keyOf(String vertexSource, String fragmentSource) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(vertexSource.getBytes());
+            digest.update((byte) 0);
+            digest.update(fragmentSource.getBytes());
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest()) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore.
+            }
+        }
+    }
+
+    /**
+     * 一个上下文中的程序, 只在该上下文当前所在的 GL 线程访问
+     */
+    final class Programs {
+
+        /**
+         * GPU 驱动的标识
+         */
+        private final String driver;
+        /**
+         * ES3 且驱动支持至少一种二进制格式
+         */
+        private final boolean binarySupported;
+        private final Map<String, Integer> mPrograms = new HashMap<>();
+        private final Map<Integer, Integer> mRefCounts = new HashMap<>();
+
+        private Programs() {
+            String version = GLES20.glGetString(GLES20.GL_VERSION);
+            driver = GLES20.glGetString(GLES20.GL_VENDOR) + "|"
+                    + GLES20.glGetString(GLES20.GL_RENDERER) + "|"
+                    + version + "|" + Build.FINGERPRINT;
+            binarySupported = isEs3(version) && hasBinaryFormats();
+            if (!binarySupported) {
+                Log.i(TAG, "Program binary is not supported: " + version);
+            }
+        }
+
+        /**
+         * 获取源码对应的程序
+         *
+         * @return 程序的 id, 创建失败时返回 0
+         */
+        int obtain(@NonNull String vertexSource, @NonNull String fragmentSource) {
+            String key = keyOf(vertexSource, fragmentSource);
+            // 1. 当前上下文中已创建
+            Integer program = mPrograms.get(key);
+            if (program != null) {
+                retain(program);
+                return program;
+            }
+            // 2. 加载二进制
+            program = loadBinary(this, key);
+            // 3. 编译源码, 并保存二进制
+            if (program == 0) {
+                program = GlUtil.createProgram(vertexSource, fragmentSource);
+                if (program == 0) {
+                    return 0;
+                }
+                saveBinary(this, key, program);
+            }
+            mPrograms.put(key, program);
+            retain(program);
+            return program;
+        }
+
+        /**
+         * 释放程序, 引用计数归零时删除
+         */
+        void release(int program) {
+            Integer count = mRefCounts.get(program);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                mRefCounts.put(program, count - 1);
+                return;
+            }
+            mRefCounts.remove(program);
+            mPrograms.values().remove(program);
+            GLES20.glDeleteProgram(program);
+        }
+
+        private void retain(int program) {
+            Integer count = mRefCounts.get(program);
+            mRefCounts.put(program, count == null ? 1 : count + 1);
+        }
+
+    }
+
+    private static void clearGlErrors() {
+        // 错误码可能有多个, 逐个取出; 限制次数, 避免上下文丢失时一直返回错误
+        for (int i = 0; i < MAX_GL_ERRORS; i++) {
+            if (GLES20.glGetError() == GLES20.GL_NO_ERROR) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isEs3(String version) {
+        // 格式为 "OpenGL ES <major>.<minor> <vendor-specific>"
+        String prefix = "OpenGL ES ";
+        return version != null && version.startsWith(prefix)
+                && version.length() > prefix.length()
+                && version.charAt(prefix.length()) >= '3';
+    }
+
+    private static boolean hasBinaryFormats() {
+        int[] count = new int[1];
+        GLES20.glGetIntegerv(GLES30.GL_NUM_PROGRAM_BINARY_FORMATS, count, 0);
+        return count[0] > 0;
+    }
+
+    private static final class ProgramBinary {
+
+        final String driver;
+        final int format;
+        final byte[] data;
+
+        ProgramBinary(String driver, int format, byte[] data) {
+            this.driver = driver;
+            this.format = format;
+            this.data = data;
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.sharry.lib.camera;
+
+import android.annotation.TargetApi;
+import android.graphics.ImageFormat;
+import android.media.Image;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 将 {@link ImageFormat#YUV_420_888} 的 {@link Image} 或 {@link ImageProxy} 转为 NV21
+ * <p>
+ * 按行批量读取 Plane, 避免逐像素访问 ByteBuffer; 行缓冲在实例中复用, 转换过程不产生内存分配.
+ * 非线程安全, 需要在同一个线程中使用.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+@TargetApi(19)
+final class Yuv420Converter {
+
+    private byte[] mRowU = new byte[0];
+    private byte[] mRowV = new byte[0];
+
+    /**
+     * @param image YUV_420_888 格式的图像
+     * @param dst   输出的 NV21 数据, 长度不小于 width * height * 3 / 2
+     */
+    void toNV21(@NonNull Image image, @NonNull byte[] dst) {
+        Image.Plane[] planes = image.getPlanes();
+        toNV21(image.getWidth(), image.getHeight(),
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(), dst);
+    }
+
+    /**
+     * @param image CameraX 输出的 YUV_420_888 格式的图像
+     * @param dst   输出的 NV21 数据, 长度不小于 width * height * 3 / 2
+     */
+    void toNV21(@NonNull ImageProxy image, @NonNull byte[] dst) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        toNV21(image.getWidth(), image.getHeight(),
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(), dst);
+    }
+
+    /**
+     * U 与 V 的 rowStride, pixelStride 总是相同的
+     */
+    private void toNV21(int width, int height, ByteBuffer yBuffer, int yRowStride,
+                        ByteBuffer uBuffer, ByteBuffer vBuffer, int uvRowStride,
+                        int uvPixelStride, byte[] dst) {
+        // 1. 拷贝 Y 分量, Y 的 pixelStride 恒为 1
+        if (yRowStride == width) {
+            yBuffer.position(0);
+            yBuffer.get(dst, 0, width * height);
+        } else {
+            for (int row = 0; row < height; row++) {
+                yBuffer.position(row * yRowStride);
+                yBuffer.get(dst, row * width, width);
+            }
+        }
+        // 2. 按 VUVU 的顺序交织拷贝 UV 分量
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        // 一行中有效数据的长度, 最后一行可能不足 rowStride
+        int rowLength = (chromaWidth - 1) * uvPixelStride + 1;
+        if (mRowU.length < rowLength) {
+            mRowU = new byte[rowLength];
+            mRowV = new byte[rowLength];
+        }
+        int offset = width * height;
+        for (int row = 0; row < chromaHeight; row++) {
+            uBuffer.position(row * uvRowStride);
+            uBuffer.get(mRowU, 0, rowLength);
+            vBuffer.position(row * uvRowStride);
+            vBuffer.get(mRowV, 0, rowLength);
+            for (int col = 0, index = 0; col < chromaWidth; col++, index += uvPixelStride) {
+                dst[offset++] = mRowV[index];
+                dst[offset++] = mRowU[index];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.sharry.lib.camera;
+
+/**
+ * {@link Size#of}/{@link AspectRatio#of} 的耗时对比
+ * <p>
+ * 简单的计时, 预热后取多轮中最快的一轮, 结果输出到标准输出. 对比的基准为直接 new 实例,
+ * 享元表的查询应与之处于同一量级.
+ * <p>
+ * 不属于单元测试, 已从 test 任务中排除, 需要时直接运行 {@link #main}.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public class IntPairInternerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS = 1000000;
+
+    private static final int[][] SIZES = {
+            {4000, 3000}, {3264, 2448}, {1920, 1080}, {1440, 1080}, {1280, 960},
+            {1280, 720}, {960, 720}, {800, 600}, {640, 480}, {352, 288},
+            {320, 240}, {176, 144}, {1080, 1920}, {720, 1280}, {1088, 1088}, {720, 480}
+    };
+
+    /**
+     * 防止 JIT 消除没有使用的结果
+     */
+    private static volatile int sSink;
+
+    public static void main(String[] args) {
+        sizeOf();
+        aspectRatioOf();
+        intPairInterner();
+    }
+
+    private static void sizeOf() {
+        measure("Size.of", new Operation() {
+            @Override
+            public int run(int a, int b) {
+                return Size.of(a, b).getWidth();
+            }
+        });
+        measure("new Size", new Operation() {
+            @Override
+            public int run(int a, int b) {
+                return new Size(a, b).getWidth();
+            }
+        });
+    }
+
+    private static void aspectRatioOf() {
+        measure("AspectRatio.of", new Operation() {
+            @Override
+            public int run(int a, int b) {
+                return AspectRatio.of(a, b).getX();
+            }
+        });
+    }
+
+    private static void intPairInterner() {
+        final IntPairInterner<int[]> interner = new IntPairInterner<int[]>(64) {
+
+            @Override
+            boolean matches(int[] value, int a, int b) {
+                return value[0] == a && value[1] == b;
+            }
+
+            @Override
+            int[] create(int a, int b) {
+                return new int[]{a, b};
+            }
+
+        };
+        measure("IntPairInterner.intern", new Operation() {
+            @Override
+            public int run(int a, int b) {
+                return interner.intern(a, b)[0];
+            }
+        });
+    }
+
+    private interface Operation {
+
+        int run(int a, int b);
+
+    }
+
+    private static void measure(String name, Operation operation) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runRound(operation);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            runRound(operation);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(String.format("%-24s %6.2f ns/op", name, (double) best / OPERATIONS));
+    }
+
+    private static void runRound(Operation operation) {
+        int sink = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int[] size = SIZES[i & (SIZES.length - 1)];
+            sink += operation.run(size[0], size[1]);
+        }
+        sSink = sink;
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.sharry.lib.camera;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link IntPairInterner} 及 {@link Size#of}/{@link AspectRatio#of} 的并发测试
+ * <p>
+ * 多个线程同时调用, 结果必须与参数相等; 进入享元表的键, 所有线程必须拿到同一个实例.
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public class IntPairInternerTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 2000;
+
+    /**
+     * 常见的相机尺寸
+     */
+    private static final int[][] SIZES = {
+            {4000, 3000}, {3264, 2448}, {1920, 1080}, {1440, 1080}, {1280, 960},
+            {1280, 720}, {1088, 1088}, {960, 720}, {800, 600}, {720, 480},
+            {640, 480}, {352, 288}, {320, 240}, {176, 144}, {1080, 1920}, {720, 1280}
+    };
+
+    /**
+     * 约分后有重复的比例
+     */
+    private static final int[][] RATIOS = {
+            {4, 3}, {8, 6}, {16, 9}, {32, 18}, {3, 2}, {1, 1}, {2, 2}, {11, 9},
+            {5, 4}, {2, 1}, {9, 16}, {3, 4}, {1920, 1080}, {640, 480}
+    };
+
+    @Test
+    public void internerIsConsistentAcrossThreads() throws Exception {
+        final IntPairInterner<int[]> interner = new IntPairInterner<int[]>(16) {
+
+            @Override
+            boolean matches(int[] value, int a, int b) {
+                return value[0] == a && value[1] == b;
+            }
+
+            @Override
+            int[] create(int a, int b) {
+                return new int[]{a, b};
+            }
+
+        };
+        // 键的数量超过容量, 同时覆盖探测溢出的路径
+        final int[][] keys = new int[40][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new int[]{i * 7, i * 13};
+        }
+        Object[][] results = runConcurrently(keys, new Intern() {
+            @Override
+            public Object intern(int a, int b) {
+                return interner.intern(a, b);
+            }
+        });
+        for (int i = 0; i < keys.length; i++) {
+            for (Object[] result : results) {
+                int[] value = (int[]) result[i];
+                assertEquals(keys[i][0], value[0]);
+                assertEquals(keys[i][1], value[1]);
+            }
+            int[] canonical = interner.intern(keys[i][0], keys[i][1]);
+            if (canonical == interner.intern(keys[i][0], keys[i][1])) {
+                for (Object[] result : results) {
+                    assertSame(canonical, result[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sizeOfIsConsistentAcrossThreads() throws Exception {
+        Object[][] results = runConcurrently(SIZES, new Intern() {
+            @Override
+            public Object intern(int a, int b) {
+                return Size.of(a, b);
+            }
+        });
+        for (int i = 0; i < SIZES.length; i++) {
+            Size expected = new Size(SIZES[i][0], SIZES[i][1]);
+            Size canonical = Size.of(SIZES[i][0], SIZES[i][1]);
+            boolean interned = canonical == Size.of(SIZES[i][0], SIZES[i][1]);
+            for (Object[] result : results) {
+                assertEquals(expected, result[i]);
+                if (interned) {
+                    assertSame(canonical, result[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void aspectRatioOfIsConsistentAcrossThreads() throws Exception {
+        Object[][] results = runConcurrently(RATIOS, new Intern() {
+            @Override
+            public Object intern(int a, int b) {
+                return AspectRatio.of(a, b);
+            }
+        });
+        for (int i = 0; i < RATIOS.length; i++) {
+            AspectRatio canonical = AspectRatio.of(RATIOS[i][0], RATIOS[i][1]);
+            boolean interned = canonical == AspectRatio.of(RATIOS[i][0], RATIOS[i][1]);
+            for (Object[] result : results) {
+                AspectRatio ratio = (AspectRatio) result[i];
+                assertTrue(ratio.matches(new Size(RATIOS[i][0], RATIOS[i][1])));
+                assertEquals(canonical, ratio);
+                if (interned) {
+                    assertSame(canonical, ratio);
+                }
+            }
+        }
+        // 约分后相同的比例共享实例
+        assertSame(AspectRatio.of(4, 3), AspectRatio.of(8, 6));
+        assertSame(AspectRatio.of(16, 9), AspectRatio.of(1920, 1080));
+    }
+
+    private interface Intern {
+
+        Object intern(int a, int b);
+
+    }
+
+    /**
+     * 所有线程同时开始, 各自以不同的顺序反复获取每个键
+     *
+     * @return 每个线程对每个键第一次拿到的结果
+     */
+    private static Object[][] runConcurrently(final int[][] keys, final Intern intern)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object[]>> futures = new ArrayList<Future<Object[]>>();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            futures.add(executor.submit(new Callable<Object[]>() {
+                @Override
+                public Object[] call() throws Exception {
+                    Object[] first = new Object[keys.length];
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (int k = 0; k < keys.length; k++) {
+                            int index = (k + offset + round) % keys.length;
+                            Object value = intern.intern(keys[index][0], keys[index][1]);
+                            if (first[index] == null) {
+                                first[index] = value;
+                            }
+                        }
+                    }
+                    return first;
+                }
+            }));
+        }
+        start.countDown();
+        Object[][] results = new Object[THREADS][];
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                results[t] = futures.get(t).get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (Object[] result : results) {
+            for (Object value : result) {
+                if (value == null) {
+                    fail("Missing result.");
+                }
+            }
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.sharry.lib.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link SizeMap} 的查询测试
+ *
+ * @author Sharry <a href="sharrychoochn@gmail.com">Contact me.</a>
+ * @version 1.0
+ * @since 2026-10-17
+ */
+public class SizeMapTest {
+
+    private static final int[] SIZES = {
+            1920, 1080, 640, 480, 1280, 720, 1088, 1920, 4000, 3000, 1440, 1080, 1280, 720
+    };
+
+    @Test
+    public void smallestAtLeastCoversTheRequestedSize() {
+        SizeMap sizeMap = new SizeMap(SIZES);
+        assertSize(1280, 720, sizeMap.smallestAtLeast(AspectRatio.of(16, 9), 1000, 600));
+        assertSize(1920, 1080, sizeMap.smallestAtLeast(AspectRatio.of(16, 9), 1281, 720));
+        assertSize(1440, 1080, sizeMap.smallestAtLeast(AspectRatio.of(4, 3), 800, 600));
+        // 1088x1920 在容差内归入 9:16
+        assertSize(1088, 1920, sizeMap.smallestAtLeast(AspectRatio.of(9, 16), 720, 1280));
+    }
+
+    @Test
+    public void smallestAtLeastFallsBackToTheLargestOfTheRatio() {
+        SizeMap sizeMap = new SizeMap(SIZES);
+        assertSize(1920, 1080, sizeMap.smallestAtLeast(AspectRatio.of(16, 9), 3840, 2160));
+        assertEquals(SizeMap.NONE, sizeMap.smallestAtLeast(AspectRatio.of(1, 1), 100, 100));
+        assertEquals(SizeMap.NONE, sizeMap.smallestAtLeast(null, 100, 100));
+    }
+
+    @Test
+    public void emptyMapHasNoSize() {
+        SizeMap sizeMap = new SizeMap(new int[0]);
+        assertEquals(SizeMap.NONE, sizeMap.largest(AspectRatio.DEFAULT));
+        assertEquals(SizeMap.NONE, sizeMap.largestOfDefaultRatio());
+        assertEquals(SizeMap.NONE, sizeMap.smallestAtLeast(AspectRatio.DEFAULT, 1, 1));
+    }
+
+    private static void assertSize(int width, int height, long size) {
+        assertEquals(width, SizeMap.width(size));
+        assertEquals(height, SizeMap.height(size));
+    }
+
+}